@@ -0,0 +1,33 @@
+#!/usr/bin/env bash
+# Runs the JMH benchmarks and keeps one JSON result file per commit, so performance can be compared across commits.
+#
+# Usage: benchmarks/run.sh [JMH options]            e.g. benchmarks/run.sh SerializationBenchmark -f 2
+#        benchmarks/run.sh compare <baseline.json> <candidate.json>
+# Installs the application jar (tests and the asset pipeline skipped), builds this module and writes JMH's
+# JSON results to benchmarks/results/<commit>.json, with a -dirty suffix when the tree has uncommitted changes.
+# Datasets are seeded (see BenchmarkData and BenchmarkApplication), so results differ only by code and machine.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+BENCH_POM=benchmarks/pom.xml
+RESULTS="$PWD/benchmarks/results"
+
+if [ "${1:-}" = compare ]; then
+    if [ $# -ne 3 ]; then
+        echo "Usage: $0 compare <baseline.json> <candidate.json>" >&2
+        exit 2
+    fi
+    mvn -B -q -f "$BENCH_POM" compile exec:exec \
+        -Dbench.main=com.spingo.bikerental.bench.CompareResults \
+        -Dbench.args="$(realpath "$2") $(realpath "$3")"
+    exit
+fi
+
+COMMIT=$(git rev-parse --short HEAD)
+git diff --quiet HEAD -- || COMMIT="$COMMIT-dirty"
+mkdir -p "$RESULTS"
+
+mvn -B -q -DskipTests -Dassets.skip=true install
+mvn -B -q -f "$BENCH_POM" compile exec:exec \
+    -Dbench.args="-rf json -rff $RESULTS/$COMMIT.json $*"
+echo "Results: $RESULTS/$COMMIT.json"
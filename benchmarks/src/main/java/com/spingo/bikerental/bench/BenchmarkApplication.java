@@ -0,0 +1,81 @@
+package com.spingo.bikerental.bench;
+
+import com.spingo.bikerental.BikeRentalApplication;
+import com.spingo.bikerental.DataGenerator;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The full application on an in-memory H2 database (MySQL mode, schema from the
+ * Flyway migrations), filled by DataGenerator with a fixed seed and size.
+ *
+ * Same seed and sizes give the same users, bikes and bookings on every run
+ * (booking dates are relative to the start), so the repository and dashboard
+ * benchmarks query identical data across commits. Booking archival, which would
+ * move rows while they are measured, and the change log are switched off, and
+ * the image cache lives in a temporary directory. Startup fails if the
+ * tables hold fewer rows than asked for, rather than measuring a smaller dataset.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(int users, int bikes, int bookings, String... extraArgs) {
+        Path workDir;
+        try {
+            workDir = Files.createTempDirectory("bike-rental-bench");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<String> args = new ArrayList<>(List.of(
+            "--spring.profiles.active=datagen",
+            "--" + DataGenerator.GENERATE_FLAG,
+            "--datagen.seed=" + BenchmarkData.SEED,
+            "--datagen.users=" + users,
+            "--datagen.bikes=" + bikes,
+            "--datagen.bookings=" + bookings,
+            "--spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+            "--server.port=0",
+            "--spring.main.banner-mode=off",
+            "--logging.level.root=WARN",
+            "--logging.level.com.spingo.bikerental=WARN",
+            "--logging.level.org.springframework.security=WARN",
+            "--booking-archive.enabled=false",
+            "--changelog.enabled=false",
+            "--changelog.dir=" + workDir.resolve("changelog"),
+            "--utilization.restore-from-snapshot=false",
+            "--images.cache.dir=" + workDir.resolve("image-cache")));
+        args.addAll(Arrays.asList(extraArgs));
+        ConfigurableApplicationContext context =
+            SpringApplication.run(BikeRentalApplication.class, args.toArray(new String[0]));
+        try {
+            // The demo seed rows from DataInitializer come on top
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            requireRows(jdbcTemplate, "users", users);
+            requireRows(jdbcTemplate, "bikes", bikes);
+            requireRows(jdbcTemplate, "bookings", bookings);
+        } catch (RuntimeException e) {
+            context.close();
+            throw e;
+        }
+        return context;
+    }
+
+    private static void requireRows(JdbcTemplate jdbcTemplate, String table, int expected) {
+        long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+        if (rows < expected) {
+            throw new IllegalStateException(table + " has " + rows + " rows, expected at least " + expected
+                + "; was the data generated?");
+        }
+    }
+}
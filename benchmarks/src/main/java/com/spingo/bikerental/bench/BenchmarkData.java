@@ -0,0 +1,124 @@
+package com.spingo.bikerental.bench;
+
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeStatus;
+import com.spingo.bikerental.BikeType;
+import com.spingo.bikerental.Booking;
+import com.spingo.bikerental.BookingStatus;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRole;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded in-memory entities for the benchmarks that do not need a database.
+ *
+ * Everything is derived from the seed and a fixed base date, never from the
+ * clock, so two runs (or two commits) serialize and price exactly the same
+ * objects. The database-backed benchmarks use DataGenerator instead, see
+ * BenchmarkApplication.
+ */
+final class BenchmarkData {
+
+    static final long SEED = 42;
+
+    static final LocalDateTime BASE_DATE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    static final String[] CITIES = {
+        "Mumbai", "Delhi", "Bangalore", "Hyderabad", "Chennai", "Pune", "Kolkata", "Ahmedabad", "Jaipur"
+    };
+
+    private static final String[][] MODELS = {
+        {"Honda", "Activa 6G"}, {"Hero", "Splendor Plus"}, {"Bajaj", "Pulsar 150"}, {"TVS", "Jupiter"},
+        {"Royal Enfield", "Classic 350"}, {"Yamaha", "R15"}, {"KTM", "Duke 390"}, {"BMW", "G 310 GS"}
+    };
+
+    private static final String[] NAMES = {
+        "Aarav Sharma", "Diya Patel", "Rohan Iyer", "Kavya Reddy", "Arjun Nair", "Meera Gupta", "Vikram Singh"
+    };
+
+    private BenchmarkData() {
+    }
+
+    static List<User> users(int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        UserRole[] roles = UserRole.values();
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setId(1000L + i);
+            user.setName(NAMES[random.nextInt(NAMES.length)]);
+            user.setEmail("user" + i + "@bench.spingo.com");
+            user.setPhone(String.valueOf(9_000_000_000L + random.nextInt(1_000_000_000)));
+            user.setPassword("$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbenchm");
+            user.setRole(roles[random.nextInt(roles.length)]);
+            user.setAddress(random.nextInt(500) + " MG Road, " + CITIES[random.nextInt(CITIES.length)]);
+            user.setIsActive(true);
+            user.setCreatedAt(BASE_DATE.minusDays(random.nextInt(730)));
+            user.setUpdatedAt(user.getCreatedAt());
+            users.add(user);
+        }
+        return users;
+    }
+
+    static List<Bike> bikes(int count, List<User> owners) {
+        SplittableRandom random = new SplittableRandom(SEED + 1);
+        BikeType[] types = BikeType.values();
+        List<Bike> bikes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] model = MODELS[random.nextInt(MODELS.length)];
+            BigDecimal perHour = BigDecimal.valueOf(50 + random.nextInt(550));
+            Bike bike = new Bike();
+            bike.setId(5000L + i);
+            bike.setBrand(model[0]);
+            bike.setModel(model[1]);
+            bike.setYear(2015 + random.nextInt(10));
+            bike.setType(types[random.nextInt(types.length)]);
+            bike.setCity(CITIES[random.nextInt(CITIES.length)]);
+            bike.setPricePerHour(perHour);
+            bike.setPricePerDay(perHour.multiply(BigDecimal.valueOf(8)));
+            bike.setPricePerMonth(perHour.multiply(BigDecimal.valueOf(150)));
+            bike.setOwner(owners.get(random.nextInt(owners.size())));
+            bike.setDescription(model[0] + " " + model[1] + ", well maintained, helmet included");
+            bike.setStatus(random.nextInt(4) == 0 ? BikeStatus.BOOKED : BikeStatus.AVAILABLE);
+            bike.setImageUrl("images/Bike_" + (1 + random.nextInt(8)) + ".jpg");
+            bike.setIsActive(true);
+            bike.setCreatedAt(BASE_DATE.minusDays(random.nextInt(365)));
+            bike.setUpdatedAt(bike.getCreatedAt());
+            bikes.add(bike);
+        }
+        return bikes;
+    }
+
+    static List<Booking> bookings(int count, List<User> users, List<Bike> bikes) {
+        SplittableRandom random = new SplittableRandom(SEED + 2);
+        BookingStatus[] statuses = BookingStatus.values();
+        List<Booking> bookings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Bike bike = bikes.get(random.nextInt(bikes.size()));
+            LocalDateTime pickup = BASE_DATE.plusHours(random.nextInt(24 * 365));
+            LocalDateTime dropoff = pickup.plusHours(1 + random.nextInt(72));
+            Booking booking = new Booking();
+            booking.setId(100_000L + i);
+            booking.setUser(users.get(random.nextInt(users.size())));
+            booking.setBike(bike);
+            booking.setPickupDate(pickup);
+            booking.setDropoffDate(dropoff);
+            booking.setPickupTime(String.format("%02d:00", pickup.getHour()));
+            booking.setDropTime(String.format("%02d:00", dropoff.getHour()));
+            long hours = Duration.between(pickup, dropoff).toHours();
+            booking.setTotalPrice(bike.getPricePerHour().multiply(BigDecimal.valueOf(hours)));
+            booking.setStatus(statuses[random.nextInt(statuses.length)]);
+            booking.setNotes(random.nextInt(3) == 0 ? "Please keep the helmet ready" : null);
+            booking.setCreatedAt(pickup.minusDays(1 + random.nextInt(14)));
+            booking.setUpdatedAt(booking.getCreatedAt());
+            bookings.add(booking);
+        }
+        return bookings;
+    }
+}
@@ -0,0 +1,106 @@
+package com.spingo.bikerental.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prints two JMH JSON result files side by side, e.g. the runs of two commits
+ * written by benchmarks/run.sh:
+ *
+ *   benchmarks/run.sh compare results/a1b2c3d.json results/e4f5a6b.json
+ *
+ * Rows are matched on benchmark name and parameters. The change column is
+ * signed so that positive is always an improvement (more ops/s, less time per
+ * op); changes within the combined error margins are marked with "~". Where a
+ * benchmark counts written bytes, the payload size per operation is printed too.
+ */
+public class CompareResults {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <candidate.json>");
+            System.exit(2);
+        }
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> candidate = read(new File(args[1]));
+
+        System.out.println("baseline:  " + args[0]);
+        System.out.println("candidate: " + args[1]);
+        System.out.printf("%-70s %16s %16s %9s  %s%n", "benchmark", "baseline", "candidate", "change", "unit");
+        for (Map.Entry<String, JsonNode> entry : baseline.entrySet()) {
+            JsonNode before = entry.getValue();
+            JsonNode after = candidate.get(entry.getKey());
+            JsonNode beforeMetric = before.path("primaryMetric");
+            if (after == null) {
+                System.out.printf("%-70s %16.3f %16s%n", entry.getKey(), beforeMetric.path("score").asDouble(), "-");
+                continue;
+            }
+            JsonNode afterMetric = after.path("primaryMetric");
+            double a = beforeMetric.path("score").asDouble();
+            double b = afterMetric.path("score").asDouble();
+            boolean higherIsBetter = "thrpt".equals(before.path("mode").asText());
+            double change = a == 0 ? 0 : (higherIsBetter ? b - a : a - b) / a * 100;
+            boolean withinError = Math.abs(b - a) <= beforeMetric.path("scoreError").asDouble(0)
+                + afterMetric.path("scoreError").asDouble(0);
+            System.out.printf("%-70s %16.3f %16.3f %+8.1f%%%s %s%n", entry.getKey(), a, b, change,
+                withinError ? "~" : " ", beforeMetric.path("scoreUnit").asText());
+
+            Double bytesBefore = bytesPerOp(before);
+            Double bytesAfter = bytesPerOp(after);
+            if (bytesBefore != null && bytesAfter != null) {
+                System.out.printf("%-70s %16.1f %16.1f %+8.1f%%  %s%n", "  bytes/op", bytesBefore, bytesAfter,
+                    bytesBefore == 0 ? 0 : (bytesBefore - bytesAfter) / bytesBefore * 100, "B/op");
+            }
+        }
+        for (String key : candidate.keySet()) {
+            if (!baseline.containsKey(key)) {
+                System.out.printf("%-70s %16s %16.3f%n", key, "-",
+                    candidate.get(key).path("primaryMetric").path("score").asDouble());
+            }
+        }
+    }
+
+    private static Map<String, JsonNode> read(File file) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            results.put(key(result), result);
+        }
+        return results;
+    }
+
+    // e.g. SerializationBenchmark.bike[mapper=lean]
+    private static String key(JsonNode result) {
+        String name = result.path("benchmark").asText();
+        StringBuilder key = new StringBuilder(name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1));
+        JsonNode params = result.path("params");
+        if (params.size() > 0) {
+            key.append('[');
+            Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> param = fields.next();
+                key.append(param.getKey()).append('=').append(param.getValue().asText());
+                if (fields.hasNext()) {
+                    key.append(',');
+                }
+            }
+            key.append(']');
+        }
+        return key.toString();
+    }
+
+    // The "bytes" counter is a rate like the throughput score, so their ratio is bytes per operation
+    private static Double bytesPerOp(JsonNode result) {
+        JsonNode bytes = result.path("secondaryMetrics").path("bytes");
+        double ops = result.path("primaryMetric").path("score").asDouble();
+        if (bytes.isMissingNode() || ops == 0 || !"thrpt".equals(result.path("mode").asText())) {
+            return null;
+        }
+        return bytes.path("score").asDouble() / ops;
+    }
+}
@@ -0,0 +1,98 @@
+package com.spingo.bikerental.bench;
+
+import com.spingo.bikerental.AuthPrincipal;
+import com.spingo.bikerental.UserRole;
+import com.spingo.bikerental.controller.DashboardController;
+import com.spingo.bikerental.dto.DashboardResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+// Dashboard aggregation through the DashboardController bean (method security included) on the generated H2 dataset
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+// Spring, Hibernate and H2 take close to a minute of calls to reach steady state
+@Warmup(iterations = 10, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DashboardBenchmark {
+
+    @Param({"20000"})
+    public int users;
+
+    @Param({"5000"})
+    public int bikes;
+
+    @Param({"100000"})
+    public int bookings;
+
+    private ConfigurableApplicationContext context;
+
+    private DashboardController dashboardController;
+
+    private AuthPrincipal admin;
+
+    private AuthPrincipal owner;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start(users, bikes, bookings);
+        dashboardController = context.getBean(DashboardController.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        admin = principal(jdbcTemplate.queryForObject(
+            "SELECT id FROM users WHERE role = 'ADMIN' ORDER BY id LIMIT 1", Long.class), UserRole.ADMIN);
+        // The individual owner with the most bikes: the heaviest owner dashboard, and the same one every run
+        owner = principal(jdbcTemplate.queryForObject(
+            "SELECT b.owner_id FROM bikes b JOIN users u ON u.id = b.owner_id WHERE u.role = 'INDIVIDUAL_OWNER' "
+                + "GROUP BY b.owner_id ORDER BY COUNT(*) DESC, b.owner_id LIMIT 1", Long.class),
+            UserRole.INDIVIDUAL_OWNER);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private static AuthPrincipal principal(Long id, UserRole role) {
+        return new AuthPrincipal(id, "bench-" + id + "@spingo.com", role, "Benchmark " + role);
+    }
+
+    private static void authenticate(AuthPrincipal principal) {
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    // @PreAuthorize reads the security context of the calling thread, i.e. the JMH worker
+    @State(Scope.Thread)
+    public static class AdminCaller {
+        @Setup
+        public void signIn(DashboardBenchmark benchmark) {
+            authenticate(benchmark.admin);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnerCaller {
+        @Setup
+        public void signIn(DashboardBenchmark benchmark) {
+            authenticate(benchmark.owner);
+        }
+    }
+
+    @Benchmark
+    public ResponseEntity<DashboardResponse> admin(AdminCaller caller) {
+        return dashboardController.getAdminDashboard();
+    }
+
+    @Benchmark
+    public ResponseEntity<DashboardResponse> owner(OwnerCaller caller) {
+        return dashboardController.getOwnerDashboard(null, owner);
+    }
+}
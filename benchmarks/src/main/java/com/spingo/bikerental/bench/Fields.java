@@ -0,0 +1,24 @@
+package com.spingo.bikerental.bench;
+
+import java.lang.reflect.Field;
+
+// Sets the @Value/@Autowired fields of application classes that the benchmarks construct without Spring
+final class Fields {
+
+    private Fields() {
+    }
+
+    static void set(Object target, String name, Object value) throws ReflectiveOperationException {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // Declared further up
+            }
+        }
+        throw new NoSuchFieldException(target.getClass().getName() + "." + name);
+    }
+}
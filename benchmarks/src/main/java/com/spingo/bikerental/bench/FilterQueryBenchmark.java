@@ -0,0 +1,78 @@
+package com.spingo.bikerental.bench;
+
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.BikeStatus;
+import com.spingo.bikerental.BikeType;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// BikeRepository.findBikesWithFilters (GET /api/bikes/filter) against the generated H2 dataset
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+// Spring, Hibernate and H2 take close to a minute of calls to reach steady state
+@Warmup(iterations = 10, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterQueryBenchmark {
+
+    private static final String[] BRANDS = {"Honda", "Hero", "Bajaj", "TVS", "Royal Enfield", "Yamaha"};
+
+    @Param({"20000"})
+    public int users;
+
+    @Param({"5000"})
+    public int bikes;
+
+    // The repository marks the query cacheable; "false" measures the SQL and entity loading behind it
+    @Param({"true", "false"})
+    public boolean queryCache;
+
+    private ConfigurableApplicationContext context;
+
+    private BikeRepository bikeRepository;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start(users, bikes, 0,
+            "--spring.jpa.properties.hibernate.cache.use_query_cache=" + queryCache);
+        bikeRepository = context.getBean(BikeRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next(int bound) {
+            return Math.floorMod(next++, bound);
+        }
+    }
+
+    @Benchmark
+    public List<Bike> city(Cursor cursor) {
+        return bikeRepository.findBikesWithFilters(
+            BenchmarkData.CITIES[cursor.next(BenchmarkData.CITIES.length)], null, null, null);
+    }
+
+    @Benchmark
+    public List<Bike> cityAndType(Cursor cursor) {
+        int i = cursor.next(BenchmarkData.CITIES.length * BikeType.values().length);
+        return bikeRepository.findBikesWithFilters(BenchmarkData.CITIES[i % BenchmarkData.CITIES.length],
+            BikeType.values()[i / BenchmarkData.CITIES.length], null, null);
+    }
+
+    @Benchmark
+    public List<Bike> brandAndStatus(Cursor cursor) {
+        return bikeRepository.findBikesWithFilters(null, null,
+            BRANDS[cursor.next(BRANDS.length)], BikeStatus.AVAILABLE);
+    }
+}
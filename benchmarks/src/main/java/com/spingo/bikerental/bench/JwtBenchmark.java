@@ -0,0 +1,76 @@
+package com.spingo.bikerental.bench;
+
+import com.spingo.bikerental.JwtUtil;
+import com.spingo.bikerental.User;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Token verification as done by JwtAuthenticationFilter on every authenticated request
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private static final int TOKENS = 1024;
+
+    private JwtUtil jwtUtil;
+
+    private String[] tokens;
+
+    private UserDetails[] userDetails;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        jwtUtil = new JwtUtil();
+        Fields.set(jwtUtil, "secret", "mySecretKey1234567890abcdefghijklmnopqrstuvwxyz1234567890");
+        Fields.set(jwtUtil, "expiration", 86_400_000L);
+        jwtUtil.init();
+
+        // Distinct tokens, so verification never sees the same bytes twice in a row
+        List<User> users = BenchmarkData.users(TOKENS);
+        tokens = new String[TOKENS];
+        userDetails = new UserDetails[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            User user = users.get(i);
+            tokens[i] = jwtUtil.generateToken(user);
+            userDetails[i] = org.springframework.security.core.userdetails.User.withUsername(user.getEmail())
+                .password(user.getPassword())
+                .roles(user.getRole().name())
+                .build();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public Claims parseClaims(Cursor cursor) {
+        int i = cursor.next++ & (TOKENS - 1);
+        return jwtUtil.parseClaims(tokens[i]);
+    }
+
+    // Parse once, then validate the claims: what JwtAuthenticationFilter does
+    @Benchmark
+    public Boolean parseAndValidate(Cursor cursor) {
+        int i = cursor.next++ & (TOKENS - 1);
+        Claims claims = jwtUtil.parseClaims(tokens[i]);
+        return jwtUtil.validateToken(claims, userDetails[i]);
+    }
+
+    // Old filter path for comparison: extractUsername and validateToken each verify the signature
+    @Benchmark
+    public Boolean validateByToken(Cursor cursor) {
+        int i = cursor.next++ & (TOKENS - 1);
+        String username = jwtUtil.extractUsername(tokens[i]);
+        return username != null && jwtUtil.validateToken(tokens[i], userDetails[i]);
+    }
+}
@@ -0,0 +1,74 @@
+package com.spingo.bikerental.bench;
+
+import com.spingo.bikerental.Booking;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.controller.BookingController;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// BookingController.calculateTotalPrice, run for every created and updated booking
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingBenchmark {
+
+    private static final int BOOKINGS = 4096;
+
+    // The helper is private; a static final handle is inlined like a direct call
+    private static final MethodHandle CALCULATE_TOTAL_PRICE = calculateTotalPrice();
+
+    private BookingController controller;
+
+    private LocalDateTime[] pickups;
+
+    private LocalDateTime[] dropoffs;
+
+    private BigDecimal[] prices;
+
+    @Setup
+    public void setUp() {
+        controller = new BookingController();
+        List<User> users = BenchmarkData.users(100);
+        List<Booking> bookings = BenchmarkData.bookings(BOOKINGS, users, BenchmarkData.bikes(500, users));
+        pickups = new LocalDateTime[BOOKINGS];
+        dropoffs = new LocalDateTime[BOOKINGS];
+        prices = new BigDecimal[BOOKINGS];
+        for (int i = 0; i < BOOKINGS; i++) {
+            Booking booking = bookings.get(i);
+            pickups[i] = booking.getPickupDate();
+            dropoffs[i] = booking.getDropoffDate();
+            prices[i] = booking.getBike().getPricePerHour();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public BigDecimal calculateTotalPrice(Cursor cursor) throws Throwable {
+        int i = cursor.next++ & (BOOKINGS - 1);
+        return (BigDecimal) CALCULATE_TOTAL_PRICE.invokeExact(controller, pickups[i], dropoffs[i], prices[i]);
+    }
+
+    private static MethodHandle calculateTotalPrice() {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(BookingController.class, MethodHandles.lookup());
+            return lookup.findVirtual(BookingController.class, "calculateTotalPrice",
+                MethodType.methodType(BigDecimal.class, LocalDateTime.class, LocalDateTime.class, BigDecimal.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
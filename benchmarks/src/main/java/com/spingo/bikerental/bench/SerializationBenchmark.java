@@ -0,0 +1,122 @@
+package com.spingo.bikerental.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.hibernate6.Hibernate6Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.Booking;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.config.JacksonConfig;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bike and Booking to JSON with the application's ObjectMapper ("lean", the
+ * hand-written serializers from JacksonConfig.responseModule()) and with the
+ * same mapper minus that module ("plain", bean serialization).
+ *
+ * Besides throughput, every benchmark counts the bytes it writes: in the JSON
+ * results the "bytes" secondary metric divided by the primary score is the
+ * payload size per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"lean", "plain"})
+    public String mapper;
+
+    private ObjectWriter bikeWriter;
+
+    private ObjectWriter bookingWriter;
+
+    private ObjectWriter bikeListWriter;
+
+    private Bike[] bikes;
+
+    private Booking[] bookings;
+
+    private List<Bike> bikePage;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = "lean".equals(mapper) ? new JacksonConfig().objectMapper() : plainObjectMapper();
+        bikeWriter = objectMapper.writerFor(Bike.class);
+        bookingWriter = objectMapper.writerFor(Booking.class);
+        bikeListWriter = objectMapper.writerFor(new TypeReference<List<Bike>>() { });
+
+        List<User> users = BenchmarkData.users(1000);
+        List<Bike> bikeList = BenchmarkData.bikes(SAMPLES, users);
+        bikes = bikeList.toArray(new Bike[0]);
+        bookings = BenchmarkData.bookings(SAMPLES, users, bikeList).toArray(new Booking[0]);
+        bikePage = bikeList.subList(0, PAGE_SIZE);
+    }
+
+    // JacksonConfig.objectMapper() as it was before the hand-written serializers
+    private static ObjectMapper plainObjectMapper() {
+        Hibernate6Module hibernateModule = new Hibernate6Module();
+        hibernateModule.disable(Hibernate6Module.Feature.USE_TRANSIENT_ANNOTATION);
+        hibernateModule.disable(Hibernate6Module.Feature.FORCE_LAZY_LOADING);
+        hibernateModule.enable(Hibernate6Module.Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS);
+
+        return Jackson2ObjectMapperBuilder.json()
+                .modules(hibernateModule, new JavaTimeModule())
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .featuresToDisable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+                .featuresToDisable(SerializationFeature.FAIL_ON_SELF_REFERENCES)
+                .build();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Output {
+        public long bytes;
+
+        // JMH normalizes the counter per iteration but does not reset it
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Benchmark
+    public byte[] bike(Cursor cursor, Output output) throws Exception {
+        byte[] json = bikeWriter.writeValueAsBytes(bikes[cursor.next++ & (SAMPLES - 1)]);
+        output.bytes += json.length;
+        return json;
+    }
+
+    @Benchmark
+    public byte[] booking(Cursor cursor, Output output) throws Exception {
+        byte[] json = bookingWriter.writeValueAsBytes(bookings[cursor.next++ & (SAMPLES - 1)]);
+        output.bytes += json.length;
+        return json;
+    }
+
+    // One page of GET /api/bikes
+    @Benchmark
+    public byte[] bikePage(Output output) throws Exception {
+        byte[] json = bikeListWriter.writeValueAsBytes(bikePage);
+        output.bytes += json.length;
+        return json;
+    }
+}
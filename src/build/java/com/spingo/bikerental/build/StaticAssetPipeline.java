@@ -0,0 +1,250 @@
+package com.spingo.bikerental.build;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build step over target/classes/static, run by exec-maven-plugin right after
+ * process-resources as a single-file Java program (see pom.xml).
+ *
+ * 1. Every CSS, JS and image file is copied to a content-hashed name
+ *    (js/app.js -> js/app.3f2a9c01d4.js). Images go first so that CSS files
+ *    can have their url(...) references rewritten before they are hashed.
+ * 2. src/href attributes in the HTML pages are rewritten to the hashed names.
+ * 3. Text assets get .gz and .br siblings when those are actually smaller.
+ *
+ * The originals stay in place for URLs the scripts build at runtime. WebConfig
+ * serves the hashed names as immutable, and the precompressed siblings are
+ * picked by Accept-Encoding. The mapping is written to
+ * asset-manifest.properties next to the static directory. Re-running over the
+ * same directory first removes the previous run's output.
+ */
+public class StaticAssetPipeline {
+
+    // Keep in sync with WebConfig.HASHED_ASSET
+    static final Pattern HASHED = Pattern.compile(".+\\.[0-9a-f]{10}\\.[a-z0-9]+");
+
+    private static final Pattern STALE_HASH = Pattern.compile("\\.[0-9a-f]{10}(?=\\.[a-z0-9]+$)");
+
+    private static final Set<String> HASHED_TYPES = Set.of(
+        "css", "js", "jpg", "jpeg", "png", "gif", "svg", "webp", "avif", "ico", "woff", "woff2");
+
+    private static final Set<String> COMPRESSED_TYPES = Set.of("html", "css", "js", "svg", "json", "txt", "map");
+
+    // Below this, the compressed copy saves less than the extra lookup costs
+    private static final int MIN_COMPRESS_BYTES = 1024;
+
+    private static final Pattern HTML_REFERENCE = Pattern.compile("(\\s(?:src|href)\\s*=\\s*\")([^\"]+)(\")");
+
+    private static final Pattern CSS_REFERENCE = Pattern.compile("(url\\(\\s*['\"]?)([^'\")]+)(['\"]?\\s*\\))");
+
+    private final Path root;
+
+    // Path relative to root (forward slashes) -> hashed path relative to root
+    private final Map<String, String> manifest = new TreeMap<>();
+
+    private final boolean brotli;
+
+    private long originalBytes;
+    private long gzipBytes;
+    private long brotliBytes;
+
+    StaticAssetPipeline(Path root, boolean brotli) {
+        this.root = root;
+        this.brotli = brotli;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: StaticAssetPipeline <static-dir>");
+            System.exit(2);
+        }
+        Path root = Path.of(args[0]).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            System.out.println("[assets] " + root + " does not exist, nothing to do");
+            return;
+        }
+        boolean brotli = Brotli4jLoader.isAvailable();
+        if (!brotli) {
+            System.out.println("[assets] brotli native library unavailable, writing .gz only: "
+                + Brotli4jLoader.getUnavailabilityCause());
+        }
+        new StaticAssetPipeline(root, brotli).run();
+    }
+
+    void run() throws IOException {
+        cleanPreviousOutput();
+        List<Path> files = listFiles();
+
+        for (Path file : files) {
+            String type = extension(file);
+            if (HASHED_TYPES.contains(type) && !type.equals("css")) {
+                fingerprint(file, Files.readAllBytes(file));
+            }
+        }
+        for (Path file : files) {
+            if (extension(file).equals("css")) {
+                String css = Files.readString(file, StandardCharsets.UTF_8);
+                fingerprint(file, rewrite(file, css, CSS_REFERENCE).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        for (Path file : files) {
+            if (extension(file).equals("html")) {
+                String html = Files.readString(file, StandardCharsets.UTF_8);
+                String rewritten = rewrite(file, html, HTML_REFERENCE);
+                if (!rewritten.equals(html)) {
+                    Files.writeString(file, rewritten, StandardCharsets.UTF_8);
+                }
+            }
+        }
+
+        for (Path file : listFiles()) {
+            if (COMPRESSED_TYPES.contains(extension(file)) && Files.size(file) >= MIN_COMPRESS_BYTES) {
+                compress(file);
+            }
+        }
+
+        writeManifest();
+        System.out.printf(Locale.ROOT, "[assets] %d files fingerprinted; text assets %d bytes -> gzip %d, brotli %d%n",
+            manifest.size(), originalBytes, gzipBytes, brotliBytes);
+    }
+
+    private void cleanPreviousOutput() throws IOException {
+        for (Path file : listFiles()) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(".gz") || name.endsWith(".br") || HASHED.matcher(name).matches()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            return walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    // Writes content under name.<hash>.ext beside the original and records the mapping
+    private void fingerprint(Path file, byte[] content) throws IOException {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String hashedName = name.substring(0, dot) + "." + hash(content) + name.substring(dot);
+        Path hashed = file.resolveSibling(hashedName);
+        Files.write(hashed, content);
+        manifest.put(relative(file), relative(hashed));
+    }
+
+    // Replaces local references that resolve to a fingerprinted file; absolute URLs, anchors and queries are left alone
+    private String rewrite(Path file, String text, Pattern reference) {
+        Matcher matcher = reference.matcher(text);
+        StringBuilder out = new StringBuilder(text.length());
+        while (matcher.find()) {
+            String target = matcher.group(2);
+            String replacement = target;
+            if (!target.contains(":") && !target.startsWith("#") && !target.startsWith("//")
+                    && target.indexOf('?') < 0 && target.indexOf('#') < 0) {
+                Path resolved = target.startsWith("/")
+                    ? root.resolve(target.substring(1)).normalize()
+                    : file.getParent().resolve(target).normalize();
+                if (resolved.startsWith(root)) {
+                    // HTML left over from an earlier run (resources:resources skips unchanged files) points at a stale hash
+                    String original = relative(resolved);
+                    if (HASHED.matcher(original).matches()) {
+                        original = STALE_HASH.matcher(original).replaceFirst("");
+                    }
+                    String hashed = manifest.get(original);
+                    if (hashed != null) {
+                        int slash = target.lastIndexOf('/');
+                        replacement = target.substring(0, slash + 1) + hashed.substring(hashed.lastIndexOf('/') + 1);
+                    }
+                }
+            }
+            matcher.appendReplacement(out, Matcher.quoteReplacement(matcher.group(1) + replacement + matcher.group(3)));
+        }
+        matcher.appendTail(out);
+        return out.toString();
+    }
+
+    private void compress(Path file) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        originalBytes += content.length;
+
+        byte[] gzip = gzip(content);
+        if (gzip.length < content.length) {
+            Files.write(file.resolveSibling(file.getFileName() + ".gz"), gzip);
+            gzipBytes += gzip.length;
+        } else {
+            gzipBytes += content.length;
+        }
+
+        if (brotli) {
+            byte[] br = Encoder.compress(content, new Encoder.Parameters().setQuality(11).setMode(Encoder.Mode.TEXT));
+            if (br.length < content.length) {
+                Files.write(file.resolveSibling(file.getFileName() + ".br"), br);
+                brotliBytes += br.length;
+            } else {
+                brotliBytes += content.length;
+            }
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        StringBuilder out = new StringBuilder("# Generated by StaticAssetPipeline: original -> fingerprinted path under static/\n");
+        manifest.forEach((original, hashed) -> out.append(original.replace(" ", "\\ ")).append('=').append(hashed).append('\n'));
+        Files.writeString(root.resolveSibling("asset-manifest.properties"), out, StandardCharsets.UTF_8);
+    }
+
+    private String relative(Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, 5);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length / 3 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
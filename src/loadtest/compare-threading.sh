@@ -0,0 +1,65 @@
+#!/usr/bin/env bash
+# Compares platform-thread and virtual-thread request handling under the same load.
+#
+# Needs a Java 21 `java` on PATH and the datagen database (see application-datagen.properties);
+# generate it once with:
+#   java -jar target/bike-rental-backend-0.0.1-SNAPSHOT-exec.jar --spring.profiles.active=datagen --generate-data --datagen.exit-when-done=true
+#
+# Usage: src/loadtest/compare-threading.sh [concurrency] [duration-seconds]
+# Builds with -Pjava21, then starts the app twice on the datagen database: once on Tomcat's platform pool,
+# once with the virtual-threads profile (with -Djdk.tracePinnedThreads=short). Both runs get the same
+# booking/dashboard mix, and the two reports are printed side by side with the pinned-thread count.
+set -euo pipefail
+
+cd "$(dirname "$0")/../.."
+CONCURRENCY="${1:-400}"
+DURATION="${2:-60}"
+PORT="${PORT:-8080}"
+OUT=target/loadtest
+LOADTEST=src/loadtest/java/com/spingo/bikerental/loadtest/LoadTest.java
+mkdir -p "$OUT"
+
+if ! java -version 2>&1 | grep -qE 'version "(2[1-9]|[3-9][0-9])'; then
+    echo "Java 21 or newer is required for the virtual-thread run" >&2
+    exit 1
+fi
+
+mvn -B -q -Pjava21 -DskipTests -Dassets.skip=true package
+JAR=$(ls target/bike-rental-backend-*-exec.jar | head -1)
+
+# Rate limits and per-request debug logging would measure something else
+COMMON_ARGS=(--server.port="$PORT" --rate-limit.enabled=false
+             --logging.level.com.spingo.bikerental=INFO --logging.level.org.springframework.security=WARN)
+
+run() {
+    local mode="$1" profiles="$2"
+    shift 2
+    echo "== $mode threads"
+    java "$@" -jar "$JAR" --spring.profiles.active="$profiles" "${COMMON_ARGS[@]}" > "$OUT/$mode-server.log" 2>&1 &
+    local pid=$!
+    trap "kill $pid 2>/dev/null || true" EXIT
+    for _ in $(seq 1 120); do
+        curl -fs "http://localhost:$PORT/api/auth/health" > /dev/null && break
+        sleep 1
+    done
+
+    java "$LOADTEST" --base-url "http://localhost:$PORT" \
+        --email admin@spingo.com --password admin123 \
+        --concurrency "$CONCURRENCY" --warmup 15 --duration "$DURATION" \
+        --users 1000000 --bikes 100000 --bookings 5000000 \
+        --target "4:/api/bookings/{booking}" \
+        --target "3:/api/bookings/user/{user}" \
+        --target "1:/api/dashboard/admin" \
+        --label "$mode" --report "$OUT/$mode.properties"
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    trap - EXIT
+}
+
+run platform datagen
+run virtual datagen,virtual-threads -Djdk.tracePinnedThreads=short
+
+echo
+java "$LOADTEST" --compare "$OUT/platform.properties" "$OUT/virtual.properties"
+echo "pinned virtual-thread stacks: $(grep -c '<== monitors' "$OUT/virtual-server.log" || true) (see $OUT/virtual-server.log)"
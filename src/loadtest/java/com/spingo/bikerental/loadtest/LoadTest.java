@@ -0,0 +1,745 @@
+package com.spingo.bikerental.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * HTTP load generator for the API, run as a single-file program:
+ *
+ *   java src/loadtest/java/com/spingo/bikerental/loadtest/LoadTest.java \
+ *       --base-url http://localhost:8080 --email admin@spingo.com --password admin123 \
+ *       --mix riders --rate 200 --concurrency 400 --warmup 15 --duration 60 \
+ *       --label riders --report target/loadtest/riders.properties
+ *
+ * Work is a weighted mix of scenarios (--mix riders|login-storm, or --scenario
+ * name:weight for any of browse, view-bike, login, book, cancel, dashboard and
+ * admin-dashboard) and/or raw requests (--target 3:/api/bookings/user/{user},
+ * with {user}, {bike} and {booking} filled with random ids up to
+ * --users/--bikes/--bookings, sent with the admin token). Scenarios act as
+ * customers: before the run the admin account lists the CUSTOMER users,
+ * --sessions of them log in with --user-password, and the bike catalog is read
+ * once for bike ids.
+ *
+ * Without --rate the model is closed: --concurrency workers each wait for their
+ * response before sending again. With --rate the model is open: arrivals come
+ * at that many per second (--arrival poisson or constant) whether or not the
+ * server keeps up, at most --concurrency are in flight, and latency counts from
+ * the scheduled arrival, so time queued behind a slow server is not hidden.
+ * Arrivals finding more than --max-backlog waiting are dropped and counted.
+ *
+ * Latencies from the warmup period are discarded. Every request started in the
+ * measured period counts, however late its response comes, and arrivals still
+ * unanswered a minute after the end are reported as unfinished, so an
+ * overloaded server cannot shed its slowest requests from the report. Each endpoint gets a
+ * log-linear histogram (see Histogram); the summary (throughput,
+ * p50/p90/p99/p99.9/max, status classes and error rate per endpoint) is printed
+ * and optionally written as a properties report; --compare a.properties
+ * b.properties prints two reports side by side. Runs on Java 17, so the client
+ * side is identical whichever thread mode the server uses.
+ */
+public class LoadTest {
+
+    private static final Pattern TARGET = Pattern.compile("(\\d+):(?:(GET|POST|PUT|DELETE) )?(/\\S*)");
+    private static final Pattern SCENARIO = Pattern.compile("([a-z-]+):(\\d+)");
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{(user|bike|booking)}");
+    private static final Pattern EMAIL = Pattern.compile("\"email\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern FIRST_ID = Pattern.compile("^\\{\"id\":(\\d+)");
+    // Bikes as written by BikeJsonSerializer: id first, then an optional owner object before the status
+    private static final Pattern BIKE = Pattern.compile(
+        "\\{\"id\":(\\d+),\"brand\"[^{}]*(?:\\{[^{}]*}[^{}]*?)?\"status\":\"(\\w+)\"");
+
+    private static final List<String> SCENARIOS =
+        List.of("browse", "view-bike", "login", "book", "cancel", "dashboard", "admin-dashboard");
+    private static final Set<String> CUSTOMER_SCENARIOS = Set.of("login", "book", "cancel", "dashboard");
+    private static final Set<String> BIKE_SCENARIOS = Set.of("view-bike", "book", "cancel");
+
+    // riders approximates a normal day; login-storm shows whether BCrypt-bound logins crowd out browsing
+    private static final Map<String, String> MIXES = Map.of(
+        "riders", "browse:10 view-bike:40 login:5 book:10 cancel:10 dashboard:20 admin-dashboard:5",
+        "login-storm", "login:70 browse:10 view-bike:20");
+
+    private static final int MAX_OPEN_BOOKINGS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, List<String>> options = parse(args);
+        if (options.containsKey("compare")) {
+            List<String> reports = options.get("compare");
+            compare(load(Path.of(reports.get(0))), load(Path.of(reports.get(1))));
+            return;
+        }
+
+        String baseUrl = single(options, "base-url", "http://localhost:8080");
+        int concurrency = Integer.parseInt(single(options, "concurrency", "100"));
+        long warmupSeconds = Long.parseLong(single(options, "warmup", "10"));
+        long durationSeconds = Long.parseLong(single(options, "duration", "60"));
+        double rate = Double.parseDouble(single(options, "rate", "0"));
+        boolean poisson = !"constant".equals(single(options, "arrival", "poisson"));
+        int maxBacklog = Integer.parseInt(single(options, "max-backlog", "10000"));
+        Map<String, Long> idRanges = Map.of(
+            "user", Long.parseLong(single(options, "users", "1000")),
+            "bike", Long.parseLong(single(options, "bikes", "100")),
+            "booking", Long.parseLong(single(options, "bookings", "1000")));
+        String label = single(options, "label", "run");
+
+        List<Action> actions = new ArrayList<>();
+        for (String spec : options.getOrDefault("target", List.of())) {
+            Matcher matcher = TARGET.matcher(spec);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("--target must look like 3:/api/path or 3:GET /api/path, got " + spec);
+            }
+            actions.add(Action.request(Integer.parseInt(matcher.group(1)),
+                matcher.group(2) != null ? matcher.group(2) : "GET", matcher.group(3)));
+        }
+        List<String> scenarioSpecs = new ArrayList<>(options.getOrDefault("scenario", List.of()));
+        if (options.containsKey("mix")) {
+            String mix = MIXES.get(single(options, "mix", ""));
+            if (mix == null) {
+                throw new IllegalArgumentException("--mix must be one of " + MIXES.keySet());
+            }
+            scenarioSpecs.addAll(List.of(mix.split(" ")));
+        }
+        for (String spec : scenarioSpecs) {
+            Matcher matcher = SCENARIO.matcher(spec);
+            if (!matcher.matches() || !SCENARIOS.contains(matcher.group(1))) {
+                throw new IllegalArgumentException("--scenario must look like browse:10 with one of " + SCENARIOS + ", got " + spec);
+            }
+            actions.add(Action.scenario(Integer.parseInt(matcher.group(2)), matcher.group(1)));
+        }
+        if (actions.isEmpty()) {
+            throw new IllegalArgumentException("At least one --target, --scenario or --mix is required");
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        String token = options.containsKey("email")
+            ? login(client, baseUrl, single(options, "email", null), single(options, "password", ""),
+                single(options, "role", "ADMIN"))
+            : null;
+        Run run = new Run(client, baseUrl, token, idRanges, single(options, "user-password", "password123"));
+        prepare(run, actions, Integer.parseInt(single(options, "sessions", "100")));
+
+        int totalWeight = actions.stream().mapToInt(action -> action.weight).sum();
+        long start = System.nanoTime();
+        run.measureFrom = start + Duration.ofSeconds(warmupSeconds).toNanos();
+        run.stopAt = run.measureFrom + Duration.ofSeconds(durationSeconds).toNanos();
+
+        if (rate > 0) {
+            System.out.printf(Locale.ROOT, "[%s] open model, %.1f arrivals/s (%s), at most %d in flight, %ds warmup + %ds against %s%n",
+                label, rate, poisson ? "poisson" : "constant", concurrency, warmupSeconds, durationSeconds, baseUrl);
+            runOpen(run, actions, totalWeight, rate, poisson, concurrency, maxBacklog, start);
+        } else {
+            System.out.printf(Locale.ROOT, "[%s] closed model, %d workers, %ds warmup + %ds against %s%n",
+                label, concurrency, warmupSeconds, durationSeconds, baseUrl);
+            runClosed(run, actions, totalWeight, concurrency);
+        }
+
+        Properties report = summarize(label, run, durationSeconds, concurrency, rate);
+        print(report);
+        if (options.containsKey("report")) {
+            Path file = Path.of(single(options, "report", null));
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                report.store(out, "LoadTest " + label);
+            }
+        }
+    }
+
+    // Each worker sends its next request only after the previous response
+    private static void runClosed(Run run, List<Action> actions, int totalWeight, int concurrency) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            long seed = 31L * w + 7;
+            Thread worker = new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                try {
+                    while (System.nanoTime() < run.stopAt) {
+                        perform(run, pick(actions, totalWeight, random.nextInt(totalWeight)), random, System.nanoTime());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + w);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+    }
+
+    // Arrivals follow the schedule whatever the responses do; latency starts at the scheduled time
+    private static void runOpen(Run run, List<Action> actions, int totalWeight, double rate, boolean poisson,
+                                int concurrency, int maxBacklog, long start) throws InterruptedException {
+        AtomicInteger threads = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "load-" + threads.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        SplittableRandom arrivals = new SplittableRandom(7);
+        double meanGapNanos = 1e9 / rate;
+        long next = start;
+        while (next < run.stopAt) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long scheduled = next;
+            if (pool.getQueue().size() >= maxBacklog) {
+                if (scheduled >= run.measureFrom) {
+                    run.dropped.incrementAndGet();
+                }
+            } else {
+                SplittableRandom random = arrivals.split();
+                Action action = pick(actions, totalWeight, random.nextInt(totalWeight));
+                pool.execute(() -> {
+                    try {
+                        perform(run, action, random, scheduled);
+                    } catch (InterruptedException e) {
+                        if (scheduled >= run.measureFrom) {
+                            run.unfinished.incrementAndGet();
+                        }
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            next += (long) (poisson ? -Math.log(1 - arrivals.nextDouble()) * meanGapNanos : meanGapNanos);
+        }
+        pool.shutdown();
+        if (!pool.awaitTermination(60, TimeUnit.SECONDS)) {
+            // Still queued: scheduled in the measured period, never sent
+            run.unfinished.addAndGet(pool.shutdownNow().size());
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    // Logs in the customer sessions and reads the bike catalog when the chosen scenarios need them
+    private static void prepare(Run run, List<Action> actions, int sessions) throws Exception {
+        boolean needsCustomers = actions.stream()
+            .anyMatch(action -> action.scenario != null && CUSTOMER_SCENARIOS.contains(action.scenario));
+        boolean needsBikes = actions.stream()
+            .anyMatch(action -> action.scenario != null && BIKE_SCENARIOS.contains(action.scenario));
+        boolean needsAdmin = needsCustomers || actions.stream()
+            .anyMatch(action -> action.scenario == null || "admin-dashboard".equals(action.scenario));
+        if (needsAdmin && run.adminToken == null) {
+            throw new IllegalArgumentException("These scenarios need --email and --password of an admin account");
+        }
+
+        if (needsCustomers) {
+            HttpResponse<String> users = run.client.send(HttpRequest.newBuilder(URI.create(run.baseUrl + "/api/users/role/CUSTOMER"))
+                    .header("Authorization", "Bearer " + run.adminToken)
+                    .timeout(Duration.ofMinutes(5))
+                    .build(),
+                HttpResponse.BodyHandlers.ofString());
+            List<String> emails = new ArrayList<>();
+            Matcher email = EMAIL.matcher(users.body());
+            while (email.find()) {
+                emails.add(email.group(1));
+            }
+            Collections.shuffle(emails, new Random(42));
+            for (String candidate : emails) {
+                if (run.sessions.size() >= sessions) {
+                    break;
+                }
+                try {
+                    run.sessions.add(new Session(candidate,
+                        login(run.client, run.baseUrl, candidate, run.userPassword, "CUSTOMER")));
+                } catch (IllegalStateException e) {
+                    // Deactivated, or seeded with another password; try the next one
+                }
+            }
+            if (run.sessions.isEmpty()) {
+                throw new IllegalStateException("None of " + emails.size() + " customers could log in with --user-password");
+            }
+            System.out.printf(Locale.ROOT, "%d customer sessions out of %d customers%n", run.sessions.size(), emails.size());
+        }
+
+        if (needsBikes) {
+            HttpResponse<String> bikes = run.client.send(HttpRequest.newBuilder(URI.create(run.baseUrl + "/api/bikes"))
+                    .timeout(Duration.ofMinutes(5))
+                    .build(),
+                HttpResponse.BodyHandlers.ofString());
+            List<Long> all = new ArrayList<>();
+            List<Long> available = new ArrayList<>();
+            Matcher bike = BIKE.matcher(bikes.body());
+            while (bike.find()) {
+                long id = Long.parseLong(bike.group(1));
+                all.add(id);
+                if ("AVAILABLE".equals(bike.group(2))) {
+                    available.add(id);
+                }
+            }
+            if (all.isEmpty()) {
+                throw new IllegalStateException("GET /api/bikes returned no bikes");
+            }
+            run.bikeIds = all.stream().mapToLong(Long::longValue).toArray();
+            run.availableBikeIds = available.isEmpty() ? run.bikeIds : available.stream().mapToLong(Long::longValue).toArray();
+            System.out.printf(Locale.ROOT, "%d bikes, %d available%n", all.size(), available.size());
+        }
+    }
+
+    private static void perform(Run run, Action action, SplittableRandom random, long start) throws InterruptedException {
+        if (action.scenario == null) {
+            run.call(action.method + " " + action.path, action.method, fill(action.path, run.idRanges, random), null,
+                run.adminToken, start, false);
+            return;
+        }
+        switch (action.scenario) {
+            case "browse" -> run.call("GET /api/bikes", "GET", "/api/bikes", null, null, start, false);
+            case "view-bike" -> run.call("GET /api/bikes/{id}", "GET", "/api/bikes/" + any(run.bikeIds, random),
+                null, null, start, false);
+            case "login" -> {
+                Session session = session(run, random);
+                String body = "{\"email\":\"" + session.email + "\",\"password\":\"" + run.userPassword
+                    + "\",\"role\":\"CUSTOMER\"}";
+                HttpResponse<?> response = run.call("POST /api/auth/login", "POST", "/api/auth/login", body, null, start, true);
+                Matcher token = response != null ? TOKEN.matcher((String) response.body()) : null;
+                if (token != null && response.statusCode() == 200 && token.find()) {
+                    session.token = token.group(1);
+                }
+            }
+            case "book" -> {
+                Long booking = book(run, random, start);
+                if (booking != null) {
+                    run.openBookings.add(booking);
+                    // Keeps the fleet from draining when cancel is weighted below book
+                    if (run.openBookings.size() > MAX_OPEN_BOOKINGS) {
+                        cancel(run, random, run.openBookings.poll(), System.nanoTime());
+                    }
+                }
+            }
+            case "cancel" -> {
+                Long booking = run.openBookings.poll();
+                long cancelStart = start;
+                if (booking == null) {
+                    booking = book(run, random, start);
+                    cancelStart = System.nanoTime();
+                }
+                if (booking != null) {
+                    cancel(run, random, booking, cancelStart);
+                }
+            }
+            case "dashboard" -> run.call("GET /api/dashboard/customer", "GET", "/api/dashboard/customer", null,
+                session(run, random).token, start, false);
+            case "admin-dashboard" -> run.call("GET /api/dashboard/admin", "GET", "/api/dashboard/admin", null,
+                run.adminToken, start, false);
+            default -> throw new IllegalStateException("Unknown scenario " + action.scenario);
+        }
+    }
+
+    // Books a random available bike as a random customer; a 4xx here is mostly a bike another rider just took
+    private static Long book(Run run, SplittableRandom random, long start) throws InterruptedException {
+        LocalDateTime pickup = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS)
+            .plusDays(1 + random.nextInt(30)).plusHours(6 + random.nextInt(14));
+        LocalDateTime dropoff = pickup.plusHours(1 + random.nextInt(48));
+        String body = String.format(Locale.ROOT,
+            "{\"bikeId\":%d,\"pickupDate\":\"%s\",\"dropoffDate\":\"%s\",\"pickupTime\":\"%02d:00\",\"dropTime\":\"%02d:00\"}",
+            any(run.availableBikeIds, random), pickup, dropoff, pickup.getHour(), dropoff.getHour());
+        HttpResponse<?> response = run.call("POST /api/bookings", "POST", "/api/bookings", body,
+            session(run, random).token, start, true);
+        if (response == null || response.statusCode() != 200) {
+            return null;
+        }
+        Matcher id = FIRST_ID.matcher((String) response.body());
+        return id.find() ? Long.valueOf(id.group(1)) : null;
+    }
+
+    private static void cancel(Run run, SplittableRandom random, long booking, long start) throws InterruptedException {
+        run.call("PUT /api/bookings/{id}/cancel", "PUT", "/api/bookings/" + booking + "/cancel", null,
+            session(run, random).token, start, false);
+    }
+
+    private static Session session(Run run, SplittableRandom random) {
+        return run.sessions.get(random.nextInt(run.sessions.size()));
+    }
+
+    private static long any(long[] ids, SplittableRandom random) {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    private static String login(HttpClient client, String baseUrl, String email, String password, String role) throws Exception {
+        String body = "{\"email\":\"" + email + "\",\"password\":\"" + password + "\",\"role\":\"" + role + "\"}";
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+        Matcher token = TOKEN.matcher(response.body());
+        if (response.statusCode() != 200 || !token.find()) {
+            throw new IllegalStateException("Login as " + email + " failed: " + response.statusCode() + " " + response.body());
+        }
+        return token.group(1);
+    }
+
+    private static Action pick(List<Action> actions, int totalWeight, int roll) {
+        for (Action action : actions) {
+            roll -= action.weight;
+            if (roll < 0) {
+                return action;
+            }
+        }
+        return actions.get(actions.size() - 1);
+    }
+
+    private static String fill(String path, Map<String, Long> idRanges, SplittableRandom random) {
+        Matcher matcher = PLACEHOLDER.matcher(path);
+        StringBuilder out = new StringBuilder();
+        while (matcher.find()) {
+            matcher.appendReplacement(out, Long.toString(1 + random.nextLong(Math.max(1, idRanges.get(matcher.group(1))))));
+        }
+        matcher.appendTail(out);
+        return out.toString();
+    }
+
+    private static Properties summarize(String label, Run run, long durationSeconds, int concurrency, double rate) {
+        Properties report = new Properties();
+        report.setProperty("label", label);
+        report.setProperty("model", rate > 0 ? "open" : "closed");
+        report.setProperty("rate", format(rate));
+        report.setProperty("concurrency", Integer.toString(concurrency));
+        report.setProperty("durationSeconds", Long.toString(durationSeconds));
+        report.setProperty("dropped", Long.toString(run.dropped.get()));
+        report.setProperty("unfinished", Long.toString(run.unfinished.get()));
+        Endpoint all = new Endpoint();
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<String, Endpoint> entry : new TreeMap<>(run.endpoints).entrySet()) {
+            names.add(entry.getKey());
+            describe(report, entry.getKey(), entry.getValue(), durationSeconds);
+            all.add(entry.getValue());
+        }
+        describe(report, "all", all, durationSeconds);
+        names.add("all");
+        report.setProperty("targets", String.join(",", names));
+        return report;
+    }
+
+    private static void describe(Properties report, String name, Endpoint endpoint, long durationSeconds) {
+        long requests = endpoint.latencies.count();
+        long errors = endpoint.statuses.get(0) + endpoint.statuses.get(4) + endpoint.statuses.get(5);
+        report.setProperty(name + ".requests", Long.toString(requests));
+        report.setProperty(name + ".rps", format(requests / (double) durationSeconds));
+        report.setProperty(name + ".p50Ms", format(endpoint.latencies.percentileMs(0.50)));
+        report.setProperty(name + ".p90Ms", format(endpoint.latencies.percentileMs(0.90)));
+        report.setProperty(name + ".p99Ms", format(endpoint.latencies.percentileMs(0.99)));
+        report.setProperty(name + ".p999Ms", format(endpoint.latencies.percentileMs(0.999)));
+        report.setProperty(name + ".maxMs", format(endpoint.latencies.maxMs()));
+        report.setProperty(name + ".2xx", Long.toString(endpoint.statuses.get(2)));
+        report.setProperty(name + ".4xx", Long.toString(endpoint.statuses.get(4)));
+        report.setProperty(name + ".5xx", Long.toString(endpoint.statuses.get(5)));
+        report.setProperty(name + ".failed", Long.toString(endpoint.statuses.get(0)));
+        report.setProperty(name + ".errorRate", String.format(Locale.ROOT, "%.4f", requests == 0 ? 0 : errors / (double) requests));
+    }
+
+    private static void print(Properties report) {
+        System.out.printf(Locale.ROOT, "%-34s %9s %9s %9s %9s %9s %9s %9s %7s %7s %7s %7s%n",
+            report.getProperty("label"), "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms",
+            "4xx", "5xx", "failed", "errors");
+        for (String name : report.getProperty("targets").split(",")) {
+            System.out.printf(Locale.ROOT, "%-34s %9s %9s %9s %9s %9s %9s %9s %7s %7s %7s %7s%n", name,
+                report.getProperty(name + ".requests"), report.getProperty(name + ".rps"),
+                report.getProperty(name + ".p50Ms"), report.getProperty(name + ".p90Ms"),
+                report.getProperty(name + ".p99Ms"), report.getProperty(name + ".p999Ms"),
+                report.getProperty(name + ".maxMs"), report.getProperty(name + ".4xx"),
+                report.getProperty(name + ".5xx"), report.getProperty(name + ".failed"),
+                percent(report.getProperty(name + ".errorRate")));
+        }
+        if (!"0".equals(report.getProperty("dropped"))) {
+            System.out.println("Arrivals dropped with a full backlog: " + report.getProperty("dropped"));
+        }
+        if (!"0".equals(report.getProperty("unfinished", "0"))) {
+            System.out.println("Arrivals never answered: " + report.getProperty("unfinished"));
+        }
+    }
+
+    private static void compare(Properties a, Properties b) {
+        String labelA = a.getProperty("label");
+        String labelB = b.getProperty("label");
+        System.out.printf(Locale.ROOT, "%-34s %12s %12s %8s | %12s %12s %8s | %9s %9s%n", "",
+            labelA + " req/s", labelB + " req/s", "change", labelA + " p99", labelB + " p99", "change",
+            labelA + " err", labelB + " err");
+        for (String name : a.getProperty("targets").split(",")) {
+            if (b.getProperty(name + ".rps") == null) {
+                continue;
+            }
+            double rpsA = Double.parseDouble(a.getProperty(name + ".rps"));
+            double rpsB = Double.parseDouble(b.getProperty(name + ".rps"));
+            double p99A = Double.parseDouble(a.getProperty(name + ".p99Ms"));
+            double p99B = Double.parseDouble(b.getProperty(name + ".p99Ms"));
+            System.out.printf(Locale.ROOT, "%-34s %12.1f %12.1f %7s | %12.1f %12.1f %7s | %9s %9s%n",
+                name, rpsA, rpsB, change(rpsA, rpsB), p99A, p99B, change(p99A, p99B),
+                percent(a.getProperty(name + ".errorRate")), percent(b.getProperty(name + ".errorRate")));
+        }
+    }
+
+    private static String change(double before, double after) {
+        return before == 0 ? "n/a" : String.format(Locale.ROOT, "%+.0f%%", (after - before) * 100 / before);
+    }
+
+    // Reports from before the error rate was recorded show n/a
+    private static String percent(String fraction) {
+        return fraction == null ? "n/a" : String.format(Locale.ROOT, "%.2f%%", Double.parseDouble(fraction) * 100);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static Properties load(Path file) throws IOException {
+        Properties report = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            report.load(in);
+        }
+        return report;
+    }
+
+    private static Map<String, List<String>> parse(String[] args) {
+        Map<String, List<String>> options = new LinkedHashMap<>();
+        String current = null;
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                current = arg.substring(2);
+                options.computeIfAbsent(current, key -> new ArrayList<>());
+            } else if (current != null) {
+                options.get(current).add(arg);
+            } else {
+                throw new IllegalArgumentException("Unexpected argument " + arg);
+            }
+        }
+        return options;
+    }
+
+    private static String single(Map<String, List<String>> options, String name, String fallback) {
+        List<String> values = options.get(name);
+        return values == null || values.isEmpty() ? fallback : values.get(values.size() - 1);
+    }
+
+    // Shared state of one run: the client, discovered ids and sessions, and the per-endpoint measurements
+    private static final class Run {
+
+        private final HttpClient client;
+        private final String baseUrl;
+        private final String adminToken;
+        private final Map<String, Long> idRanges;
+        private final String userPassword;
+        private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+        private final List<Session> sessions = new ArrayList<>();
+        private final ConcurrentLinkedQueue<Long> openBookings = new ConcurrentLinkedQueue<>();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong unfinished = new AtomicLong();
+        private long[] bikeIds = new long[0];
+        private long[] availableBikeIds = new long[0];
+        private volatile long measureFrom;
+        private volatile long stopAt;
+
+        Run(HttpClient client, String baseUrl, String adminToken, Map<String, Long> idRanges, String userPassword) {
+            this.client = client;
+            this.baseUrl = baseUrl;
+            this.adminToken = adminToken;
+            this.idRanges = idRanges;
+            this.userPassword = userPassword;
+        }
+
+        // Sends one request and records it under the endpoint name; null if the connection failed
+        HttpResponse<?> call(String endpoint, String method, String path, String body, String token, long start,
+                             boolean keepBody) throws InterruptedException {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(60))
+                .method(method, body != null ? HttpRequest.BodyPublishers.ofString(body) : HttpRequest.BodyPublishers.noBody());
+            if (body != null) {
+                request.header("Content-Type", "application/json");
+            }
+            if (token != null) {
+                request.header("Authorization", "Bearer " + token);
+            }
+            HttpResponse<?> response;
+            int status;
+            try {
+                response = keepBody
+                    ? client.send(request.build(), HttpResponse.BodyHandlers.ofString())
+                    : client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+                status = response.statusCode();
+            } catch (IOException e) {
+                response = null;
+                status = 0;
+            }
+            // Recorded by start time: dropping responses that arrive after stopAt would hide the slowest ones
+            if (start >= measureFrom) {
+                endpoints.computeIfAbsent(endpoint, name -> new Endpoint()).record(System.nanoTime() - start, status);
+            }
+            return response;
+        }
+    }
+
+    private static final class Session {
+
+        private final String email;
+        private volatile String token;
+
+        Session(String email, String token) {
+            this.email = email;
+            this.token = token;
+        }
+    }
+
+    // One weighted unit of work: a named scenario, or a raw request template
+    private static final class Action {
+
+        private final int weight;
+        private final String scenario;
+        private final String method;
+        private final String path;
+
+        private Action(int weight, String scenario, String method, String path) {
+            this.weight = weight;
+            this.scenario = scenario;
+            this.method = method;
+            this.path = path;
+        }
+
+        static Action scenario(int weight, String scenario) {
+            return new Action(weight, scenario, null, null);
+        }
+
+        static Action request(int weight, String method, String path) {
+            return new Action(weight, null, method, path);
+        }
+    }
+
+    // Latency histogram and status classes of one endpoint
+    private static final class Endpoint {
+
+        private final Histogram latencies = new Histogram();
+        private final AtomicLongArray statuses = new AtomicLongArray(6);
+
+        void record(long nanos, int status) {
+            latencies.record(nanos);
+            statuses.incrementAndGet(status / 100 < statuses.length() ? status / 100 : 5);
+        }
+
+        void add(Endpoint other) {
+            latencies.add(other.latencies);
+            for (int i = 0; i < statuses.length(); i++) {
+                statuses.addAndGet(i, other.statuses.get(i));
+            }
+        }
+    }
+
+    /**
+     * Log-linear latency histogram in microseconds, in the style of HdrHistogram
+     * with two significant digits. Values below 128 have a bucket each; above
+     * that, every power of two is split into 64 buckets, so a percentile is
+     * reported at most 1/64 above the true value at any magnitude. Recording is
+     * a lock-free increment and memory stays fixed (about 30 KB) however long
+     * the run, unlike keeping every sample.
+     */
+    private static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 7;
+        private static final int HALF = 1 << (SUB_BUCKET_BITS - 1);
+
+        private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * HALF + HALF);
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            counts.incrementAndGet(index(micros));
+            max.accumulateAndGet(micros, Math::max);
+        }
+
+        void add(Histogram other) {
+            for (int i = 0; i < counts.length(); i++) {
+                long count = other.counts.get(i);
+                if (count != 0) {
+                    counts.addAndGet(i, count);
+                }
+            }
+            max.accumulateAndGet(other.max.get(), Math::max);
+        }
+
+        long count() {
+            long total = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                total += counts.get(i);
+            }
+            return total;
+        }
+
+        double percentileMs(double quantile) {
+            long total = count();
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max.get()) / 1000.0;
+                }
+            }
+            return maxMs();
+        }
+
+        double maxMs() {
+            return max.get() / 1000.0;
+        }
+
+        private static int index(long micros) {
+            if (micros < 2 * HALF) {
+                return (int) micros;
+            }
+            int shift = 64 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+            return shift * HALF + (int) (micros >>> shift);
+        }
+
+        // Largest value that falls into the bucket
+        private static long highestValue(int index) {
+            if (index < 2 * HALF) {
+                return index;
+            }
+            int shift = index / HALF - 1;
+            long subBucket = index % HALF + HALF;
+            return ((subBucket + 1) << shift) - 1;
+        }
+    }
+}
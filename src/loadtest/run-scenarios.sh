@@ -0,0 +1,49 @@
+#!/usr/bin/env bash
+# Measures how much rider traffic one node carries: boots the application on an in-memory H2 database filled by
+# DataGenerator, then drives it with a LoadTest scenario mix at a fixed open-model arrival rate.
+#
+# Usage: src/loadtest/run-scenarios.sh [mix] [arrivals-per-second] [duration-seconds]
+#   mix is riders (browse, view bike, log in, book, cancel, dashboards) or login-storm (see LoadTest.MIXES).
+#   Dataset size and client limits come from the environment: USERS, BIKES, BOOKINGS, SEED, CONCURRENCY, PORT.
+# Step the rate up across runs and compare the reports (LoadTest --compare) to find where p99 or the error rate
+# breaks away; the server log is kept next to the report.
+set -euo pipefail
+
+cd "$(dirname "$0")/../.."
+MIX="${1:-riders}"
+RATE="${2:-200}"
+DURATION="${3:-60}"
+PORT="${PORT:-8080}"
+OUT=target/loadtest
+LOADTEST=src/loadtest/java/com/spingo/bikerental/loadtest/LoadTest.java
+LABEL="$MIX-$RATE"
+mkdir -p "$OUT"
+
+mvn -B -q -DskipTests -Dassets.skip=true package
+JAR=$(ls target/bike-rental-backend-*-exec.jar | head -1)
+
+# Rate limits would measure the limiter; archival would move bookings mid-run, and the image cache stays out of ./data
+java -jar "$JAR" --spring.profiles.active=datagen --generate-data \
+    --datagen.users="${USERS:-50000}" --datagen.bikes="${BIKES:-5000}" --datagen.bookings="${BOOKINGS:-200000}" \
+    --datagen.seed="${SEED:-42}" \
+    --spring.datasource.url="jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1" \
+    --server.port="$PORT" --rate-limit.enabled=false \
+    --changelog.enabled=false --booking-archive.enabled=false --utilization.restore-from-snapshot=false \
+    --images.cache.dir="$OUT/image-cache" \
+    --logging.level.com.spingo.bikerental=INFO --logging.level.org.springframework.security=WARN \
+    > "$OUT/$LABEL-server.log" 2>&1 &
+pid=$!
+trap "kill $pid 2>/dev/null || true" EXIT
+
+# The web server is up before DataGenerator runs; wait for the data as well
+for _ in $(seq 1 600); do
+    grep -q "Generated .* users" "$OUT/$LABEL-server.log" && break
+    kill -0 "$pid" 2>/dev/null || { echo "Server exited, see $OUT/$LABEL-server.log" >&2; exit 1; }
+    sleep 1
+done
+
+java "$LOADTEST" --base-url "http://localhost:$PORT" \
+    --email admin@spingo.com --password admin123 \
+    --mix "$MIX" --rate "$RATE" --concurrency "${CONCURRENCY:-500}" \
+    --warmup 15 --duration "$DURATION" \
+    --label "$LABEL" --report "$OUT/$LABEL.properties"
@@ -0,0 +1,131 @@
+package com.spingo.bikerental;
+
+import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Read-only view of a booking moved to bookings_archive by BookingArchiveService
+@Entity
+@Immutable
+@Table(name = "bookings_archive")
+@NamedEntityGraph(name = ArchivedBooking.WITH_BIKE_AND_USER, attributeNodes = {
+    @NamedAttributeNode("bike"),
+    @NamedAttributeNode("user")
+})
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class ArchivedBooking {
+
+    public static final String WITH_BIKE_AND_USER = "ArchivedBooking.withBikeAndUser";
+
+    // Keeps the id it had in bookings
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "bike_id", nullable = false)
+    private Bike bike;
+
+    @Column(name = "pickup_date")
+    private LocalDateTime pickupDate;
+
+    @Column(name = "dropoff_date")
+    private LocalDateTime dropoffDate;
+
+    @Column(name = "pickup_time")
+    private String pickupTime;
+
+    @Column(name = "drop_time")
+    private String dropTime;
+
+    @Column(name = "actual_pickup_date")
+    private LocalDateTime actualPickupDate;
+
+    @Column(name = "actual_dropoff_date")
+    private LocalDateTime actualDropoffDate;
+
+    @Column(name = "total_price", precision = 10, scale = 2)
+    private BigDecimal totalPrice;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private BookingStatus status;
+
+    @Column(name = "notes")
+    private String notes;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "archived_at")
+    private LocalDateTime archivedAt;
+
+    protected ArchivedBooking() {
+    }
+
+    // Detached Booking with the same values, so archived rows serialize like live ones
+    public Booking toBooking() {
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setUser(user);
+        booking.setBike(bike);
+        booking.setPickupDate(pickupDate);
+        booking.setDropoffDate(dropoffDate);
+        booking.setPickupTime(pickupTime);
+        booking.setDropTime(dropTime);
+        booking.setActualPickupDate(actualPickupDate);
+        booking.setActualDropoffDate(actualDropoffDate);
+        booking.setTotalPrice(totalPrice);
+        booking.setStatus(status);
+        booking.setNotes(notes);
+        booking.setCreatedAt(createdAt);
+        booking.setUpdatedAt(updatedAt);
+        return booking;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Bike getBike() {
+        return bike;
+    }
+
+    public LocalDateTime getPickupDate() {
+        return pickupDate;
+    }
+
+    public LocalDateTime getDropoffDate() {
+        return dropoffDate;
+    }
+
+    public BookingStatus getStatus() {
+        return status;
+    }
+
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+}
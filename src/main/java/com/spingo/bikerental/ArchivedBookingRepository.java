@@ -0,0 +1,44 @@
+package com.spingo.bikerental;
+
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Archived bookings are never modified, so every query can be served by the replica
+@Repository
+@Transactional(readOnly = true)
+public interface ArchivedBookingRepository extends JpaRepository<ArchivedBooking, Long> {
+
+    @EntityGraph(ArchivedBooking.WITH_BIKE_AND_USER)
+    List<ArchivedBooking> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    @EntityGraph(ArchivedBooking.WITH_BIKE_AND_USER)
+    List<ArchivedBooking> findByBikeId(Long bikeId);
+
+    @EntityGraph(ArchivedBooking.WITH_BIKE_AND_USER)
+    List<ArchivedBooking> findByStatus(BookingStatus status);
+
+    long countByStatus(BookingStatus status);
+
+    long countByUserId(Long userId);
+
+    long countByBikeOwnerIdAndBikeIsActiveTrue(Long ownerId);
+
+    @Query("SELECT COALESCE(SUM(b.totalPrice), 0) FROM ArchivedBooking b WHERE b.status = :status")
+    BigDecimal sumTotalPriceByStatus(@Param("status") BookingStatus status);
+
+    @Query("SELECT COALESCE(SUM(b.totalPrice), 0) FROM ArchivedBooking b WHERE b.user.id = :userId AND b.status = :status")
+    BigDecimal sumTotalPriceByUserIdAndStatus(@Param("userId") Long userId,
+                                              @Param("status") BookingStatus status);
+
+    @Query("SELECT COALESCE(SUM(b.totalPrice), 0) FROM ArchivedBooking b " +
+           "WHERE b.bike.owner.id = :ownerId AND b.bike.isActive = true AND b.status = :status")
+    BigDecimal sumTotalPriceForActiveBikesOfOwner(@Param("ownerId") Long ownerId,
+                                                  @Param("status") BookingStatus status);
+}
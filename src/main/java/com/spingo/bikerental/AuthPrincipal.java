@@ -0,0 +1,78 @@
+package com.spingo.bikerental;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.Collection;
+import java.util.List;
+
+// Lightweight authenticated principal; built from JWT claims or from a loaded User
+public class AuthPrincipal implements Principal {
+    
+    // Request attribute under which JwtAuthenticationFilter stores the verified principal
+    public static final String REQUEST_ATTRIBUTE = AuthPrincipal.class.getName();
+    
+    private final Long id;
+    private final String email;
+    private final UserRole role;
+    private final String displayName;
+    
+    public AuthPrincipal(Long id, String email, UserRole role, String displayName) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+        this.displayName = displayName;
+    }
+    
+    public static AuthPrincipal fromUser(User user) {
+        return new AuthPrincipal(user.getId(), user.getEmail(), user.getRole(), user.getName());
+    }
+    
+    // Returns null if the token was not minted by JwtUtil.generateToken(User)
+    public static AuthPrincipal fromClaims(Claims claims) {
+        Object userId = claims.get("userId");
+        Object role = claims.get("role");
+        if (!(userId instanceof Number) || role == null || claims.getSubject() == null) {
+            return null;
+        }
+        try {
+            return new AuthPrincipal(((Number) userId).longValue(), claims.getSubject(),
+                UserRole.valueOf(role.toString()), claims.get("name", String.class));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+    
+    // Principal name is the login email, matching User.getUsername()
+    @Override
+    public String getName() {
+        return email;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public UserRole getRole() {
+        return role;
+    }
+    
+    public String getDisplayName() {
+        return displayName;
+    }
+    
+    @Override
+    public String toString() {
+        return "AuthPrincipal{id=" + id + ", email=" + email + ", role=" + role + "}";
+    }
+}
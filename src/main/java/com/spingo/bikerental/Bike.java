@@ -6,17 +6,29 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "bikes")
+@NamedEntityGraph(name = Bike.WITH_OWNER, attributeNodes = @NamedAttributeNode("owner"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "bikes")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Bike {
     
+    // Repository methods whose results are serialized with the owner attached
+    public static final String WITH_OWNER = "Bike.withOwner";
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "bike_id")
+    @GenericGenerator(name = "bike_id", type = PooledIdGenerator.class,
+        parameters = @Parameter(name = "sequence_name", value = "bikes_seq"))
     private Long id;
     
     @NotBlank
@@ -29,8 +41,9 @@ public class Bike {
     @Column(name = "model")
     private String model;
     
+    // Quoted, as in V1: a reserved word on H2
     @NotNull
-    @Column(name = "year")
+    @Column(name = "`year`")
     private Integer year;
     
     @Enumerated(EnumType.STRING)
@@ -54,7 +67,7 @@ public class Bike {
     @Column(name = "price_per_month", precision = 10, scale = 2)
     private BigDecimal pricePerMonth;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id")
     private User owner;
     
@@ -79,6 +92,11 @@ public class Bike {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Optimistic lock: an update from a stale copy fails instead of overwriting
+    @Version
+    @Column(name = "version")
+    private Long version;
+    
     // Constructors
     public Bike() {
         this.createdAt = LocalDateTime.now();
@@ -232,6 +250,10 @@ public class Bike {
         this.updatedAt = updatedAt;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
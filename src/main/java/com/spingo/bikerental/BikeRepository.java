@@ -4,36 +4,85 @@ import com.spingo.bikerental.Bike;
 import com.spingo.bikerental.BikeStatus;
 import com.spingo.bikerental.BikeType;
 import com.spingo.bikerental.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+// Queries run read-only and are routed to the replica; saves keep SimpleJpaRepository's read-write transactions.
+// Catalog lists fetch the owner they serialize in the same query instead of one select per owner.
 @Repository
+@Transactional(readOnly = true)
 public interface BikeRepository extends JpaRepository<Bike, Long> {
     
+    // Single-bike responses (and bookings created from them) serialize the owner too
+    @EntityGraph(Bike.WITH_OWNER)
+    @Override
+    Optional<Bike> findById(Long id);
+    
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+        @QueryHint(name = "org.hibernate.cacheRegion", value = "bike-queries")
+    })
+    @EntityGraph(Bike.WITH_OWNER)
     List<Bike> findByIsActiveTrue();
     
+    // Cursor over the catalog for JsonArrayStreamer; must be consumed inside a transaction and closed
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @EntityGraph(Bike.WITH_OWNER)
+    Stream<Bike> streamByIsActiveTrue();
+    
+    @EntityGraph(Bike.WITH_OWNER)
     List<Bike> findByStatus(BikeStatus status);
     
+    @EntityGraph(Bike.WITH_OWNER)
     List<Bike> findByType(BikeType type);
     
+    @EntityGraph(Bike.WITH_OWNER)
     List<Bike> findByCity(String city);
     
+    @EntityGraph(Bike.WITH_OWNER)
     List<Bike> findByBrand(String brand);
     
+    @EntityGraph(Bike.WITH_OWNER)
     List<Bike> findByIsActiveTrueAndStatus(BikeStatus status);
     
+    @EntityGraph(Bike.WITH_OWNER)
     List<Bike> findByIsActiveTrueAndCity(String city);
     
+    @EntityGraph(Bike.WITH_OWNER)
     List<Bike> findByIsActiveTrueAndType(BikeType type);
     
+    @EntityGraph(Bike.WITH_OWNER)
     List<Bike> findByOwner(User owner);
     
+    @EntityGraph(Bike.WITH_OWNER)
     List<Bike> findByOwnerAndIsActiveTrue(User owner);
     
+    @EntityGraph(Bike.WITH_OWNER)
+    List<Bike> findByOwnerIdAndIsActiveTrue(Long ownerId);
+    
+    long countByStatus(BikeStatus status);
+
+    long countByIsActiveTrue();
+    
+    // Results are kept in the query cache; any write to bikes invalidates them
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+        @QueryHint(name = "org.hibernate.cacheRegion", value = "bike-queries")
+    })
+    @EntityGraph(Bike.WITH_OWNER)
     @Query("SELECT b FROM Bike b WHERE b.isActive = true AND " +
            "(:city IS NULL OR b.city = :city) AND " +
            "(:type IS NULL OR b.type = :type) AND " +
@@ -44,6 +93,11 @@ public interface BikeRepository extends JpaRepository<Bike, Long> {
                                    @Param("brand") String brand,
                                    @Param("status") BikeStatus status);
     
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+        @QueryHint(name = "org.hibernate.cacheRegion", value = "bike-queries")
+    })
+    @EntityGraph(Bike.WITH_OWNER)
     @Query("SELECT b FROM Bike b WHERE b.isActive = true AND " +
            "(:city IS NULL OR b.city = :city) AND " +
            "(:type IS NULL OR b.type = :type) AND " +
@@ -5,24 +5,35 @@ import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "bookings")
+@NamedEntityGraph(name = Booking.WITH_BIKE_AND_USER, attributeNodes = {
+    @NamedAttributeNode("bike"),
+    @NamedAttributeNode("user")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Booking {
     
+    // Booking views show the bike and the customer; the bike's owner stays a lazy reference
+    public static final String WITH_BIKE_AND_USER = "Booking.withBikeAndUser";
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "booking_id")
+    @GenericGenerator(name = "booking_id", type = PooledIdGenerator.class,
+        parameters = @Parameter(name = "sequence_name", value = "bookings_seq"))
     private Long id;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "bike_id", nullable = false)
     private Bike bike;
     
@@ -66,6 +77,11 @@ public class Booking {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
     
+    // Optimistic lock: an update from a stale copy fails instead of overwriting
+    @Version
+    @Column(name = "version")
+    private Long version;
+    
     // Constructors
     public Booking() {
         this.createdAt = LocalDateTime.now();
@@ -195,6 +211,10 @@ public class Booking {
         this.updatedAt = updatedAt;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
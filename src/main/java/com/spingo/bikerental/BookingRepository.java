@@ -4,31 +4,86 @@ import com.spingo.bikerental.Booking;
 import com.spingo.bikerental.BookingStatus;
 import com.spingo.bikerental.User;
 import com.spingo.bikerental.Bike;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+// Queries run read-only and are routed to the replica, except where a write decision depends on the answer.
+// Methods backing booking views fetch bike and user with the booking; dashboard figures are aggregated in SQL.
 @Repository
+@Transactional(readOnly = true)
 public interface BookingRepository extends JpaRepository<Booking, Long> {
     
+    @EntityGraph(Booking.WITH_BIKE_AND_USER)
+    @Override
+    List<Booking> findAll();
+    
+    @EntityGraph(Booking.WITH_BIKE_AND_USER)
+    @Override
+    Optional<Booking> findById(Long id);
+    
+    @EntityGraph(Booking.WITH_BIKE_AND_USER)
     List<Booking> findByUser(User user);
     
+    @EntityGraph(Booking.WITH_BIKE_AND_USER)
     List<Booking> findByUserOrderByCreatedAtDesc(User user);
     
+    @EntityGraph(Booking.WITH_BIKE_AND_USER)
     List<Booking> findByStatus(BookingStatus status);
     
+    @EntityGraph(Booking.WITH_BIKE_AND_USER)
     List<Booking> findByUserId(Long userId);
     
+    // Cursors for JsonArrayStreamer; must be consumed inside a transaction and closed
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @EntityGraph(Booking.WITH_BIKE_AND_USER)
+    Stream<Booking> streamAllBy();
+    
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @EntityGraph(Booking.WITH_BIKE_AND_USER)
+    Stream<Booking> streamByStatus(BookingStatus status);
+    
+    @EntityGraph(Booking.WITH_BIKE_AND_USER)
     List<Booking> findByBikeId(Long bikeId);
     
+    @EntityGraph(Booking.WITH_BIKE_AND_USER)
     @Query("SELECT b FROM Booking b WHERE b.pickupDate BETWEEN :startDate AND :endDate")
     List<Booking> findBookingsByDateRange(@Param("startDate") LocalDateTime startDate,
                                          @Param("endDate") LocalDateTime endDate);
     
+    long countByStatus(BookingStatus status);
+    
+    long countByBikeOwnerIdAndBikeIsActiveTrue(Long ownerId);
+    
+    long countByBikeOwnerIdAndBikeIsActiveTrueAndStatus(Long ownerId, BookingStatus status);
+    
+    @Query("SELECT COALESCE(SUM(b.totalPrice), 0) FROM Booking b WHERE b.status = :status")
+    BigDecimal sumTotalPriceByStatus(@Param("status") BookingStatus status);
+    
+    @Query("SELECT COALESCE(SUM(b.totalPrice), 0) FROM Booking b " +
+           "WHERE b.bike.owner.id = :ownerId AND b.bike.isActive = true AND b.status = :status")
+    BigDecimal sumTotalPriceForActiveBikesOfOwner(@Param("ownerId") Long ownerId,
+                                                  @Param("status") BookingStatus status);
+    
+    // Guards new bookings, so it must see the latest commits: primary only
+    @Transactional
     @Query("SELECT b FROM Booking b WHERE b.bike.id = :bikeId AND " +
            "((b.pickupDate <= :endDate AND b.dropoffDate >= :startDate) OR " +
            "(b.actualPickupDate <= :endDate AND b.actualDropoffDate >= :startDate)) AND " +
@@ -36,4 +91,30 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     List<Booking> findConflictingBookings(@Param("bikeId") Long bikeId,
                                          @Param("startDate") LocalDateTime startDate,
                                          @Param("endDate") LocalDateTime endDate);
+    
+    // [bikeId, occupiedFrom, occupiedUntil] rows for the utilization bitsets; actual dates win over planned ones
+    @Query("SELECT b.bike.id, COALESCE(b.actualPickupDate, b.pickupDate), COALESCE(b.actualDropoffDate, b.dropoffDate) " +
+           "FROM Booking b WHERE b.status <> com.spingo.bikerental.BookingStatus.CANCELLED AND " +
+           "COALESCE(b.actualPickupDate, b.pickupDate) < :endDate AND " +
+           "COALESCE(b.actualDropoffDate, b.dropoffDate) > :startDate")
+    List<Object[]> findOccupancyRows(@Param("startDate") LocalDateTime startDate,
+                                     @Param("endDate") LocalDateTime endDate);
+    
+    // Same rows, limited to the active bikes the index tracks; checks a restored utilization snapshot
+    @Query("SELECT COUNT(b) FROM Booking b WHERE b.bike.isActive = true AND " +
+           "b.status <> com.spingo.bikerental.BookingStatus.CANCELLED AND " +
+           "COALESCE(b.actualPickupDate, b.pickupDate) < :endDate AND " +
+           "COALESCE(b.actualDropoffDate, b.dropoffDate) > :startDate")
+    long countOccupancyRows(@Param("startDate") LocalDateTime startDate,
+                            @Param("endDate") LocalDateTime endDate);
+    
+    // Recomputed right after a booking change, so read from the primary
+    @Transactional
+    @Query("SELECT b.bike.id, COALESCE(b.actualPickupDate, b.pickupDate), COALESCE(b.actualDropoffDate, b.dropoffDate) " +
+           "FROM Booking b WHERE b.bike.id = :bikeId AND b.status <> com.spingo.bikerental.BookingStatus.CANCELLED AND " +
+           "COALESCE(b.actualPickupDate, b.pickupDate) < :endDate AND " +
+           "COALESCE(b.actualDropoffDate, b.dropoffDate) > :startDate")
+    List<Object[]> findOccupancyRowsForBike(@Param("bikeId") Long bikeId,
+                                            @Param("startDate") LocalDateTime startDate,
+                                            @Param("endDate") LocalDateTime endDate);
 }
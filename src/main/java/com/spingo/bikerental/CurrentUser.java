@@ -0,0 +1,17 @@
+package com.spingo.bikerental;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injects the AuthPrincipal verified by JwtAuthenticationFilter into a controller
+ * method parameter. Resolves to null for unauthenticated requests.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
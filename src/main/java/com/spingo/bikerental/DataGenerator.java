@@ -0,0 +1,445 @@
+package com.spingo.bikerental;
+
+import com.spingo.bikerental.config.IdSequenceAligner;
+import com.spingo.bikerental.service.UtilizationIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Synthetic production-scale data for reproducing performance problems locally.
+ *
+ * Active in the datagen profile and only when started with --generate-data, e.g.
+ * --spring.profiles.active=datagen --generate-data --datagen.bookings=10000000.
+ * Rows are generated in chunks on a thread pool and written with JDBC batch inserts,
+ * one transaction per chunk, bypassing JPA. Every row is a pure function of datagen.seed
+ * and its index, so the same settings always give the same data whatever the thread
+ * scheduling, and later phases can look up a user's role or a bike's price without keeping
+ * the earlier rows in memory. Id ranges are reserved from the pooled sequences up front, so
+ * the running application never hands out a generated id. All fake users share one BCrypt
+ * hash of datagen.password.
+ */
+@Component
+@Profile("datagen")
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class DataGenerator implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataGenerator.class);
+
+    public static final String GENERATE_FLAG = "generate-data";
+
+    private static final long USER_SALT = 0x5553455253L;
+    private static final long BIKE_SALT = 0x42494b4553L;
+    private static final long BOOKING_SALT = 0x424f4f4bL;
+
+    // Rough shape of the production data: big metros dominate, commuter bikes outnumber superbikes
+    private static final String[] CITIES = {
+        "Mumbai", "Delhi", "Bangalore", "Hyderabad", "Chennai", "Pune", "Kolkata", "Ahmedabad", "Jaipur"
+    };
+    private static final double[] CITY_WEIGHTS = {20, 18, 16, 10, 10, 9, 8, 5, 4};
+
+    private static final Model[] MODELS = {
+        new Model("Honda", "Activa 6G", BikeType.STANDARD, 60, 14),
+        new Model("Honda", "Shine", BikeType.STANDARD, 70, 8),
+        new Model("Honda", "CB350", BikeType.CRUISER, 180, 3),
+        new Model("Honda", "CBR650R", BikeType.SPORT, 550, 1),
+        new Model("Hero", "Splendor Plus", BikeType.STANDARD, 50, 14),
+        new Model("Hero", "Xpulse 200", BikeType.TOURING, 150, 3),
+        new Model("Bajaj", "Pulsar 150", BikeType.STANDARD, 80, 9),
+        new Model("Bajaj", "Dominar 400", BikeType.TOURING, 250, 2),
+        new Model("TVS", "Jupiter", BikeType.STANDARD, 55, 10),
+        new Model("TVS", "Apache RTR 160", BikeType.SPORT, 120, 6),
+        new Model("Royal Enfield", "Classic 350", BikeType.CRUISER, 200, 9),
+        new Model("Royal Enfield", "Himalayan", BikeType.TOURING, 260, 4),
+        new Model("Royal Enfield", "Meteor 350", BikeType.CRUISER, 220, 3),
+        new Model("Yamaha", "FZ-S", BikeType.STANDARD, 90, 6),
+        new Model("Yamaha", "R15", BikeType.SPORT, 150, 4),
+        new Model("Yamaha", "R1", BikeType.SPORT, 600, 1),
+        new Model("KTM", "Duke 390", BikeType.SPORT, 280, 3),
+        new Model("Kawasaki", "Ninja 650", BikeType.SPORT, 550, 1),
+        new Model("BMW", "G 310 GS", BikeType.TOURING, 350, 1)
+    };
+    private static final double[] MODEL_WEIGHTS = weightsOf(MODELS);
+
+    private static final UserRole[] ROLES = {
+        UserRole.CUSTOMER, UserRole.INDIVIDUAL_OWNER, UserRole.RENTAL_BUSINESS, UserRole.DELIVERY_PARTNER
+    };
+    private static final double[] ROLE_WEIGHTS = {90, 5, 1, 4};
+
+    // Pickups cluster around the morning and evening commute
+    private static final double[] PICKUP_HOUR_WEIGHTS = {
+        0.2, 0.1, 0.1, 0.1, 0.2, 0.5, 1.5, 4, 7, 8, 6, 4, 3, 3, 3, 3.5, 4.5, 6.5, 7, 5, 3, 2, 1, 0.5
+    };
+
+    private static final String[] FIRST_NAMES = {
+        "Aarav", "Vivaan", "Aditya", "Arjun", "Sai", "Rohan", "Ishaan", "Kabir", "Ananya", "Diya",
+        "Saanvi", "Aadhya", "Priya", "Kavya", "Meera", "Riya", "Rahul", "Neha", "Vikram", "Pooja"
+    };
+    private static final String[] LAST_NAMES = {
+        "Sharma", "Verma", "Patel", "Iyer", "Reddy", "Nair", "Gupta", "Singh", "Kumar", "Das",
+        "Mehta", "Joshi", "Rao", "Chopra", "Banerjee", "Menon", "Kulkarni", "Pillai", "Shah", "Bose"
+    };
+
+    private static final String USER_INSERT = "INSERT INTO users (id, name, email, phone, password, role, address, "
+        + "is_active, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String BIKE_INSERT = "INSERT INTO bikes (id, brand, model, `year`, type, city, price_per_hour, "
+        + "price_per_day, price_per_month, owner_id, description, status, image_url, is_active, created_at, updated_at) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String BOOKING_INSERT = "INSERT INTO bookings (id, user_id, bike_id, pickup_date, dropoff_date, "
+        + "pickup_time, drop_time, actual_pickup_date, actual_dropoff_date, total_price, status, notes, created_at, "
+        + "updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private IdSequenceAligner idSequenceAligner;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UtilizationIndex utilizationIndex;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${datagen.users:1000000}")
+    private long userCount;
+
+    @Value("${datagen.bikes:100000}")
+    private long bikeCount;
+
+    @Value("${datagen.bookings:5000000}")
+    private long bookingCount;
+
+    @Value("${datagen.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${datagen.threads:0}")
+    private int threads;
+
+    @Value("${datagen.seed:42}")
+    private long seed;
+
+    @Value("${datagen.history-days:730}")
+    private int historyDays;
+
+    @Value("${datagen.password:password123}")
+    private String password;
+
+    @Value("${datagen.exit-when-done:false}")
+    private boolean exitWhenDone;
+
+    // Reference point for all generated timestamps
+    private LocalDateTime now;
+
+    private String passwordHash;
+
+    private long firstUserId;
+
+    private long firstBikeId;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption(GENERATE_FLAG)) {
+            logger.info("datagen profile active; start with --{} to generate data", GENERATE_FLAG);
+            return;
+        }
+        if (bookingCount > 0 && (userCount == 0 || bikeCount == 0)) {
+            throw new IllegalArgumentException("datagen.bookings needs datagen.users and datagen.bikes above zero");
+        }
+
+        now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        // BCrypt is deliberately slow; hashing once instead of per user saves hours at this scale
+        passwordHash = passwordEncoder.encode(password);
+        int poolSize = threads > 0 ? threads : Math.min(Runtime.getRuntime().availableProcessors(), 8);
+
+        long started = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "datagen");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // Phases run in foreign-key order; chunks within a phase run in parallel
+            firstUserId = idSequenceAligner.reserve("users", userCount);
+            generate(executor, "users", USER_INSERT, userCount, this::userRow);
+            firstBikeId = idSequenceAligner.reserve("bikes", bikeCount);
+            generate(executor, "bikes", BIKE_INSERT, bikeCount, this::bikeRow);
+            long firstBookingId = idSequenceAligner.reserve("bookings", bookingCount);
+            generate(executor, "bookings", BOOKING_INSERT, bookingCount, index -> bookingRow(firstBookingId, index));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // These rows never went through the change log, so the utilization snapshot is stale
+        utilizationIndex.discardSnapshot();
+        logger.info("Generated {} users, {} bikes and {} bookings in {} s with {} threads",
+            userCount, bikeCount, bookingCount, (System.nanoTime() - started) / 1_000_000_000, poolSize);
+
+        if (exitWhenDone) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+
+    private void generate(ExecutorService executor, String table, String sql, long count,
+                          LongFunction<Object[]> rowFactory) throws InterruptedException, ExecutionException {
+        if (count <= 0) {
+            return;
+        }
+        long started = System.nanoTime();
+        AtomicLong written = new AtomicLong();
+        long logEvery = Math.max(count / 20, batchSize);
+        List<Future<?>> chunks = new ArrayList<>();
+        for (long from = 0; from < count; from += batchSize) {
+            long chunkStart = from;
+            long chunkEnd = Math.min(count, from + batchSize);
+            chunks.add(executor.submit(() -> {
+                List<Object[]> rows = new ArrayList<>((int) (chunkEnd - chunkStart));
+                for (long index = chunkStart; index < chunkEnd; index++) {
+                    rows.add(rowFactory.apply(index));
+                }
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sql, rows));
+                long total = written.addAndGet(rows.size());
+                if (total / logEvery != (total - rows.size()) / logEvery) {
+                    logger.info("{}: {} / {} rows", table, total, count);
+                }
+            }));
+        }
+        for (Future<?> chunk : chunks) {
+            chunk.get();
+        }
+        double seconds = Math.max((System.nanoTime() - started) / 1e9, 0.001);
+        logger.info("{}: {} rows in {} s ({} rows/s)", table, count, Math.round(seconds), Math.round(count / seconds));
+    }
+
+    private Object[] userRow(long index) {
+        SplittableRandom random = random(USER_SALT, index);
+        long id = firstUserId + index;
+        UserRole role = roleOf(index);
+        String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        String city = CITIES[pick(random, CITY_WEIGHTS)];
+        LocalDateTime createdAt = pastTimestamp(random);
+        return new Object[] {
+            id,
+            role == UserRole.RENTAL_BUSINESS ? last + " " + city + " Rentals" : first + " " + last,
+            "user" + id + "@datagen.spingo.test",
+            String.format("9%09d", id % 1_000_000_000L),
+            passwordHash,
+            role.name(),
+            (1 + random.nextInt(999)) + " Main Road, " + city,
+            random.nextDouble() < 0.98,
+            createdAt,
+            createdAt
+        };
+    }
+
+    private Object[] bikeRow(long index) {
+        SplittableRandom random = random(BIKE_SALT, index);
+        BikeSpec bike = bikeSpec(index);
+        Long ownerId = pickUser(random, random.nextDouble() < 0.6 ? UserRole.RENTAL_BUSINESS : UserRole.INDIVIDUAL_OWNER);
+        double status = random.nextDouble();
+        LocalDateTime createdAt = pastTimestamp(random);
+        return new Object[] {
+            firstBikeId + index,
+            bike.model.brand,
+            bike.model.model,
+            2015 + random.nextInt(10),
+            bike.model.type.name(),
+            bike.city,
+            bike.pricePerHour,
+            bike.pricePerHour.multiply(BigDecimal.valueOf(6)),
+            bike.pricePerHour.multiply(BigDecimal.valueOf(120)),
+            ownerId,
+            bike.model.brand + " " + bike.model.model + " available in " + bike.city,
+            (status < 0.92 ? BikeStatus.AVAILABLE : status < 0.96 ? BikeStatus.MAINTENANCE
+                : status < 0.98 ? BikeStatus.OUT_OF_SERVICE : BikeStatus.BOOKED).name(),
+            null,
+            random.nextDouble() < 0.97,
+            createdAt,
+            createdAt
+        };
+    }
+
+    private Object[] bookingRow(long firstBookingId, long index) {
+        SplittableRandom random = random(BOOKING_SALT, index);
+        // Popularity is skewed: a minority of bikes gets most of the bookings
+        long bikeIndex = (long) (bikeCount * Math.pow(random.nextDouble(), 2.5));
+        BikeSpec bike = bikeSpec(bikeIndex);
+        Long userId = pickUser(random, UserRole.CUSTOMER);
+
+        LocalDateTime createdAt = pastTimestamp(random);
+        LocalDateTime pickup = createdAt.toLocalDate()
+            .plusDays(Math.min(30, (long) (-Math.log(1 - random.nextDouble()) * 2)))
+            .atTime(pick(random, PICKUP_HOUR_WEIGHTS), 15 * random.nextInt(4));
+        if (pickup.isBefore(createdAt)) {
+            pickup = pickup.plusDays(1);
+        }
+
+        // Mostly a few hours, some multi-day trips, a few monthly rentals
+        double kind = random.nextDouble();
+        long hours = kind < 0.70 ? 1 + random.nextInt(10) : kind < 0.95 ? 24L * (1 + random.nextInt(7))
+            : 24L * (7 + random.nextInt(24));
+        if (pickup.getDayOfWeek() == DayOfWeek.SATURDAY || pickup.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            hours += kind < 0.70 ? 2 : 0;
+        }
+        LocalDateTime dropoff = pickup.plusHours(hours);
+        BigDecimal totalPrice = hours < 24
+            ? bike.pricePerHour.multiply(BigDecimal.valueOf(hours))
+            : bike.pricePerHour.multiply(BigDecimal.valueOf(6 * ((hours + 23) / 24)));
+
+        BookingStatus status;
+        LocalDateTime actualPickup = null;
+        LocalDateTime actualDropoff = null;
+        double outcome = random.nextDouble();
+        if (!dropoff.isAfter(now)) {
+            status = outcome < 0.85 ? BookingStatus.COMPLETED : BookingStatus.CANCELLED;
+        } else if (!pickup.isAfter(now)) {
+            status = outcome < 0.95 ? BookingStatus.ACTIVE : BookingStatus.CANCELLED;
+        } else {
+            status = outcome < 0.40 ? BookingStatus.PENDING : outcome < 0.90 ? BookingStatus.CONFIRMED
+                : BookingStatus.CANCELLED;
+        }
+        if (status == BookingStatus.COMPLETED || status == BookingStatus.ACTIVE) {
+            actualPickup = pickup.plusMinutes(random.nextInt(46) - 15);
+        }
+        if (status == BookingStatus.COMPLETED) {
+            actualDropoff = dropoff.plusMinutes(random.nextInt(91) - 30);
+        }
+
+        return new Object[] {
+            firstBookingId + index,
+            userId,
+            firstBikeId + bikeIndex,
+            pickup,
+            dropoff,
+            String.format("%02d:%02d", pickup.getHour(), pickup.getMinute()),
+            String.format("%02d:%02d", dropoff.getHour(), dropoff.getMinute()),
+            actualPickup,
+            actualDropoff,
+            totalPrice,
+            status.name(),
+            null,
+            createdAt,
+            status == BookingStatus.PENDING ? createdAt : createdAt.plusMinutes(5 + random.nextInt(120))
+        };
+    }
+
+    // Rejection sampling over users, so no id lists have to be kept; null if the role is too rare to find
+    private Long pickUser(SplittableRandom random, UserRole role) {
+        if (userCount == 0) {
+            return null;
+        }
+        for (int attempt = 0; attempt < 10_000; attempt++) {
+            long index = random.nextLong(userCount);
+            if (roleOf(index) == role) {
+                return firstUserId + index;
+            }
+        }
+        return role == UserRole.CUSTOMER ? firstUserId + random.nextLong(userCount) : null;
+    }
+
+    private UserRole roleOf(long userIndex) {
+        return ROLES[pick(random(USER_SALT ^ 1, userIndex), ROLE_WEIGHTS)];
+    }
+
+    private BikeSpec bikeSpec(long bikeIndex) {
+        SplittableRandom random = random(BIKE_SALT ^ 1, bikeIndex);
+        Model model = MODELS[pick(random, MODEL_WEIGHTS)];
+        // Same model, slightly different prices per owner and city
+        long price = Math.round(model.basePrice * (0.85 + random.nextDouble() * 0.3) / 5) * 5;
+        return new BikeSpec(model, CITIES[pick(random, CITY_WEIGHTS)], BigDecimal.valueOf(price).setScale(2));
+    }
+
+    // Spread over datagen.history-days, denser towards now to mimic growth
+    private LocalDateTime pastTimestamp(SplittableRandom random) {
+        double ageFraction = 1 - Math.sqrt(random.nextDouble());
+        return now.minusMinutes((long) (ageFraction * historyDays * 24 * 60));
+    }
+
+    private SplittableRandom random(long salt, long index) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + salt * 0xBF58476D1CE4E5B9L + index);
+    }
+
+    private static int pick(SplittableRandom random, double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double target = random.nextDouble() * total;
+        for (int i = 0; i < weights.length; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static double[] weightsOf(Model[] models) {
+        double[] weights = new double[models.length];
+        for (int i = 0; i < models.length; i++) {
+            weights[i] = models[i].weight;
+        }
+        return weights;
+    }
+
+    private static final class Model {
+        private final String brand;
+        private final String model;
+        private final BikeType type;
+        private final int basePrice;
+        private final double weight;
+
+        private Model(String brand, String model, BikeType type, int basePrice, double weight) {
+            this.brand = brand;
+            this.model = model;
+            this.type = type;
+            this.basePrice = basePrice;
+            this.weight = weight;
+        }
+    }
+
+    private static final class BikeSpec {
+        private final Model model;
+        private final String city;
+        private final BigDecimal pricePerHour;
+
+        private BikeSpec(Model model, String city, BigDecimal pricePerHour) {
+            this.model = model;
+            this.city = city;
+            this.pricePerHour = pricePerHour;
+        }
+    }
+}
@@ -6,13 +6,19 @@ import com.spingo.bikerental.UserRepository;
 import com.spingo.bikerental.BookingRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
+// Seeds the demo accounts before DataGenerator adds bulk data
 @Component
+@Order(0)
 public class DataInitializer implements CommandLineRunner {
     
     @Autowired
@@ -27,7 +33,10 @@ public class DataInitializer implements CommandLineRunner {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    // One read-write transaction: the lookups between the seeding steps must see the rows just written,
+    // which a read replica would not have yet
     @Override
+    @Transactional
     public void run(String... args) throws Exception {
         initializeUsers();
         initializeBikes();
@@ -39,35 +48,31 @@ public class DataInitializer implements CommandLineRunner {
             // Admin User
             User admin = new User("Admin User", "admin@spingo.com", "9876543210", 
                 passwordEncoder.encode("admin123"), UserRole.ADMIN, "Admin Office, Mumbai");
-            userRepository.save(admin);
             
             // Customer Users
             User customer1 = new User("John Doe", "john@example.com", "9876543211", 
                 passwordEncoder.encode("password123"), UserRole.CUSTOMER, "123 Main St, Delhi");
-            userRepository.save(customer1);
             
             User customer2 = new User("Jane Smith", "jane@example.com", "9876543212", 
                 passwordEncoder.encode("password123"), UserRole.CUSTOMER, "456 Park Ave, Bangalore");
-            userRepository.save(customer2);
             
             User customer3 = new User("Alice Johnson", "alice@example.com", "9876543216", 
                 passwordEncoder.encode("password123"), UserRole.CUSTOMER, "789 Pine St, Chennai");
-            userRepository.save(customer3);
             
             // Individual Owner
             User owner = new User("Mike Johnson", "mike@example.com", "9876543213", 
                 passwordEncoder.encode("password123"), UserRole.INDIVIDUAL_OWNER, "321 Elm St, Kolkata");
-            userRepository.save(owner);
             
             // Rental Business
             User business = new User("Sarah Wilson", "sarah@example.com", "9876543214", 
                 passwordEncoder.encode("password123"), UserRole.RENTAL_BUSINESS, "654 Maple Ave, Hyderabad");
-            userRepository.save(business);
             
             // Delivery Partner
             User delivery = new User("Tom Brown", "tom@example.com", "9876543215", 
                 passwordEncoder.encode("password123"), UserRole.DELIVERY_PARTNER, "987 Cedar St, Pune");
-            userRepository.save(delivery);
+            
+            // One transaction, so the inserts go out as a JDBC batch
+            userRepository.saveAll(List.of(admin, customer1, customer2, customer3, owner, business, delivery));
             
             System.out.println("Users initialized successfully!");
         }
@@ -85,14 +90,12 @@ public class DataInitializer implements CommandLineRunner {
                 "High-performance sports bike perfect for city rides",
                 "https://images.unsplash.com/photo-1558618047-3c8c76ca7d13?w=500&h=300&fit=crop&crop=center",
                 owner1);
-            bikeRepository.save(honda1);
             
             Bike honda2 = new Bike("Honda", "Shadow", 2023, BikeType.CRUISER, "Chennai",
                 new BigDecimal("400.00"), new BigDecimal("2400.00"), new BigDecimal("48000.00"),
                 "Classic cruiser for comfortable long rides",
                 "https://images.unsplash.com/photo-1558618047-3c8c76ca7d13?w=500&h=300&fit=crop&crop=center",
                 business1);
-            bikeRepository.save(honda2);
             
             // Yamaha Bikes
             Bike yamaha1 = new Bike("Yamaha", "R1", 2023, BikeType.SPORT, "Delhi",
@@ -100,14 +103,12 @@ public class DataInitializer implements CommandLineRunner {
                 "Racing-inspired sport bike with advanced technology",
                 "https://images.unsplash.com/photo-1558618047-3c8c76ca7d13?w=500&h=300&fit=crop&crop=center",
                 owner1);
-            bikeRepository.save(yamaha1);
             
             Bike yamaha2 = new Bike("Yamaha", "FZ", 2023, BikeType.SPORT, "Bangalore",
                 new BigDecimal("350.00"), new BigDecimal("2100.00"), new BigDecimal("42000.00"),
                 "Stylish and efficient city bike",
                 "https://images.unsplash.com/photo-1558618047-3c8c76ca7d13?w=500&h=300&fit=crop&crop=center",
                 business1);
-            bikeRepository.save(yamaha2);
             
             // Kawasaki Bikes
             Bike kawasaki1 = new Bike("Kawasaki", "Ninja", 2023, BikeType.SPORT, "Mumbai",
@@ -115,14 +116,12 @@ public class DataInitializer implements CommandLineRunner {
                 "Legendary Ninja series for adrenaline seekers",
                 "https://images.unsplash.com/photo-1558618047-3c8c76ca7d13?w=500&h=300&fit=crop&crop=center",
                 owner1);
-            bikeRepository.save(kawasaki1);
             
             Bike kawasaki2 = new Bike("Kawasaki", "Vulcan", 2023, BikeType.CRUISER, "Chennai",
                 new BigDecimal("450.00"), new BigDecimal("2700.00"), new BigDecimal("54000.00"),
                 "Powerful cruiser for long-distance touring",
                 "https://images.unsplash.com/photo-1558618047-3c8c76ca7d13?w=500&h=300&fit=crop&crop=center",
                 business1);
-            bikeRepository.save(kawasaki2);
             
             // Ducati Bikes
             Bike ducati1 = new Bike("Ducati", "Panigale", 2023, BikeType.SPORT, "Delhi",
@@ -130,14 +129,12 @@ public class DataInitializer implements CommandLineRunner {
                 "Italian masterpiece with unmatched performance",
                 "https://images.unsplash.com/photo-1558618047-3c8c76ca7d13?w=500&h=300&fit=crop&crop=center",
                 owner1);
-            bikeRepository.save(ducati1);
             
             Bike ducati2 = new Bike("Ducati", "Monster", 2023, BikeType.SPORT, "Bangalore",
                 new BigDecimal("700.00"), new BigDecimal("4200.00"), new BigDecimal("84000.00"),
                 "Iconic naked bike with raw power",
                 "https://images.unsplash.com/photo-1558618047-3c8c76ca7d13?w=500&h=300&fit=crop&crop=center",
                 business1);
-            bikeRepository.save(ducati2);
             
             // BMW Bikes
             Bike bmw1 = new Bike("BMW", "S1000RR", 2023, BikeType.SPORT, "Mumbai",
@@ -145,14 +142,15 @@ public class DataInitializer implements CommandLineRunner {
                 "German engineering meets racing performance",
                 "https://images.unsplash.com/photo-1558618047-3c8c76ca7d13?w=500&h=300&fit=crop&crop=center",
                 owner1);
-            bikeRepository.save(bmw1);
             
             Bike bmw2 = new Bike("BMW", "R1200GS", 2023, BikeType.TOURING, "Chennai",
                 new BigDecimal("750.00"), new BigDecimal("4500.00"), new BigDecimal("90000.00"),
                 "Adventure touring bike for any terrain",
                 "https://images.unsplash.com/photo-1558618047-3c8c76ca7d13?w=500&h=300&fit=crop&crop=center",
                 business1);
-            bikeRepository.save(bmw2);
+            
+            bikeRepository.saveAll(List.of(honda1, honda2, yamaha1, yamaha2, kawasaki1,
+                kawasaki2, ducati1, ducati2, bmw1, bmw2));
             
             System.out.println("Bikes initialized successfully!");
         }
@@ -166,6 +164,7 @@ public class DataInitializer implements CommandLineRunner {
             
             Bike bike1 = bikeRepository.findAll().get(0);
             Bike bike2 = bikeRepository.findAll().get(1);
+            List<Booking> bookings = new ArrayList<>();
             
             if (customer1 != null && bike1 != null) {
                 // Create sample booking 1
@@ -178,7 +177,7 @@ public class DataInitializer implements CommandLineRunner {
                 booking1.setDropTime("18:00");
                 booking1.setTotalPrice(new BigDecimal("4500.00")); // 9 hours * 500
                 booking1.setStatus(BookingStatus.PENDING);
-                bookingRepository.save(booking1);
+                bookings.add(booking1);
             }
             
             if (customer2 != null && bike2 != null) {
@@ -192,9 +191,11 @@ public class DataInitializer implements CommandLineRunner {
                 booking2.setDropTime("16:00");
                 booking2.setTotalPrice(new BigDecimal("2400.00")); // 6 hours * 400
                 booking2.setStatus(BookingStatus.CONFIRMED);
-                bookingRepository.save(booking2);
+                bookings.add(booking2);
             }
             
+            bookingRepository.saveAll(bookings);
+            
             System.out.println("Bookings initialized successfully!");
         }
     }
@@ -2,12 +2,14 @@ package com.spingo.bikerental;
 
 import com.spingo.bikerental.UserDetailsServiceImpl;
 import com.spingo.bikerental.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.lang.NonNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -26,35 +28,44 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtil jwtUtil;
     
+    @Autowired
+    private TokenRevocationRegistry revocationRegistry;
+    
+    @Value("${jwt.stateless-auth:false}")
+    private boolean statelessAuth;
+    
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
             throws ServletException, IOException {
         
         final String authorizationHeader = request.getHeader("Authorization");
         
-        String username = null;
-        String jwt = null;
+        Claims claims = null;
         
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+            String jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
+                // Signature and expiry are verified here, once per request
+                claims = jwtUtil.parseClaims(jwt);
             } catch (Exception e) {
                 logger.error("JWT token is invalid: " + e.getMessage());
-                // Don't set username if token is invalid
-                username = null;
+                // Don't authenticate if token is invalid
+                claims = null;
             }
         }
         
+        String username = claims != null ? claims.getSubject() : null;
+        
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+                AuthPrincipal principal = resolvePrincipal(claims);
                 
-                if (jwtUtil.validateToken(jwt, userDetails)) {
+                if (principal != null) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
+                            principal, null, principal.getAuthorities());
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
+                    request.setAttribute(AuthPrincipal.REQUEST_ATTRIBUTE, principal);
                 }
             } catch (Exception e) {
                 logger.error("Error loading user details for username: " + username + ", error: " + e.getMessage());
@@ -63,4 +74,31 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
+    
+    // Streamed responses finish on an ASYNC dispatch, which goes through authorization again with an empty
+    // security context; authenticate that dispatch from the token too
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    // Stateless mode trusts the verified userId/role claims; otherwise (or for tokens
+    // without those claims) the user is loaded from the database as before
+    private AuthPrincipal resolvePrincipal(Claims claims) {
+        if (statelessAuth) {
+            AuthPrincipal principal = AuthPrincipal.fromClaims(claims);
+            if (principal != null) {
+                return revocationRegistry.isRevoked(principal.getId(), claims.getIssuedAt()) ? null : principal;
+            }
+        }
+        
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(claims.getSubject());
+        if (!jwtUtil.validateToken(claims, userDetails) || !userDetails.isEnabled()) {
+            return null;
+        }
+        if (userDetails instanceof User user && !revocationRegistry.isRevoked(user.getId())) {
+            return AuthPrincipal.fromUser(user);
+        }
+        return null;
+    }
 }
@@ -0,0 +1,169 @@
+package com.spingo.bikerental;
+
+import com.spingo.bikerental.config.RateLimitProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket rate limiting per client IP and per authenticated user, by route group.
+ *
+ * Each bucket is a single AtomicLong holding its "theoretical arrival time" (GCRA):
+ * refill is computed lazily from the clock on each request and updated with a CAS,
+ * so there are no locks and no refill timers. Runs right after JwtAuthenticationFilter,
+ * which in stateless mode does no database work, so throttled requests are answered
+ * with 429 before any repository call or BCrypt hash.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    
+    @Autowired
+    private RateLimitProperties properties;
+    
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+    
+    private final AtomicLong rejected = new AtomicLong();
+    
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        // Static pages and assets are not throttled
+        return !properties.isEnabled() || !request.getRequestURI().startsWith("/api/");
+    }
+    
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        
+        long now = System.nanoTime();
+        sweepIfDue(now);
+        
+        String group = resolveGroup(request.getMethod(), request.getRequestURI());
+        RateLimitProperties.Limit limit = properties.getGroups().get(group);
+        if (limit == null) {
+            limit = properties.getGroups().get("default");
+        }
+        
+        if (limit != null) {
+            long waitNanos = tryAcquire(group + "|ip|" + clientIp(request), limit.getIpPerMinute(), limit.getBurst(), now);
+            
+            Object principal = request.getAttribute(AuthPrincipal.REQUEST_ATTRIBUTE);
+            if (waitNanos == 0 && principal instanceof AuthPrincipal user) {
+                waitNanos = tryAcquire(group + "|user|" + user.getId(), limit.getUserPerMinute(), limit.getBurst(), now);
+            }
+            
+            if (waitNanos > 0) {
+                rejected.incrementAndGet();
+                long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1);
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.getWriter().write("{\"error\":\"Too many requests. Please slow down.\"}");
+                return;
+            }
+        }
+        
+        filterChain.doFilter(request, response);
+    }
+    
+    public int getBucketCount() {
+        return buckets.size();
+    }
+    
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+    
+    // Route groups mirror the sections of SecurityConfig
+    static String resolveGroup(String method, String uri) {
+        if (uri.startsWith("/api/auth/")) {
+            return "auth";
+        }
+        if (uri.equals("/api/bikes") || uri.startsWith("/api/bikes/")) {
+            return "GET".equals(method) ? "bikes-public" : "bikes-write";
+        }
+        if (uri.startsWith("/api/bookings")) {
+            return "bookings";
+        }
+        if (uri.startsWith("/api/dashboard")) {
+            return "dashboard";
+        }
+        if (uri.startsWith("/api/admin")) {
+            return "admin";
+        }
+        if (uri.startsWith("/api/users")) {
+            return "users";
+        }
+        if (uri.startsWith("/api/images/")) {
+            return "images";
+        }
+        return "default";
+    }
+    
+    // Returns 0 if a token was taken, otherwise nanoseconds until one is available
+    private long tryAcquire(String key, int perMinute, int burst, long now) {
+        if (perMinute <= 0) {
+            return 0;
+        }
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(now));
+        long interval = TimeUnit.MINUTES.toNanos(1) / perMinute;
+        long tolerance = interval * Math.max(0, burst - 1);
+        
+        while (true) {
+            long tat = bucket.tat.get();
+            long base = Math.max(tat, now);
+            if (base - now > tolerance) {
+                return base - now - tolerance;
+            }
+            if (bucket.tat.compareAndSet(tat, base + interval)) {
+                return 0;
+            }
+        }
+    }
+    
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now - due < 0 || !nextSweep.compareAndSet(due, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+        long idleNanos = TimeUnit.SECONDS.toNanos(properties.getIdleExpirySeconds());
+        buckets.values().removeIf(bucket -> now - bucket.tat.get() > idleNanos);
+    }
+    
+    private String clientIp(HttpServletRequest request) {
+        if (properties.isTrustForwardedFor()) {
+            String forwardedFor = request.getHeader("X-Forwarded-For");
+            if (forwardedFor != null && !forwardedFor.isBlank()) {
+                int comma = forwardedFor.indexOf(',');
+                return (comma >= 0 ? forwardedFor.substring(0, comma) : forwardedFor).trim();
+            }
+        }
+        return request.getRemoteAddr();
+    }
+    
+    private static final class Bucket {
+        // Theoretical arrival time of the next request, in System.nanoTime() units
+        private final AtomicLong tat;
+        
+        private Bucket(long now) {
+            this.tat = new AtomicLong(now);
+        }
+    }
+}
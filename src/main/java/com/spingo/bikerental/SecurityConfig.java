@@ -1,6 +1,7 @@
 package com.spingo.bikerental;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -27,6 +28,12 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Value("${security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -47,6 +54,7 @@ public class SecurityConfig {
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/health").permitAll()
                 .requestMatchers("/api/public/**").permitAll()
+                .requestMatchers("GET", "/api/images/**").permitAll()
                 
                 // Public bike browsing endpoints (MUST BE BEFORE CRUD)
                 .requestMatchers("/api/bikes/popular").permitAll()
@@ -62,6 +70,7 @@ public class SecurityConfig {
                 
                 // Protected bike CRUD operations (POST, PUT, DELETE)
                 .requestMatchers("POST", "/api/bikes").hasAnyRole("ADMIN", "INDIVIDUAL_OWNER", "RENTAL_BUSINESS")
+                .requestMatchers("POST", "/api/bikes/owner/bulk").hasAnyRole("ADMIN", "INDIVIDUAL_OWNER", "RENTAL_BUSINESS")
                 .requestMatchers("PUT", "/api/bikes/**").hasAnyRole("ADMIN", "INDIVIDUAL_OWNER", "RENTAL_BUSINESS")
                 .requestMatchers("DELETE", "/api/bikes/**").hasAnyRole("ADMIN", "INDIVIDUAL_OWNER", "RENTAL_BUSINESS")
                 
@@ -73,6 +82,8 @@ public class SecurityConfig {
                 .requestMatchers("/api/dashboard/owner").hasRole("INDIVIDUAL_OWNER")
                 .requestMatchers("/api/dashboard/business").hasRole("RENTAL_BUSINESS")
                 .requestMatchers("/api/dashboard/partner").hasRole("DELIVERY_PARTNER")
+                .requestMatchers("/api/dashboard/stream").hasAnyRole("ADMIN", "INDIVIDUAL_OWNER", "RENTAL_BUSINESS")
+                .requestMatchers("/api/dashboard/utilization").hasAnyRole("ADMIN", "INDIVIDUAL_OWNER", "RENTAL_BUSINESS")
                 .requestMatchers("/api/users/**").authenticated()
 
                 // Any other request must be authenticated
@@ -82,6 +93,9 @@ public class SecurityConfig {
         // Add JWT filter before default authentication
         http.addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
 
+        // Throttle right after the token is verified, before any controller work
+        http.addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
+
         return http.build();
     }
 
@@ -100,7 +114,8 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        // Hashes below this cost are upgraded on the next successful login
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
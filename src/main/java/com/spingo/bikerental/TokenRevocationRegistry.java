@@ -0,0 +1,73 @@
+package com.spingo.bikerental;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of user ids whose tokens must no longer be accepted
+ * (deactivated or deleted accounts). Lets the JWT filter trust verified
+ * claims without a database round trip per request.
+ *
+ * Deactivated users are re-seeded from the database on startup. Deleted users
+ * leave no row behind, so a token minted before this instance started is
+ * checked against the database once per user (isRevoked(userId, issuedAt));
+ * tokens issued since startup are covered by revoke() on this instance.
+ */
+@Component
+public class TokenRevocationRegistry {
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    private final Instant startedAt = Instant.now();
+    
+    private final Set<Long> revokedUserIds = ConcurrentHashMap.newKeySet();
+    
+    // Users whose pre-startup tokens were found to belong to an existing, active account
+    private final Set<Long> verifiedUserIds = ConcurrentHashMap.newKeySet();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedFromDatabase() {
+        revokedUserIds.addAll(userRepository.findInactiveUserIds());
+    }
+    
+    public void revoke(Long userId) {
+        revokedUserIds.add(userId);
+    }
+    
+    public void restore(Long userId) {
+        revokedUserIds.remove(userId);
+    }
+    
+    public boolean isRevoked(Long userId) {
+        return revokedUserIds.contains(userId);
+    }
+    
+    // For tokens trusted without loading the user: JWT iat has second precision, so a token from the
+    // second this instance started is checked too
+    public boolean isRevoked(Long userId, Date issuedAt) {
+        if (revokedUserIds.contains(userId)) {
+            return true;
+        }
+        if ((issuedAt != null && !issuedAt.toInstant().isBefore(startedAt)) || verifiedUserIds.contains(userId)) {
+            return false;
+        }
+        if (userRepository.existsByIdAndIsActiveTrue(userId)) {
+            verifiedUserIds.add(userId);
+            return false;
+        }
+        revokedUserIds.add(userId);
+        return true;
+    }
+    
+    public int size() {
+        return revokedUserIds.size();
+    }
+}
@@ -0,0 +1,61 @@
+package com.spingo.bikerental.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.spingo.bikerental.Bike;
+import org.hibernate.Hibernate;
+
+import java.io.IOException;
+
+import static com.spingo.bikerental.config.JsonFields.*;
+
+// Writes a Bike field by field; the owner is reduced to id, name and role (no password hash or timestamps)
+public class BikeJsonSerializer extends StdSerializer<Bike> {
+
+    private static final SerializedString BRAND = new SerializedString("brand");
+    private static final SerializedString MODEL = new SerializedString("model");
+    private static final SerializedString YEAR = new SerializedString("year");
+    private static final SerializedString TYPE = new SerializedString("type");
+    private static final SerializedString CITY = new SerializedString("city");
+    private static final SerializedString PRICE_PER_HOUR = new SerializedString("pricePerHour");
+    private static final SerializedString PRICE_PER_DAY = new SerializedString("pricePerDay");
+    private static final SerializedString PRICE_PER_MONTH = new SerializedString("pricePerMonth");
+    private static final SerializedString OWNER = new SerializedString("owner");
+    private static final SerializedString DESCRIPTION = new SerializedString("description");
+    private static final SerializedString IMAGE_URL = new SerializedString("imageUrl");
+    private static final SerializedString IS_ACTIVE = new SerializedString("isActive");
+
+    public BikeJsonSerializer() {
+        super(Bike.class);
+    }
+
+    @Override
+    public void serialize(Bike bike, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        // Unloaded proxies keep the previous {"id": ...} form
+        if (!Hibernate.isInitialized(bike)) {
+            writeIdOnly(gen, bike.getId());
+            return;
+        }
+        gen.writeStartObject();
+        writeNumber(gen, ID, bike.getId());
+        writeString(gen, BRAND, bike.getBrand());
+        writeString(gen, MODEL, bike.getModel());
+        writeNumber(gen, YEAR, bike.getYear());
+        writeEnum(gen, TYPE, bike.getType());
+        writeString(gen, CITY, bike.getCity());
+        writeNumber(gen, PRICE_PER_HOUR, bike.getPricePerHour());
+        writeNumber(gen, PRICE_PER_DAY, bike.getPricePerDay());
+        writeNumber(gen, PRICE_PER_MONTH, bike.getPricePerMonth());
+        writeUser(gen, OWNER, bike.getOwner(), false);
+        writeString(gen, DESCRIPTION, bike.getDescription());
+        writeEnum(gen, STATUS, bike.getStatus());
+        writeString(gen, IMAGE_URL, bike.getImageUrl());
+        writeBoolean(gen, IS_ACTIVE, bike.getIsActive());
+        writeDateTime(gen, CREATED_AT, bike.getCreatedAt());
+        writeDateTime(gen, UPDATED_AT, bike.getUpdatedAt());
+        writeNumber(gen, VERSION, bike.getVersion());
+        gen.writeEndObject();
+    }
+}
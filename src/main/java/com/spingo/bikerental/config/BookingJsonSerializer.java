@@ -0,0 +1,64 @@
+package com.spingo.bikerental.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.spingo.bikerental.Booking;
+import org.hibernate.Hibernate;
+
+import java.io.IOException;
+
+import static com.spingo.bikerental.config.JsonFields.*;
+
+// Writes a Booking field by field; the customer is reduced to id, name, email and role
+public class BookingJsonSerializer extends StdSerializer<Booking> {
+
+    private static final SerializedString USER = new SerializedString("user");
+    private static final SerializedString BIKE = new SerializedString("bike");
+    private static final SerializedString PICKUP_DATE = new SerializedString("pickupDate");
+    private static final SerializedString DROPOFF_DATE = new SerializedString("dropoffDate");
+    private static final SerializedString PICKUP_TIME = new SerializedString("pickupTime");
+    private static final SerializedString DROP_TIME = new SerializedString("dropTime");
+    private static final SerializedString ACTUAL_PICKUP_DATE = new SerializedString("actualPickupDate");
+    private static final SerializedString ACTUAL_DROPOFF_DATE = new SerializedString("actualDropoffDate");
+    private static final SerializedString TOTAL_PRICE = new SerializedString("totalPrice");
+    private static final SerializedString NOTES = new SerializedString("notes");
+
+    private final BikeJsonSerializer bikeSerializer;
+
+    public BookingJsonSerializer(BikeJsonSerializer bikeSerializer) {
+        super(Booking.class);
+        this.bikeSerializer = bikeSerializer;
+    }
+
+    @Override
+    public void serialize(Booking booking, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (!Hibernate.isInitialized(booking)) {
+            writeIdOnly(gen, booking.getId());
+            return;
+        }
+        gen.writeStartObject();
+        writeNumber(gen, ID, booking.getId());
+        writeUser(gen, USER, booking.getUser(), true);
+        gen.writeFieldName(BIKE);
+        if (booking.getBike() == null) {
+            gen.writeNull();
+        } else {
+            bikeSerializer.serialize(booking.getBike(), gen, provider);
+        }
+        writeDateTime(gen, PICKUP_DATE, booking.getPickupDate());
+        writeDateTime(gen, DROPOFF_DATE, booking.getDropoffDate());
+        writeString(gen, PICKUP_TIME, booking.getPickupTime());
+        writeString(gen, DROP_TIME, booking.getDropTime());
+        writeDateTime(gen, ACTUAL_PICKUP_DATE, booking.getActualPickupDate());
+        writeDateTime(gen, ACTUAL_DROPOFF_DATE, booking.getActualDropoffDate());
+        writeNumber(gen, TOTAL_PRICE, booking.getTotalPrice());
+        writeEnum(gen, STATUS, booking.getStatus());
+        writeString(gen, NOTES, booking.getNotes());
+        writeDateTime(gen, CREATED_AT, booking.getCreatedAt());
+        writeDateTime(gen, UPDATED_AT, booking.getUpdatedAt());
+        writeNumber(gen, VERSION, booking.getVersion());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,50 @@
+package com.spingo.bikerental.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.spingo.bikerental.dto.DashboardResponse;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Dashboard keys are a fixed set of literals, so each is encoded once; numbers skip serializer lookup
+public class DashboardJsonSerializer extends StdSerializer<DashboardResponse> {
+
+    private static final Map<String, SerializedString> FIELD_NAMES = new ConcurrentHashMap<>();
+
+    public DashboardJsonSerializer() {
+        super(DashboardResponse.class);
+    }
+
+    @Override
+    public void serialize(DashboardResponse dashboard, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        for (Map.Entry<String, Object> entry : dashboard.getValues().entrySet()) {
+            gen.writeFieldName(FIELD_NAMES.computeIfAbsent(entry.getKey(), SerializedString::new));
+            Object value = entry.getValue();
+            if (value == null) {
+                gen.writeNull();
+            } else if (value instanceof Long number) {
+                gen.writeNumber(number);
+            } else if (value instanceof Integer number) {
+                gen.writeNumber(number);
+            } else if (value instanceof BigDecimal number) {
+                gen.writeNumber(number);
+            } else if (value instanceof Double number) {
+                gen.writeNumber(number);
+            } else if (value instanceof String text) {
+                gen.writeString(text);
+            } else if (value instanceof Boolean flag) {
+                gen.writeBoolean(flag);
+            } else {
+                // Lists of bookings, per-role maps etc. go through the registered serializers
+                provider.defaultSerializeValue(value, gen);
+            }
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,83 @@
+package com.spingo.bikerental.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayProperties;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Primary/replica wiring.
+ *
+ * The application DataSource is a lazy proxy around a routing DataSource, so the physical
+ * connection is only chosen once the transaction's read-only flag is known. Without
+ * replica.enabled both routes lead to the primary pool.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "replica.enabled", havingValue = "true")
+    public HikariDataSource replicaDataSource(ReplicaProperties replica, FlywayProperties flywayProperties) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+            .type(HikariDataSource.class)
+            .url(replica.getUrl())
+            .username(replica.getUsername())
+            .password(replica.getPassword())
+            .driverClassName(replica.getDriverClassName())
+            .build();
+        dataSource.setPoolName("replica");
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setReadOnly(!replica.isMigrate());
+
+        if (replica.isMigrate()) {
+            Flyway.configure()
+                .dataSource(dataSource)
+                .locations(flywayProperties.getLocations().toArray(String[]::new))
+                .load()
+                .migrate();
+        }
+        return dataSource;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public ReplicaLagMonitor replicaLagMonitor(ReplicaProperties replica,
+                                               @Qualifier("replicaDataSource") ObjectProvider<HikariDataSource> replicaDataSource) {
+        return new ReplicaLagMonitor(replica, replicaDataSource.getIfAvailable());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<HikariDataSource> replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(replicaLagMonitor);
+        DataSource replica = replicaDataSource.getIfAvailable(() -> primaryDataSource);
+        routing.setTargetDataSources(Map.of(
+            ReadWriteRoutingDataSource.PRIMARY, primaryDataSource,
+            ReadWriteRoutingDataSource.REPLICA, replica
+        ));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,137 @@
+package com.spingo.bikerental.config;
+
+import com.spingo.bikerental.PooledIdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One-off data migration for the switch from IDENTITY to pooled sequence ids.
+ *
+ * The V1 migration creates the id sequences (single-row emulation tables on MySQL)
+ * starting at 1, but rows inserted under IDENTITY already occupy those values. Before
+ * anything is inserted, each sequence is moved past the highest existing id so the first
+ * pooled block starts at MAX(id) + 1. Runs on every start and is a no-op once aligned.
+ */
+@Component
+public class IdSequenceAligner {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceAligner.class);
+
+    // entity table -> sequence name used by its @GenericGenerator
+    private static final Map<String, String> SEQUENCES = Map.of(
+        "users", "users_seq",
+        "bikes", "bikes_seq",
+        "bookings", "bookings_seq"
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Depending on the EntityManagerFactory guarantees the migrations have run
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${spring.jpa.properties." + PooledIdGenerator.ALLOCATION_SIZE_SETTING + ":" + PooledIdGenerator.DEFAULT_ALLOCATION_SIZE + "}")
+    private int allocationSize;
+
+    // Held across queries, so a lock rather than a monitor that would pin a virtual thread's carrier
+    private final ReentrantLock reserveLock = new ReentrantLock();
+
+    @PostConstruct
+    public void align() {
+        SequenceSupport sequenceSupport = sequenceSupport();
+        SEQUENCES.forEach((table, sequence) -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            if (maxId == null || maxId == 0) {
+                return;
+            }
+            // The pooled optimizer hands out (value - allocationSize, value] for each value it reads
+            long target = maxId + allocationSize;
+            if (sequenceSupport.supportsSequences()) {
+                alignSequence(sequenceSupport, sequence, target);
+            } else {
+                alignTable(sequence, target);
+            }
+        });
+    }
+
+    // Moves a table's sequence past count ids and returns the first of them, for bulk loaders that assign ids themselves
+    public long reserve(String table, long count) {
+        String sequence = SEQUENCES.get(table);
+        if (sequence == null) {
+            throw new IllegalArgumentException("No id sequence for table " + table);
+        }
+        reserveLock.lock();
+        try {
+            return reserveLocked(table, sequence, count);
+        } finally {
+            reserveLock.unlock();
+        }
+    }
+
+    private long reserveLocked(String table, String sequence, long count) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        SequenceSupport sequenceSupport = sequenceSupport();
+        if (sequenceSupport.supportsSequences()) {
+            // Drawing a value claims the block below it; one more block of headroom covers a concurrent draw before the restart
+            Long current = jdbcTemplate.queryForObject(sequenceSupport.getSequenceNextValString(sequence), Long.class);
+            long first = Math.max(current + allocationSize, maxId) + 1;
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (first + count - 1 + allocationSize));
+            return first;
+        }
+        // Compare-and-set on next_val, so a block Hibernate takes meanwhile is never handed out twice
+        while (true) {
+            Long current = jdbcTemplate.queryForObject("SELECT MAX(next_val) FROM " + sequence, Long.class);
+            long first = Math.max(current != null ? current : 0, maxId) + 1;
+            long target = first + count - 1 + allocationSize;
+            int updated = current == null
+                ? jdbcTemplate.update("INSERT INTO " + sequence + " (next_val) VALUES (?)", target)
+                : jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ? WHERE next_val = ?", target, current);
+            if (updated == 1) {
+                return first;
+            }
+        }
+    }
+
+    private SequenceSupport sequenceSupport() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getJdbcServices()
+            .getDialect()
+            .getSequenceSupport();
+    }
+
+    // MySQL: Hibernate emulates the sequence with a single-row table holding next_val
+    private void alignTable(String sequence, long target) {
+        Long current = jdbcTemplate.queryForObject("SELECT MAX(next_val) FROM " + sequence, Long.class);
+        if (current != null && current >= target) {
+            return;
+        }
+        if (current == null) {
+            jdbcTemplate.update("INSERT INTO " + sequence + " (next_val) VALUES (?)", target);
+        } else {
+            jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ?", target);
+        }
+        logger.info("Moved id table {} from {} to {}", sequence, current, target);
+    }
+
+    // Native sequences can only be inspected by drawing a value; that costs at most one block
+    private void alignSequence(SequenceSupport sequenceSupport, String sequence, long target) {
+        Long current = jdbcTemplate.queryForObject(sequenceSupport.getSequenceNextValString(sequence), Long.class);
+        if (current != null && current >= target) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + target);
+        logger.info("Restarted id sequence {} at {}", sequence, target);
+    }
+}
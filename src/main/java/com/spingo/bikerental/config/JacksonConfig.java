@@ -2,8 +2,12 @@ package com.spingo.bikerental.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.hibernate5.jakarta.Hibernate5JakartaModule;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.hibernate6.Hibernate6Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.Booking;
+import com.spingo.bikerental.dto.DashboardResponse;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -15,15 +19,27 @@ public class JacksonConfig {
     @Bean
     @Primary
     public ObjectMapper objectMapper() {
-        Hibernate5JakartaModule hibernateModule = new Hibernate5JakartaModule();
-        hibernateModule.disable(Hibernate5JakartaModule.Feature.USE_TRANSIENT_ANNOTATION);
-        hibernateModule.enable(Hibernate5JakartaModule.Feature.FORCE_LAZY_LOADING);
+        Hibernate6Module hibernateModule = new Hibernate6Module();
+        hibernateModule.disable(Hibernate6Module.Feature.USE_TRANSIENT_ANNOTATION);
+        // Associations are lazy; repositories fetch what each endpoint returns, anything else is written as its id
+        hibernateModule.disable(Hibernate6Module.Feature.FORCE_LAZY_LOADING);
+        hibernateModule.enable(Hibernate6Module.Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS);
         
         return Jackson2ObjectMapperBuilder.json()
-                .modules(hibernateModule, new JavaTimeModule())
+                .modules(hibernateModule, new JavaTimeModule(), responseModule())
                 .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
                 .featuresToDisable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
                 .featuresToDisable(SerializationFeature.FAIL_ON_SELF_REFERENCES)
                 .build();
     }
+
+    // Hand-written serializers for the hottest response types; registered last so they also win for Hibernate proxies
+    public static SimpleModule responseModule() {
+        BikeJsonSerializer bikeSerializer = new BikeJsonSerializer();
+        SimpleModule module = new SimpleModule("bikerental-responses");
+        module.addSerializer(Bike.class, bikeSerializer);
+        module.addSerializer(Booking.class, new BookingJsonSerializer(bikeSerializer));
+        module.addSerializer(DashboardResponse.class, new DashboardJsonSerializer());
+        return module;
+    }
 }
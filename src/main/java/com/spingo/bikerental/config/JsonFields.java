@@ -0,0 +1,124 @@
+package com.spingo.bikerental.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.spingo.bikerental.User;
+import org.hibernate.Hibernate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Helpers shared by the hand-written entity serializers; null values are written as null like Jackson's defaults
+final class JsonFields {
+
+    static final SerializedString ID = new SerializedString("id");
+    static final SerializedString NAME = new SerializedString("name");
+    static final SerializedString EMAIL = new SerializedString("email");
+    static final SerializedString ROLE = new SerializedString("role");
+    static final SerializedString STATUS = new SerializedString("status");
+    static final SerializedString CREATED_AT = new SerializedString("createdAt");
+    static final SerializedString UPDATED_AT = new SerializedString("updatedAt");
+    static final SerializedString VERSION = new SerializedString("version");
+
+    private static final Map<Enum<?>, SerializedString> ENUM_VALUES = new ConcurrentHashMap<>();
+
+    private JsonFields() {
+    }
+
+    static void writeString(JsonGenerator gen, SerializedString field, String value) throws IOException {
+        gen.writeFieldName(field);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(value);
+        }
+    }
+
+    static void writeNumber(JsonGenerator gen, SerializedString field, Long value) throws IOException {
+        gen.writeFieldName(field);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    static void writeNumber(JsonGenerator gen, SerializedString field, Integer value) throws IOException {
+        gen.writeFieldName(field);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    static void writeNumber(JsonGenerator gen, SerializedString field, BigDecimal value) throws IOException {
+        gen.writeFieldName(field);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    static void writeBoolean(JsonGenerator gen, SerializedString field, Boolean value) throws IOException {
+        gen.writeFieldName(field);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeBoolean(value);
+        }
+    }
+
+    // Enum constants are encoded once and reused
+    static void writeEnum(JsonGenerator gen, SerializedString field, Enum<?> value) throws IOException {
+        gen.writeFieldName(field);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(ENUM_VALUES.computeIfAbsent(value, constant -> new SerializedString(constant.name())));
+        }
+    }
+
+    // Same ISO format JavaTimeModule writes with WRITE_DATES_AS_TIMESTAMPS disabled
+    static void writeDateTime(JsonGenerator gen, SerializedString field, LocalDateTime value) throws IOException {
+        gen.writeFieldName(field);
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+        }
+    }
+
+    // What Hibernate6Module writes for an unloaded proxy: an object holding just the identifier
+    static void writeIdOnly(JsonGenerator gen, Long id) throws IOException {
+        gen.writeStartObject();
+        writeNumber(gen, ID, id);
+        gen.writeEndObject();
+    }
+
+    // Public face of a user nested in another entity; an unloaded association is written as {"id": ...}
+    static void writeUser(JsonGenerator gen, SerializedString field, User user, boolean withEmail) throws IOException {
+        gen.writeFieldName(field);
+        if (user == null) {
+            gen.writeNull();
+            return;
+        }
+        if (!Hibernate.isInitialized(user)) {
+            writeIdOnly(gen, user.getId());
+            return;
+        }
+        gen.writeStartObject();
+        writeNumber(gen, ID, user.getId());
+        writeString(gen, NAME, user.getName());
+        if (withEmail) {
+            writeString(gen, EMAIL, user.getEmail());
+        }
+        writeEnum(gen, ROLE, user.getRole());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,86 @@
+package com.spingo.bikerental.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Per route group limits for RateLimitFilter; group names follow the sections of SecurityConfig
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Honour X-Forwarded-For only when running behind a trusted proxy
+    private boolean trustForwardedFor = false;
+
+    // Buckets untouched (and fully refilled) for this long are dropped
+    private long idleExpirySeconds = 300;
+
+    private Map<String, Limit> groups = new LinkedHashMap<>();
+
+    public static class Limit {
+        private int ipPerMinute = 600;
+        private int userPerMinute = 600;
+        private int burst = 50;
+
+        public int getIpPerMinute() {
+            return ipPerMinute;
+        }
+
+        public void setIpPerMinute(int ipPerMinute) {
+            this.ipPerMinute = ipPerMinute;
+        }
+
+        public int getUserPerMinute() {
+            return userPerMinute;
+        }
+
+        public void setUserPerMinute(int userPerMinute) {
+            this.userPerMinute = userPerMinute;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+
+    // Getters and Setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isTrustForwardedFor() {
+        return trustForwardedFor;
+    }
+
+    public void setTrustForwardedFor(boolean trustForwardedFor) {
+        this.trustForwardedFor = trustForwardedFor;
+    }
+
+    public long getIdleExpirySeconds() {
+        return idleExpirySeconds;
+    }
+
+    public void setIdleExpirySeconds(long idleExpirySeconds) {
+        this.idleExpirySeconds = idleExpirySeconds;
+    }
+
+    public Map<String, Limit> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(Map<String, Limit> groups) {
+        this.groups = groups;
+    }
+}
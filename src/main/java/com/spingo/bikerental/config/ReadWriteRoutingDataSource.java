@@ -0,0 +1,153 @@
+package com.spingo.bikerental.config;
+
+import com.spingo.bikerental.AuthPrincipal;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Pattern;
+
+/**
+ * Read-only transactions go to the replica unless ReplicaLagMonitor says otherwise; everything else to the primary.
+ *
+ * Primary connections watch the SQL sent over them. A user's read-your-writes window starts when a transaction
+ * that actually changed data commits (or right away for an auto-commit write), not when a read-write transaction
+ * merely takes a connection: queries that are read-write only to see the primary's latest commits, like
+ * findConflictingBookings or findOccupancyRowsForBike, never pin the user to the primary.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private static final Pattern WRITE = Pattern.compile("^\\s*(insert|update|delete|merge|replace)\\b",
+        Pattern.CASE_INSENSITIVE);
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    // Bound while the current transaction has a pending write registered
+    private final Object writeMarker = new Object();
+
+    public ReadWriteRoutingDataSource(ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        return lagMonitor.requiresPrimary(currentUserId()) ? PRIMARY : REPLICA;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return watchWrites(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return watchWrites(super.getConnection(username, password));
+    }
+
+    private Connection watchWrites(Connection connection) {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                inspect(method, args);
+                Object result = invoke(connection, method, args);
+                if (result instanceof Statement statement && method.getName().equals("createStatement")) {
+                    return watchWrites(statement);
+                }
+                return result;
+            });
+    }
+
+    // Plain statements get their SQL at execute/addBatch time
+    private Statement watchWrites(Statement statement) {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] {Statement.class},
+            (proxy, method, args) -> {
+                inspect(method, args);
+                return invoke(statement, method, args);
+            });
+    }
+
+    // prepareStatement/prepareCall and Statement.execute*/addBatch all take the SQL as their first argument
+    private void inspect(Method method, Object[] args) {
+        if (args != null && args.length > 0 && args[0] instanceof String sql && WRITE.matcher(sql).find()) {
+            writeSeen();
+        }
+    }
+
+    private void writeSeen() {
+        Long userId = currentUserId();
+        if (userId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            lagMonitor.recordWrite(userId);
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(writeMarker)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(writeMarker, userId);
+        TransactionSynchronizationManager.registerSynchronization(new WriteCommitted(userId));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthPrincipal principal) {
+            return principal.getId();
+        }
+        return null;
+    }
+
+    // Starts the window once the data is visible to others; a rollback leaves nothing to wait for
+    private final class WriteCommitted implements TransactionSynchronization {
+
+        private final Long userId;
+
+        private WriteCommitted(Long userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(writeMarker);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(writeMarker, userId);
+        }
+
+        @Override
+        public void afterCommit() {
+            lagMonitor.recordWrite(userId);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(writeMarker);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.spingo.bikerental.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a read-only transaction may not use the replica.
+ *
+ * A user who just committed a write keeps reading from the primary for a short window,
+ * long enough for the replica to catch up, so they always see their own booking. When a
+ * lag query is configured, the window grows with the measured lag and a replica that falls
+ * too far behind (or stops answering) is bypassed entirely until it recovers.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final int SWEEP_THRESHOLD = 10_000;
+
+    private final ReplicaProperties properties;
+
+    private final DataSource replica;
+
+    // userId -> System.nanoTime() until which that user's reads go to the primary
+    private final Map<Long, Long> recentWriters = new ConcurrentHashMap<>();
+
+    private volatile long lagMs;
+
+    private volatile boolean healthy = true;
+
+    private ScheduledExecutorService probe;
+
+    public ReplicaLagMonitor(ReplicaProperties properties, DataSource replica) {
+        this.properties = properties;
+        this.replica = replica;
+    }
+
+    public void start() {
+        if (replica == null || properties.getLagQuery() == null || properties.getLagQuery().isBlank()) {
+            return;
+        }
+        probe = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        probe.scheduleWithFixedDelay(this::measureLag, 0, properties.getLagCheckIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        if (probe != null) {
+            probe.shutdownNow();
+        }
+    }
+
+    public void recordWrite(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        long window = Math.max(properties.getReadYourWritesMs(), Math.min(lagMs, properties.getMaxLagMs()));
+        recentWriters.put(userId, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(window));
+        if (recentWriters.size() > SWEEP_THRESHOLD) {
+            long now = System.nanoTime();
+            recentWriters.values().removeIf(until -> until - now < 0);
+        }
+    }
+
+    public boolean requiresPrimary(Long userId) {
+        if (replica == null || !healthy) {
+            return true;
+        }
+        if (userId == null) {
+            return false;
+        }
+        Long until = recentWriters.get(userId);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() < 0) {
+            recentWriters.remove(userId, until);
+            return false;
+        }
+        return true;
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    private void measureLag() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(properties.getLagQuery())) {
+            // NULL means replication is not running at all
+            boolean stopped = true;
+            double seconds = 0;
+            if (resultSet.next()) {
+                seconds = resultSet.getDouble(1);
+                stopped = resultSet.wasNull();
+            }
+            lagMs = stopped ? Long.MAX_VALUE : (long) (seconds * 1000);
+            updateHealth(!stopped && lagMs <= properties.getMaxLagMs());
+        } catch (Exception e) {
+            logger.debug("Replica lag probe failed", e);
+            updateHealth(false);
+        }
+    }
+
+    private void updateHealth(boolean nowHealthy) {
+        if (healthy != nowHealthy) {
+            logger.warn(nowHealthy
+                ? "Replica caught up (lag {} ms); read-only traffic returns to it"
+                : "Replica unavailable or lagging (lag {} ms); read-only traffic goes to the primary", lagMs);
+        }
+        healthy = nowHealthy;
+    }
+}
@@ -0,0 +1,139 @@
+package com.spingo.bikerental.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that block while pinned to their carrier.
+ *
+ * With spring.threads.virtual.enabled on Java 21, a virtual thread that parks
+ * inside a synchronized block (or a native frame) cannot unmount, so it holds
+ * one of the few carrier threads for the whole wait. Enough of those at once,
+ * e.g. waiting on a JDBC socket or for a pool connection, stall every other
+ * request. This listens to the JDK's jdk.VirtualThreadPinned JFR event in
+ * process, counts pinning per call site (the first application frame, else the
+ * top frame) and logs the first stack seen for each site.
+ *
+ * For a one-off trace of every pinning, run with -Djdk.tracePinnedThreads=short.
+ */
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APPLICATION_PACKAGE = "com.spingo.";
+    private static final int MAX_SITES = 200;
+    private static final int LOGGED_FRAMES = 12;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${virtual-threads.pinning.threshold-ms:20}")
+    private long thresholdMs;
+
+    private RecordingStream stream;
+
+    private final Map<String, LongAdder> sites = new ConcurrentHashMap<>();
+
+    private final AtomicLong events = new AtomicLong();
+
+    private final AtomicLong pinnedNanos = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        if (!virtualThreads) {
+            return;
+        }
+        if (Runtime.version().feature() < 21) {
+            logger.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads; "
+                + "requests stay on platform threads", Runtime.version().feature());
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        logger.info("Watching for virtual threads pinned longer than {} ms", thresholdMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("virtualThreads", stream != null);
+        stats.put("thresholdMs", thresholdMs);
+        stats.put("pinnedEvents", events.get());
+        stats.put("pinnedMillis", pinnedNanos.get() / 1_000_000);
+        Map<String, Long> bySite = sites.entrySet().stream()
+            .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+            .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum(), (a, b) -> a, LinkedHashMap::new));
+        stats.put("sites", bySite);
+        return stats;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        events.incrementAndGet();
+        pinnedNanos.addAndGet(event.getDuration().toNanos());
+
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace != null ? stackTrace.getFrames() : List.of();
+        String site = site(frames);
+        LongAdder count = sites.get(site);
+        if (count == null) {
+            if (sites.size() >= MAX_SITES) {
+                site = "(other)";
+            }
+            LongAdder fresh = new LongAdder();
+            count = sites.putIfAbsent(site, fresh);
+            if (count == null) {
+                count = fresh;
+                logger.warn("Virtual thread pinned for {} ms at {}:\n{}",
+                    event.getDuration().toMillis(), site, describe(frames));
+            }
+        }
+        count.increment();
+    }
+
+    private static String site(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            if (frame.getMethod().getType().getName().startsWith(APPLICATION_PACKAGE)) {
+                return frameName(frame);
+            }
+        }
+        return frames.isEmpty() ? "(no stack)" : frameName(frames.get(0));
+    }
+
+    private static String describe(List<RecordedFrame> frames) {
+        return frames.stream()
+            .limit(LOGGED_FRAMES)
+            .map(frame -> "    at " + frameName(frame))
+            .collect(Collectors.joining("\n"));
+    }
+
+    private static String frameName(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -0,0 +1,40 @@
+package com.spingo.bikerental.config;
+
+import com.spingo.bikerental.CurrentUserArgumentResolver;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    // name.<10 hex>.ext as written by the build's StaticAssetPipeline. The path-pattern parser ends a capture at the
+    // first '}' and rejects '/' inside it, so the hash length is spelled out instead of written as a {10} quantifier.
+    static final String HASHED_ASSET = "{file:[\\w.-]+\\." + "[0-9a-f]".repeat(10) + "\\.[a-z0-9]+}";
+
+    private static final List<String> ASSET_DIRECTORIES = List.of("css", "js", "images");
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new CurrentUserArgumentResolver());
+    }
+
+    // Fingerprinted files never change under their name, so browsers may keep them for a year without revalidating.
+    // Everything else (the HTML pointing at them, unhashed originals) stays on Boot's /** handler and is revalidated.
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        for (String directory : ASSET_DIRECTORIES) {
+            registry.addResourceHandler("/" + directory + "/" + HASHED_ASSET)
+                .addResourceLocations("classpath:/static/" + directory + "/")
+                .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.spingo.bikerental.controller;
+
+import com.spingo.bikerental.RateLimitFilter;
+import com.spingo.bikerental.config.VirtualThreadPinningMonitor;
+import com.spingo.bikerental.service.BookingArchiveService;
+import com.spingo.bikerental.service.ChangeLog;
+import com.spingo.bikerental.service.EmailBloomFilter;
+import com.spingo.bikerental.service.ImageVariantCache;
+import com.spingo.bikerental.service.UserCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@CrossOrigin(origins = "*")
+public class AdminController {
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Autowired
+    private EmailBloomFilter emailBloomFilter;
+
+    @Autowired
+    private BookingArchiveService bookingArchiveService;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private ImageVariantCache imageVariantCache;
+
+    @Autowired
+    private VirtualThreadPinningMonitor pinningMonitor;
+
+    // In-memory cache statistics (hit ratios, sizes, evictions)
+    @GetMapping("/caches")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Map<String, Object> caches = new HashMap<>();
+        caches.put("users", userCache.getStats());
+        caches.put("rateLimitBuckets", Map.of(
+            "size", rateLimitFilter.getBucketCount(),
+            "rejected", rateLimitFilter.getRejectedCount()));
+        caches.put("emailFilter", Map.of(
+            "definiteNegatives", emailBloomFilter.getDefiniteNegatives(),
+            "fallThroughs", emailBloomFilter.getFallThroughs()));
+        caches.put("imageVariants", imageVariantCache.getStats());
+        return ResponseEntity.ok(caches);
+    }
+
+    // Drop all cached users, e.g. after editing rows directly in the database
+    @DeleteMapping("/caches/users")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, String>> clearUserCache() {
+        userCache.invalidateAll();
+        return ResponseEntity.ok(Map.of("message", "User cache cleared"));
+    }
+
+    // Booking archival progress (rows moved to bookings_archive, last run)
+    @GetMapping("/archive")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getArchiveStats() {
+        return ResponseEntity.ok(bookingArchiveService.getStats());
+    }
+
+    // Start an archival run now instead of waiting for the next scheduled one
+    @PostMapping("/archive/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, String>> runArchive() {
+        if (!bookingArchiveService.archiveNow()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Archival already in progress"));
+        }
+        return ResponseEntity.accepted().body(Map.of("message", "Archival started"));
+    }
+
+    // Change log segments, offsets and consumer checkpoints
+    @GetMapping("/changelog")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getChangeLogStats() {
+        return ResponseEntity.ok(changeLog.getStats());
+    }
+
+    // Virtual threads pinned to their carrier, by call site (virtual-threads profile on Java 21)
+    @GetMapping("/pinning")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getPinningStats() {
+        return ResponseEntity.ok(pinningMonitor.getStats());
+    }
+}
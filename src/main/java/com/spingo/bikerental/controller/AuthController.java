@@ -1,5 +1,6 @@
 package com.spingo.bikerental.controller;
 
+import com.spingo.bikerental.JwtUtil;
 import com.spingo.bikerental.User;
 import com.spingo.bikerental.UserRepository;
 import com.spingo.bikerental.UserRole;
@@ -7,10 +8,14 @@ import com.spingo.bikerental.dto.LoginRequest;
 import com.spingo.bikerental.dto.LoginResponse;
 import com.spingo.bikerental.dto.SignupRequest;
 import com.spingo.bikerental.dto.SignupResponse;
+import com.spingo.bikerental.service.EmailBloomFilter;
+import com.spingo.bikerental.service.PasswordHashingRejectedException;
+import com.spingo.bikerental.service.PasswordHashingService;
+import com.spingo.bikerental.service.UserCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
@@ -26,13 +31,22 @@ public class AuthController {
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private EmailBloomFilter emailBloomFilter;
 
     @PostMapping("/signup")
     public ResponseEntity<?> signup(@Valid @RequestBody SignupRequest signupRequest) {
         try {
             // Check if email already exists
-            if (userRepository.existsByEmail(signupRequest.getEmail())) {
+            if (emailBloomFilter.exists(signupRequest.getEmail())) {
                 return ResponseEntity.badRequest()
                     .body(new SignupResponse(false, "Email is already registered. Please use a different email address."));
             }
@@ -48,13 +62,15 @@ public class AuthController {
             user.setName(signupRequest.getName());
             user.setEmail(signupRequest.getEmail());
             user.setPhone(signupRequest.getPhone());
-            user.setPassword(passwordEncoder.encode(signupRequest.getPassword()));
+            user.setPassword(passwordHashingService.encode(signupRequest.getPassword()));
             user.setRole(signupRequest.getUserRole());
             user.setAddress(signupRequest.getAddress());
             user.setIsActive(true);
             
             // Save user to database
             User savedUser = userRepository.save(user);
+            userCache.invalidateEmail(savedUser.getEmail());
+            emailBloomFilter.add(savedUser.getEmail());
             
             // Create success response
             SignupResponse response = new SignupResponse(
@@ -71,6 +87,10 @@ public class AuthController {
             
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
             
+        } catch (PasswordHashingRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new SignupResponse(false, e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(new SignupResponse(false, "Failed to create account. Please try again later."));
@@ -97,7 +117,7 @@ public class AuthController {
             }
             
             // Verify password
-            if (!passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())) {
+            if (!passwordHashingService.matches(loginRequest.getPassword(), user.getPassword())) {
                 return ResponseEntity.badRequest()
                     .body(new LoginResponse(false, "Invalid email or password."));
             }
@@ -108,8 +128,11 @@ public class AuthController {
                     .body(new LoginResponse(false, "Invalid role selected. Please select the correct role for your account."));
             }
             
-            // Generate a simple token (in production, use JWT)
-            String token = "token_" + user.getId() + "_" + System.currentTimeMillis();
+            // Transparently move old hashes to the configured BCrypt cost
+            passwordHashingService.upgradeIfNeeded(user, loginRequest.getPassword());
+            
+            // Generate a signed JWT carrying userId and role
+            String token = jwtUtil.generateToken(user);
             
             // Create success response
             LoginResponse response = new LoginResponse(
@@ -127,6 +150,10 @@ public class AuthController {
             
             return ResponseEntity.ok(response);
             
+        } catch (PasswordHashingRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new LoginResponse(false, e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(new LoginResponse(false, "Login failed. Please try again later."));
@@ -140,7 +167,8 @@ public class AuthController {
     
     @GetMapping("/check-email/{email}")
     public ResponseEntity<Map<String, Boolean>> checkEmailExists(@PathVariable String email) {
-        boolean exists = userRepository.existsByEmail(email);
+        // Definite negatives are answered from memory without a query
+        boolean exists = emailBloomFilter.exists(email);
         return ResponseEntity.ok(Map.of("exists", exists));
     }
 }
\ No newline at end of file
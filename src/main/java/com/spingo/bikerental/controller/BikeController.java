@@ -1,17 +1,32 @@
 package com.spingo.bikerental.controller;
 
+import com.spingo.bikerental.AuthPrincipal;
 import com.spingo.bikerental.Bike;
 import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.CurrentUser;
 import com.spingo.bikerental.User;
 import com.spingo.bikerental.UserRepository;
+import com.spingo.bikerental.dto.BulkBikeImportResponse;
 import com.spingo.bikerental.dto.CreateBikeRequest;
 import com.spingo.bikerental.dto.CreateBikeResponse;
+import com.spingo.bikerental.service.BikeBulkImportService;
+import com.spingo.bikerental.service.ChangeEvent;
+import com.spingo.bikerental.service.ChangeLog;
+import com.spingo.bikerental.service.DashboardEventBus;
+import com.spingo.bikerental.service.JsonArrayStreamer;
+import com.spingo.bikerental.service.UtilizationIndex;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -27,6 +42,24 @@ public class BikeController {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private DashboardEventBus dashboardEventBus;
+    
+    @Autowired
+    private UtilizationIndex utilizationIndex;
+    
+    @Autowired
+    private BikeBulkImportService bikeBulkImportService;
+    
+    @Autowired
+    private ChangeLog changeLog;
+    
+    @Autowired
+    private JsonArrayStreamer jsonArrayStreamer;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
     @PostMapping
     public ResponseEntity<?> createBike(@Valid @RequestBody CreateBikeRequest createBikeRequest) {
         try {
@@ -47,7 +80,8 @@ public class BikeController {
             bike.setIsActive(true);
             
             // Save bike to database
-            Bike savedBike = bikeRepository.save(bike);
+            Bike savedBike = saveAndRecord(bike, ChangeEvent.Operation.CREATED);
+            utilizationIndex.bikeUpdated(savedBike);
             
             // Create success response
             CreateBikeResponse response = new CreateBikeResponse(
@@ -66,23 +100,15 @@ public class BikeController {
     
     @PostMapping("/owner")
     public ResponseEntity<?> createBikeForOwner(@Valid @RequestBody CreateBikeRequest createBikeRequest,
-                                               @RequestHeader("Authorization") String authHeader) {
+                                               @CurrentUser AuthPrincipal currentUser) {
         try {
-            // Extract user ID from token (simplified - in production use JWT)
-            Long ownerId = extractUserIdFromToken(authHeader);
-            if (ownerId == null) {
+            if (currentUser == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new CreateBikeResponse(false, "Invalid authentication token."));
             }
             
-            // Find owner user
-            Optional<User> ownerOptional = userRepository.findById(ownerId);
-            if (ownerOptional.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new CreateBikeResponse(false, "Owner not found."));
-            }
-            
-            User owner = ownerOptional.get();
+            // Owner reference from the verified principal; no lookup needed to set the foreign key
+            User owner = userRepository.getReferenceById(currentUser.getId());
             
             // Create new bike entity
             Bike bike = new Bike();
@@ -102,7 +128,8 @@ public class BikeController {
             bike.setIsActive(true);
             
             // Save bike to database
-            Bike savedBike = bikeRepository.save(bike);
+            Bike savedBike = saveAndRecord(bike, ChangeEvent.Operation.CREATED);
+            utilizationIndex.bikeUpdated(savedBike);
             
             // Create success response
             CreateBikeResponse response = new CreateBikeResponse(
@@ -119,36 +146,46 @@ public class BikeController {
         }
     }
     
-    @GetMapping
-    public ResponseEntity<?> getAllBikes() {
+    @PostMapping(value = "/owner/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, "text/csv"})
+    public ResponseEntity<?> createBikesForOwner(HttpServletRequest request,
+                                                @CurrentUser AuthPrincipal currentUser) {
         try {
-            List<Bike> bikes = bikeRepository.findByIsActiveTrue();
-            return ResponseEntity.ok(bikes);
+            if (currentUser == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Invalid authentication token"));
+            }
+            
+            // Body is read as a stream; rows are validated and saved in chunks as they arrive
+            BulkBikeImportResponse report = MediaType.APPLICATION_JSON.includes(MediaType.parseMediaType(request.getContentType()))
+                ? bikeBulkImportService.importJson(request.getInputStream(), currentUser.getId())
+                : bikeBulkImportService.importCsv(request.getInputStream(), currentUser.getId());
+            
+            return ResponseEntity.ok(report);
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Failed to fetch bikes"));
+                .body(Map.of("error", "Failed to import bikes"));
         }
     }
     
+    // The whole catalog is streamed from a cursor; the query runs after the headers are sent
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> getAllBikes() {
+        return jsonArrayStreamer.stream(bikeRepository::streamByIsActiveTrue);
+    }
+    
     @GetMapping("/owner")
-    public ResponseEntity<?> getOwnerBikes(@RequestHeader("Authorization") String authHeader) {
+    public ResponseEntity<?> getOwnerBikes(@CurrentUser AuthPrincipal currentUser) {
         try {
-            // Extract user ID from token
-            Long ownerId = extractUserIdFromToken(authHeader);
-            if (ownerId == null) {
+            if (currentUser == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid authentication token"));
             }
             
-            // Find owner user
-            Optional<User> ownerOptional = userRepository.findById(ownerId);
-            if (ownerOptional.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Owner not found"));
-            }
-            
-            User owner = ownerOptional.get();
-            List<Bike> bikes = bikeRepository.findByOwnerAndIsActiveTrue(owner);
+            List<Bike> bikes = bikeRepository.findByOwnerIdAndIsActiveTrue(currentUser.getId());
             
             return ResponseEntity.ok(bikes);
             
@@ -179,54 +216,61 @@ public class BikeController {
     @PutMapping("/{id}")
     public ResponseEntity<?> updateBike(@PathVariable Long id, 
                                        @Valid @RequestBody CreateBikeRequest updateRequest,
-                                       @RequestHeader("Authorization") String authHeader) {
+                                       @CurrentUser AuthPrincipal currentUser) {
         try {
-            // Extract user ID from token
-            Long ownerId = extractUserIdFromToken(authHeader);
-            if (ownerId == null) {
+            if (currentUser == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(new CreateBikeResponse(false, "Invalid authentication token."));
             }
             
-            // Find bike
-            Optional<Bike> bikeOptional = bikeRepository.findById(id);
-            if (bikeOptional.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new CreateBikeResponse(false, "Bike not found."));
-            }
-            
-            Bike bike = bikeOptional.get();
-            
-            // Check if user owns this bike
-            if (bike.getOwner() == null || !bike.getOwner().getId().equals(ownerId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(new CreateBikeResponse(false, "You don't have permission to update this bike."));
-            }
-            
-            // Update bike fields
-            bike.setBrand(updateRequest.getBrand());
-            bike.setModel(updateRequest.getModel());
-            bike.setYear(updateRequest.getYear());
-            bike.setType(updateRequest.getType());
-            bike.setCity(updateRequest.getCity());
-            bike.setPricePerHour(updateRequest.getPricePerHour());
-            bike.setPricePerDay(updateRequest.getPricePerDay());
-            bike.setPricePerMonth(updateRequest.getPricePerMonth());
-            bike.setDescription(updateRequest.getDescription());
-            bike.setImageUrl(updateRequest.getImageUrl());
-            
-            // Save updated bike
-            Bike updatedBike = bikeRepository.save(bike);
-            
-            // Create success response
-            CreateBikeResponse response = new CreateBikeResponse(
-                updatedBike, 
-                "Bike updated successfully!", 
-                true
-            );
-            
-            return ResponseEntity.ok(response);
-            
+            // Ownership check and update in one read-write transaction, both on the primary's current row
+            List<Runnable> afterCommit = new ArrayList<>();
+            ResponseEntity<?> response = transactionTemplate.execute(status -> {
+                // Find bike
+                Optional<Bike> bikeOptional = bikeRepository.findById(id);
+                if (bikeOptional.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new CreateBikeResponse(false, "Bike not found."));
+                }
+                
+                Bike bike = bikeOptional.get();
+                
+                // Check if user owns this bike
+                if (bike.getOwner() == null || !bike.getOwner().getId().equals(currentUser.getId())) {
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(new CreateBikeResponse(false, "You don't have permission to update this bike."));
+                }
+                
+                // Update bike fields
+                bike.setBrand(updateRequest.getBrand());
+                bike.setModel(updateRequest.getModel());
+                bike.setYear(updateRequest.getYear());
+                bike.setType(updateRequest.getType());
+                bike.setCity(updateRequest.getCity());
+                bike.setPricePerHour(updateRequest.getPricePerHour());
+                bike.setPricePerDay(updateRequest.getPricePerDay());
+                bike.setPricePerMonth(updateRequest.getPricePerMonth());
+                bike.setDescription(updateRequest.getDescription());
+                bike.setImageUrl(updateRequest.getImageUrl());
+                
+                // Save updated bike
+                Bike updatedBike = saveAndRecord(bike, ChangeEvent.Operation.UPDATED);
+                afterCommit.add(() -> utilizationIndex.bikeUpdated(updatedBike));
+                
+                // Create success response
+                return ResponseEntity.ok(new CreateBikeResponse(
+                    updatedBike, 
+                    "Bike updated successfully!", 
+                    true
+                ));
+            });
+            afterCommit.forEach(Runnable::run);
+            
+            return response;
+            
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new CreateBikeResponse(false, "Bike was changed by another request. Please reload and try again."));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(new CreateBikeResponse(false, "Failed to update bike. Please try again later."));
@@ -236,46 +280,56 @@ public class BikeController {
     @PatchMapping("/{id}/status")
     public ResponseEntity<?> updateBikeStatus(@PathVariable Long id,
                                              @RequestBody Map<String, String> statusRequest,
-                                             @RequestHeader("Authorization") String authHeader) {
+                                             @CurrentUser AuthPrincipal currentUser) {
         try {
-            // Extract user ID from token
-            Long ownerId = extractUserIdFromToken(authHeader);
-            if (ownerId == null) {
+            if (currentUser == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid authentication token"));
             }
             
-            // Find bike
-            Optional<Bike> bikeOptional = bikeRepository.findById(id);
-            if (bikeOptional.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Bike not found"));
-            }
-            
-            Bike bike = bikeOptional.get();
-            
-            // Check if user owns this bike
-            if (bike.getOwner() == null || !bike.getOwner().getId().equals(ownerId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("error", "You don't have permission to update this bike"));
-            }
-            
-            // Update status
-            String newStatus = statusRequest.get("status");
-            if (newStatus != null) {
-                try {
-                    bike.setStatus(com.spingo.bikerental.BikeStatus.valueOf(newStatus));
-                    bikeRepository.save(bike);
-                    return ResponseEntity.ok(Map.of("message", "Bike status updated successfully"));
-                } catch (IllegalArgumentException e) {
-                    return ResponseEntity.badRequest()
-                        .body(Map.of("error", "Invalid status value"));
+            // Ownership check and update in one read-write transaction, both on the primary's current row
+            List<Runnable> afterCommit = new ArrayList<>();
+            ResponseEntity<?> response = transactionTemplate.execute(status -> {
+                // Find bike
+                Optional<Bike> bikeOptional = bikeRepository.findById(id);
+                if (bikeOptional.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Bike not found"));
                 }
-            }
+                
+                Bike bike = bikeOptional.get();
+                
+                // Check if user owns this bike
+                if (bike.getOwner() == null || !bike.getOwner().getId().equals(currentUser.getId())) {
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "You don't have permission to update this bike"));
+                }
+                
+                // Update status
+                String newStatus = statusRequest.get("status");
+                if (newStatus != null) {
+                    try {
+                        com.spingo.bikerental.BikeStatus previousStatus = bike.getStatus();
+                        bike.setStatus(com.spingo.bikerental.BikeStatus.valueOf(newStatus));
+                        saveAndRecord(bike, ChangeEvent.Operation.UPDATED);
+                        afterCommit.add(() -> dashboardEventBus.bikeStatusChanged(bike, previousStatus));
+                        return ResponseEntity.ok(Map.of("message", "Bike status updated successfully"));
+                    } catch (IllegalArgumentException e) {
+                        return ResponseEntity.badRequest()
+                            .body(Map.of("error", "Invalid status value"));
+                    }
+                }
+                
+                return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Status is required"));
+            });
+            afterCommit.forEach(Runnable::run);
             
-            return ResponseEntity.badRequest()
-                .body(Map.of("error", "Status is required"));
+            return response;
             
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Bike was changed by another request. Please reload and try again."));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Failed to update bike status"));
@@ -284,36 +338,45 @@ public class BikeController {
     
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteBike(@PathVariable Long id,
-                                       @RequestHeader("Authorization") String authHeader) {
+                                       @CurrentUser AuthPrincipal currentUser) {
         try {
-            // Extract user ID from token
-            Long ownerId = extractUserIdFromToken(authHeader);
-            if (ownerId == null) {
+            if (currentUser == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Invalid authentication token"));
             }
             
-            // Find bike
-            Optional<Bike> bikeOptional = bikeRepository.findById(id);
-            if (bikeOptional.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Bike not found"));
-            }
-            
-            Bike bike = bikeOptional.get();
-            
-            // Check if user owns this bike
-            if (bike.getOwner() == null || !bike.getOwner().getId().equals(ownerId)) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(Map.of("error", "You don't have permission to delete this bike"));
-            }
-            
-            // Soft delete by setting isActive to false
-            bike.setIsActive(false);
-            bikeRepository.save(bike);
-            
-            return ResponseEntity.ok(Map.of("message", "Bike deleted successfully"));
-            
+            // Ownership check and soft delete in one read-write transaction, both on the primary's current row
+            List<Runnable> afterCommit = new ArrayList<>();
+            ResponseEntity<?> response = transactionTemplate.execute(status -> {
+                // Find bike
+                Optional<Bike> bikeOptional = bikeRepository.findById(id);
+                if (bikeOptional.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Bike not found"));
+                }
+                
+                Bike bike = bikeOptional.get();
+                
+                // Check if user owns this bike
+                if (bike.getOwner() == null || !bike.getOwner().getId().equals(currentUser.getId())) {
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "You don't have permission to delete this bike"));
+                }
+                
+                // Soft delete by setting isActive to false
+                bike.setIsActive(false);
+                saveAndRecord(bike, ChangeEvent.Operation.UPDATED);
+                afterCommit.add(() -> utilizationIndex.bikeUpdated(bike));
+                
+                return ResponseEntity.ok(Map.of("message", "Bike deleted successfully"));
+            });
+            afterCommit.forEach(Runnable::run);
+            
+            return response;
+            
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Bike was changed by another request. Please reload and try again."));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Failed to delete bike"));
@@ -325,22 +388,12 @@ public class BikeController {
         return ResponseEntity.ok(Map.of("status", "UP", "service", "bike-service"));
     }
     
-    // Helper method to extract user ID from token (simplified implementation)
-    private Long extractUserIdFromToken(String authHeader) {
-        try {
-            if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                String token = authHeader.substring(7);
-                // Simple token parsing - in production, use proper JWT parsing
-                if (token.startsWith("token_")) {
-                    String[] parts = token.split("_");
-                    if (parts.length >= 2) {
-                        return Long.parseLong(parts[1]);
-                    }
-                }
-            }
-            return null;
-        } catch (Exception e) {
-            return null;
-        }
+    // The bike row and its change log record commit together; joins the caller's transaction if there is one
+    private Bike saveAndRecord(Bike bike, ChangeEvent.Operation operation) {
+        return transactionTemplate.execute(status -> {
+            Bike saved = bikeRepository.save(bike);
+            changeLog.record(ChangeEvent.of(saved, operation));
+            return saved;
+        });
     }
 }
\ No newline at end of file
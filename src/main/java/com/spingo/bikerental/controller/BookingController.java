@@ -1,17 +1,32 @@
 package com.spingo.bikerental.controller;
 
+import com.spingo.bikerental.ArchivedBooking;
+import com.spingo.bikerental.ArchivedBookingRepository;
+import com.spingo.bikerental.AuthPrincipal;
 import com.spingo.bikerental.Booking;
 import com.spingo.bikerental.BookingRepository;
 import com.spingo.bikerental.BookingStatus;
 import com.spingo.bikerental.Bike;
 import com.spingo.bikerental.BikeRepository;
 import com.spingo.bikerental.BikeStatus;
+import com.spingo.bikerental.CurrentUser;
 import com.spingo.bikerental.User;
 import com.spingo.bikerental.UserRepository;
+import com.spingo.bikerental.service.BookingArchiveService;
+import com.spingo.bikerental.service.ChangeEvent;
+import com.spingo.bikerental.service.ChangeLog;
+import com.spingo.bikerental.service.DashboardEventBus;
+import com.spingo.bikerental.service.JsonArrayStreamer;
+import com.spingo.bikerental.service.UserCache;
+import com.spingo.bikerental.service.UtilizationIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
@@ -35,19 +50,46 @@ public class BookingController {
     @Autowired
     private UserRepository userRepository;
 
-    // Get all bookings (logged-in users only)
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private DashboardEventBus dashboardEventBus;
+
+    @Autowired
+    private UtilizationIndex utilizationIndex;
+
+    @Autowired
+    private ArchivedBookingRepository archivedBookingRepository;
+
+    @Autowired
+    private BookingArchiveService bookingArchiveService;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private JsonArrayStreamer jsonArrayStreamer;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Get all bookings (logged-in users only), streamed from a cursor
     @GetMapping
     @PreAuthorize("hasAnyRole('CUSTOMER', 'ADMIN', 'INDIVIDUAL_OWNER', 'RENTAL_BUSINESS', 'DELIVERY_PARTNER')")
-    public ResponseEntity<List<Booking>> getAllBookings() {
-        List<Booking> bookings = bookingRepository.findAll();
-        return ResponseEntity.ok(bookings);
+    public ResponseEntity<StreamingResponseBody> getAllBookings() {
+        return jsonArrayStreamer.stream(bookingRepository::streamAllBy);
     }
 
     // Get booking by ID
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('CUSTOMER', 'ADMIN', 'INDIVIDUAL_OWNER', 'RENTAL_BUSINESS', 'DELIVERY_PARTNER')")
-    public ResponseEntity<Booking> getBookingById(@PathVariable Long id) {
+    public ResponseEntity<Booking> getBookingById(@PathVariable Long id,
+                                                  @RequestParam(defaultValue = "false") boolean includeArchived) {
         Optional<Booking> booking = bookingRepository.findById(id);
+        if (booking.isEmpty() && includeArchived) {
+            booking = archivedBookingRepository.findById(id).map(ArchivedBooking::toBooking);
+        }
         return booking.map(ResponseEntity::ok)
                      .orElse(ResponseEntity.notFound().build());
     }
@@ -55,26 +97,21 @@ public class BookingController {
     // Create new booking
     @PostMapping
     @PreAuthorize("hasAnyRole('CUSTOMER', 'ADMIN', 'INDIVIDUAL_OWNER', 'RENTAL_BUSINESS', 'DELIVERY_PARTNER')")
-    public ResponseEntity<?> createBooking(@Valid @RequestBody BookingRequest bookingRequest) {
+    public ResponseEntity<?> createBooking(@Valid @RequestBody BookingRequest bookingRequest,
+                                           @CurrentUser AuthPrincipal currentUser) {
         try {
-            // Validate user exists
-            Optional<User> userOptional = userRepository.findById(bookingRequest.getUserId());
-            if (userOptional.isEmpty()) {
-                return ResponseEntity.badRequest()
-                    .body(Map.of("error", "User not found with ID: " + bookingRequest.getUserId()));
+            // Default to the authenticated user; only other users' ids need a lookup
+            Long userId = bookingRequest.getUserId() != null ? bookingRequest.getUserId()
+                : currentUser != null ? currentUser.getId() : null;
+            Optional<User> userOptional;
+            if (currentUser != null && currentUser.getId().equals(userId)) {
+                userOptional = Optional.of(userRepository.getReferenceById(userId));
+            } else {
+                userOptional = userCache.findById(userId);
             }
-
-            // Validate bike exists and is available
-            Optional<Bike> bikeOptional = bikeRepository.findById(bookingRequest.getBikeId());
-            if (bikeOptional.isEmpty()) {
-                return ResponseEntity.badRequest()
-                    .body(Map.of("error", "Bike not found with ID: " + bookingRequest.getBikeId()));
-            }
-
-            Bike bike = bikeOptional.get();
-            if (bike.getStatus() != BikeStatus.AVAILABLE) {
+            if (userOptional.isEmpty()) {
                 return ResponseEntity.badRequest()
-                    .body(Map.of("error", "Bike is not available. Current status: " + bike.getStatus()));
+                    .body(Map.of("error", "User not found with ID: " + userId));
             }
 
             // Validate dates
@@ -88,30 +125,60 @@ public class BookingController {
                     .body(Map.of("error", "Pickup date cannot be after dropoff date"));
             }
 
-            // Calculate total price based on time difference
-            BigDecimal totalPrice = calculateTotalPrice(
-                bookingRequest.getPickupDate(),
-                bookingRequest.getDropoffDate(),
-                bike.getPricePerHour()
-            );
+            // Availability is checked and the bike booked in one read-write transaction, so the check reads the
+            // primary's current row; the change log records commit with the rows
+            ResponseEntity<?> response = transactionTemplate.execute(status -> {
+                Optional<Bike> bikeOptional = bikeRepository.findById(bookingRequest.getBikeId());
+                if (bikeOptional.isEmpty()) {
+                    return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Bike not found with ID: " + bookingRequest.getBikeId()));
+                }
 
-            // Create booking
-            Booking booking = new Booking();
-            booking.setUser(userOptional.get());
-            booking.setBike(bike);
-            booking.setPickupDate(bookingRequest.getPickupDate());
-            booking.setDropoffDate(bookingRequest.getDropoffDate());
-            booking.setPickupTime(bookingRequest.getPickupTime());
-            booking.setDropTime(bookingRequest.getDropTime());
-            booking.setTotalPrice(totalPrice);
-            booking.setStatus(BookingStatus.PENDING);
+                Bike bike = bikeOptional.get();
+                if (bike.getStatus() != BikeStatus.AVAILABLE) {
+                    return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Bike is not available. Current status: " + bike.getStatus()));
+                }
 
-            // Update bike status to BOOKED
-            bike.setStatus(BikeStatus.BOOKED);
-            bikeRepository.save(bike);
+                // Calculate total price based on time difference
+                BigDecimal totalPrice = calculateTotalPrice(
+                    bookingRequest.getPickupDate(),
+                    bookingRequest.getDropoffDate(),
+                    bike.getPricePerHour()
+                );
+
+                // Create booking
+                Booking booking = new Booking();
+                booking.setUser(userOptional.get());
+                booking.setBike(bike);
+                booking.setPickupDate(bookingRequest.getPickupDate());
+                booking.setDropoffDate(bookingRequest.getDropoffDate());
+                booking.setPickupTime(bookingRequest.getPickupTime());
+                booking.setDropTime(bookingRequest.getDropTime());
+                booking.setTotalPrice(totalPrice);
+                booking.setStatus(BookingStatus.PENDING);
+
+                // Update bike status to BOOKED
+                bike.setStatus(BikeStatus.BOOKED);
+                bikeRepository.save(bike);
+                Booking saved = bookingRepository.save(booking);
+                changeLog.record(ChangeEvent.of(bike, ChangeEvent.Operation.UPDATED));
+                changeLog.record(ChangeEvent.of(saved, ChangeEvent.Operation.CREATED));
+                return ResponseEntity.ok(saved);
+            });
+
+            if (response.getBody() instanceof Booking savedBooking) {
+                // Push deltas to connected dashboards
+                dashboardEventBus.bikeStatusChanged(savedBooking.getBike(), BikeStatus.AVAILABLE);
+                dashboardEventBus.bookingCreated(savedBooking);
+                utilizationIndex.bookingCreated(savedBooking);
+            }
 
-            Booking savedBooking = bookingRepository.save(booking);
-            return ResponseEntity.ok(savedBooking);
+            return response;
+        } catch (OptimisticLockingFailureException e) {
+            // Another request booked or changed the bike between our read and our write
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Bike was just booked by someone else"));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                 .body(Map.of("error", "Failed to create booking: " + e.getMessage()));
@@ -122,28 +189,37 @@ public class BookingController {
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('CUSTOMER', 'ADMIN', 'INDIVIDUAL_OWNER', 'RENTAL_BUSINESS', 'DELIVERY_PARTNER')")
     public ResponseEntity<Booking> updateBooking(@PathVariable Long id, @Valid @RequestBody BookingRequest bookingRequest) {
-        Optional<Booking> bookingOptional = bookingRepository.findById(id);
-        if (bookingOptional.isEmpty()) {
+        // Read and written in one read-write transaction, so the update starts from the primary's row
+        Booking updatedBooking = transactionTemplate.execute(status -> {
+            Optional<Booking> bookingOptional = bookingRepository.findById(id);
+            if (bookingOptional.isEmpty()) {
+                return null;
+            }
+
+            Booking booking = bookingOptional.get();
+
+            // Update fields
+            booking.setPickupDate(bookingRequest.getPickupDate());
+            booking.setDropoffDate(bookingRequest.getDropoffDate());
+            booking.setPickupTime(bookingRequest.getPickupTime());
+            booking.setDropTime(bookingRequest.getDropTime());
+
+            // Recalculate total price
+            BigDecimal totalPrice = calculateTotalPrice(
+                bookingRequest.getPickupDate(),
+                bookingRequest.getDropoffDate(),
+                booking.getBike().getPricePerHour()
+            );
+            booking.setTotalPrice(totalPrice);
+
+            Booking saved = bookingRepository.save(booking);
+            changeLog.record(ChangeEvent.of(saved, ChangeEvent.Operation.UPDATED));
+            return saved;
+        });
+        if (updatedBooking == null) {
             return ResponseEntity.notFound().build();
         }
-
-        Booking booking = bookingOptional.get();
-        
-        // Update fields
-        booking.setPickupDate(bookingRequest.getPickupDate());
-        booking.setDropoffDate(bookingRequest.getDropoffDate());
-        booking.setPickupTime(bookingRequest.getPickupTime());
-        booking.setDropTime(bookingRequest.getDropTime());
-        
-        // Recalculate total price
-        BigDecimal totalPrice = calculateTotalPrice(
-            bookingRequest.getPickupDate(),
-            bookingRequest.getDropoffDate(),
-            booking.getBike().getPricePerHour()
-        );
-        booking.setTotalPrice(totalPrice);
-
-        Booking updatedBooking = bookingRepository.save(booking);
+        utilizationIndex.bookingChanged(updatedBooking);
         return ResponseEntity.ok(updatedBooking);
     }
 
@@ -151,45 +227,80 @@ public class BookingController {
     @PutMapping("/{id}/cancel")
     @PreAuthorize("hasAnyRole('CUSTOMER', 'ADMIN', 'INDIVIDUAL_OWNER', 'RENTAL_BUSINESS', 'DELIVERY_PARTNER')")
     public ResponseEntity<Booking> cancelBooking(@PathVariable Long id) {
-        Optional<Booking> bookingOptional = bookingRepository.findById(id);
-        if (bookingOptional.isEmpty()) {
+        // Read and written in one read-write transaction, so the statuses come from the primary's rows
+        Cancellation cancellation = transactionTemplate.execute(status -> {
+            Optional<Booking> bookingOptional = bookingRepository.findById(id);
+            if (bookingOptional.isEmpty()) {
+                return null;
+            }
+
+            Booking booking = bookingOptional.get();
+            BookingStatus previousStatus = booking.getStatus();
+            booking.setStatus(BookingStatus.CANCELLED);
+
+            // Update bike status back to AVAILABLE
+            Bike bike = booking.getBike();
+            BikeStatus previousBikeStatus = bike.getStatus();
+            bike.setStatus(BikeStatus.AVAILABLE);
+            bikeRepository.save(bike);
+            Booking saved = bookingRepository.save(booking);
+            changeLog.record(ChangeEvent.of(bike, ChangeEvent.Operation.UPDATED));
+            changeLog.record(ChangeEvent.of(saved, ChangeEvent.Operation.UPDATED));
+            return new Cancellation(saved, previousStatus, previousBikeStatus);
+        });
+        if (cancellation == null) {
             return ResponseEntity.notFound().build();
         }
 
-        Booking booking = bookingOptional.get();
-        booking.setStatus(BookingStatus.CANCELLED);
-
-        // Update bike status back to AVAILABLE
-        Bike bike = booking.getBike();
-        bike.setStatus(BikeStatus.AVAILABLE);
-        bikeRepository.save(bike);
+        // Push deltas to connected dashboards
+        Booking updatedBooking = cancellation.booking();
+        dashboardEventBus.bikeStatusChanged(updatedBooking.getBike(), cancellation.previousBikeStatus());
+        dashboardEventBus.bookingCancelled(updatedBooking, cancellation.previousStatus());
+        utilizationIndex.bookingChanged(updatedBooking);
 
-        Booking updatedBooking = bookingRepository.save(booking);
         return ResponseEntity.ok(updatedBooking);
     }
 
+    // A committed cancellation and the statuses it replaced, for the dashboard deltas
+    private record Cancellation(Booking booking, BookingStatus previousStatus, BikeStatus previousBikeStatus) {
+    }
+
     // Get bookings by user ID
     @GetMapping("/user/{userId}")
     @PreAuthorize("hasAnyRole('CUSTOMER', 'ADMIN', 'INDIVIDUAL_OWNER', 'RENTAL_BUSINESS', 'DELIVERY_PARTNER')")
-    public ResponseEntity<List<Booking>> getBookingsByUserId(@PathVariable Long userId) {
+    public ResponseEntity<List<Booking>> getBookingsByUserId(@PathVariable Long userId,
+                                                             @RequestParam(defaultValue = "false") boolean includeArchived) {
         List<Booking> bookings = bookingRepository.findByUserId(userId);
+        if (includeArchived) {
+            bookings = bookingArchiveService.withArchived(bookings,
+                archivedBookingRepository.findByUserIdOrderByCreatedAtDesc(userId));
+        }
         return ResponseEntity.ok(bookings);
     }
 
     // Get bookings by bike ID
     @GetMapping("/bike/{bikeId}")
     @PreAuthorize("hasAnyRole('ADMIN', 'INDIVIDUAL_OWNER', 'RENTAL_BUSINESS', 'DELIVERY_PARTNER')")
-    public ResponseEntity<List<Booking>> getBookingsByBikeId(@PathVariable Long bikeId) {
+    public ResponseEntity<List<Booking>> getBookingsByBikeId(@PathVariable Long bikeId,
+                                                             @RequestParam(defaultValue = "false") boolean includeArchived) {
         List<Booking> bookings = bookingRepository.findByBikeId(bikeId);
+        if (includeArchived) {
+            bookings = bookingArchiveService.withArchived(bookings, archivedBookingRepository.findByBikeId(bikeId));
+        }
         return ResponseEntity.ok(bookings);
     }
 
     // Get bookings by status
     @GetMapping("/status/{status}")
     @PreAuthorize("hasAnyRole('ADMIN', 'INDIVIDUAL_OWNER', 'RENTAL_BUSINESS', 'DELIVERY_PARTNER')")
-    public ResponseEntity<List<Booking>> getBookingsByStatus(@PathVariable BookingStatus status) {
-        List<Booking> bookings = bookingRepository.findByStatus(status);
-        return ResponseEntity.ok(bookings);
+    public ResponseEntity<StreamingResponseBody> getBookingsByStatus(@PathVariable BookingStatus status,
+                                                                     @RequestParam(defaultValue = "false") boolean includeArchived) {
+        if (!includeArchived) {
+            return jsonArrayStreamer.stream(() -> bookingRepository.streamByStatus(status));
+        }
+        // Merging with the archive needs both sides sorted, so this path still builds the list before writing it
+        return jsonArrayStreamer.stream(() -> bookingArchiveService.withArchived(
+            bookingRepository.findByStatus(status), archivedBookingRepository.findByStatus(status)).stream());
     }
 
     // Helper method to calculate total price
@@ -1,23 +1,33 @@
 package com.spingo.bikerental.controller;
 
+import com.spingo.bikerental.ArchivedBookingRepository;
+import com.spingo.bikerental.AuthPrincipal;
 import com.spingo.bikerental.Booking;
 import com.spingo.bikerental.BookingRepository;
 import com.spingo.bikerental.BookingStatus;
 import com.spingo.bikerental.Bike;
 import com.spingo.bikerental.BikeRepository;
 import com.spingo.bikerental.BikeStatus;
-import com.spingo.bikerental.User;
+import com.spingo.bikerental.CurrentUser;
 import com.spingo.bikerental.UserRepository;
 import com.spingo.bikerental.UserRole;
+import com.spingo.bikerental.dto.DashboardResponse;
+import com.spingo.bikerental.service.DashboardEventBus;
+import com.spingo.bikerental.service.UserCache;
+import com.spingo.bikerental.service.UtilizationIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/dashboard")
@@ -33,22 +43,107 @@ public class DashboardController {
     @Autowired
     private BookingRepository bookingRepository;
 
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private DashboardEventBus dashboardEventBus;
+
+    @Autowired
+    private UtilizationIndex utilizationIndex;
+
+    @Autowired
+    private ArchivedBookingRepository archivedBookingRepository;
+
+    // Hour-of-week occupancy heatmaps (rows Monday..Sunday, columns 0..23h), per bike or per city. Owners and
+    // businesses see their own bikes only: another owner's bike is 403 and city aggregates cover just their fleet.
+    @GetMapping("/utilization")
+    @PreAuthorize("hasAnyRole('ADMIN', 'INDIVIDUAL_OWNER', 'RENTAL_BUSINESS')")
+    public ResponseEntity<?> getUtilization(@RequestParam(required = false) Long bikeId,
+                                            @RequestParam(required = false) String city,
+                                            @CurrentUser AuthPrincipal currentUser) {
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of("error", "Authentication required"));
+        }
+        boolean admin = currentUser.getRole() == UserRole.ADMIN;
+        Map<String, Object> utilization = new HashMap<>();
+        utilization.put("slotMinutes", UtilizationIndex.SLOT_MINUTES);
+
+        if (bikeId != null) {
+            if (!admin) {
+                Optional<Bike> bike = bikeRepository.findById(bikeId);
+                if (bike.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Bike not found"));
+                }
+                if (bike.get().getOwner() == null || !currentUser.getId().equals(bike.get().getOwner().getId())) {
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "You can only view utilization of your own bikes"));
+                }
+            }
+            double[][] heatmap = utilizationIndex.bikeHeatmap(bikeId);
+            if (heatmap == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Bike not found"));
+            }
+            utilization.put("bikeId", bikeId);
+            utilization.put("heatmap", heatmap);
+        } else {
+            Map<String, double[][]> cities = admin ? utilizationIndex.cityHeatmaps()
+                : utilizationIndex.cityHeatmaps(bikeRepository.findByOwnerIdAndIsActiveTrue(currentUser.getId())
+                    .stream().map(Bike::getId).toList());
+            if (city != null) {
+                cities.keySet().retainAll(List.of(city));
+            }
+            utilization.put("cities", cities);
+        }
+
+        utilization.put("windowStart", utilizationIndex.getWindowStart());
+        utilization.put("windowWeeks", utilizationIndex.getWindowWeeks());
+        return ResponseEntity.ok(utilization);
+    }
+
+    // Live dashboard deltas (Server-Sent Events); admins may omit ownerId for the fleet-wide feed, owners and
+    // businesses always get their own bikes. The declared SseEmitter body type is what routes the return value
+    // to the streaming handler; errors carry no body since EventSource clients cannot read it anyway.
+    @GetMapping("/stream")
+    @PreAuthorize("hasAnyRole('ADMIN', 'INDIVIDUAL_OWNER', 'RENTAL_BUSINESS')")
+    public ResponseEntity<SseEmitter> streamDashboard(@RequestParam(required = false) Long ownerId,
+                                                      @CurrentUser AuthPrincipal currentUser) {
+        if (currentUser == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (currentUser.getRole() != UserRole.ADMIN) {
+            ownerId = currentUser.getId();
+        }
+        try {
+            return ResponseEntity.ok(dashboardEventBus.subscribe(ownerId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .build();
+        }
+    }
+
     // Customer Dashboard
     @GetMapping("/customer")
     @PreAuthorize("hasRole('CUSTOMER')")
-    public ResponseEntity<?> getCustomerDashboard(@RequestParam Long userId) {
+    public ResponseEntity<?> getCustomerDashboard(@RequestParam(required = false) Long userId,
+                                                  @CurrentUser AuthPrincipal currentUser) {
         try {
-            Map<String, Object> dashboard = new HashMap<>();
+            DashboardResponse dashboard = new DashboardResponse();
+            userId = resolveUserId(userId, currentUser);
             
-            // Validate user exists
-            if (!userRepository.existsById(userId)) {
+            // Validate user exists (the authenticated user is known to exist)
+            if (userId == null || (!isCurrentUser(userId, currentUser) && userCache.findById(userId).isEmpty())) {
                 return ResponseEntity.badRequest()
                     .body(Map.of("error", "User not found with ID: " + userId));
             }
             
-            // Get user's bookings
+            // Get user's bookings; lifetime totals also count the archived ones
             List<Booking> userBookings = bookingRepository.findByUserId(userId);
-            dashboard.put("totalBookings", userBookings.size());
+            dashboard.put("totalBookings", userBookings.size() + archivedBookingRepository.countByUserId(userId));
             dashboard.put("activeBookings", (long) userBookings.stream()
                 .filter(b -> b.getStatus() == BookingStatus.CONFIRMED || b.getStatus() == BookingStatus.ACTIVE)
                 .count());
@@ -58,7 +153,8 @@ public class DashboardController {
             BigDecimal totalSpent = userBookings.stream()
                 .filter(b -> b.getStatus() == BookingStatus.COMPLETED)
                 .map(Booking::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .add(archivedBookingRepository.sumTotalPriceByUserIdAndStatus(userId, BookingStatus.COMPLETED));
             dashboard.put("totalSpent", totalSpent);
             
             return ResponseEntity.ok(dashboard);
@@ -71,40 +167,34 @@ public class DashboardController {
     // Admin Dashboard
     @GetMapping("/admin")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getAdminDashboard() {
-        Map<String, Object> dashboard = new HashMap<>();
+    public ResponseEntity<DashboardResponse> getAdminDashboard() {
+        DashboardResponse dashboard = new DashboardResponse();
         
-        // User statistics
-        List<User> allUsers = userRepository.findAll();
-        dashboard.put("totalUsers", allUsers.size());
-        dashboard.put("activeUsers", userRepository.findByIsActiveTrue().size());
+        // Counts and sums are computed by the database; no entity lists are loaded
+        dashboard.put("totalUsers", userRepository.count());
+        dashboard.put("activeUsers", userRepository.countByIsActiveTrue());
         
         // User counts by role
         Map<UserRole, Long> usersByRole = new HashMap<>();
         for (UserRole role : UserRole.values()) {
-            usersByRole.put(role, (long) userRepository.findByRole(role).size());
+            usersByRole.put(role, userRepository.countByRole(role));
         }
         dashboard.put("usersByRole", usersByRole);
         
         // Bike statistics
-        List<Bike> allBikes = bikeRepository.findAll();
-        dashboard.put("totalBikes", allBikes.size());
-        dashboard.put("availableBikes", bikeRepository.findByStatus(BikeStatus.AVAILABLE).size());
-        dashboard.put("bookedBikes", bikeRepository.findByStatus(BikeStatus.BOOKED).size());
-        
-        // Booking statistics
-        List<Booking> allBookings = bookingRepository.findAll();
-        dashboard.put("totalBookings", allBookings.size());
-        dashboard.put("pendingBookings", bookingRepository.findByStatus(BookingStatus.PENDING).size());
-        dashboard.put("activeBookings", bookingRepository.findByStatus(BookingStatus.ACTIVE).size());
-        dashboard.put("completedBookings", bookingRepository.findByStatus(BookingStatus.COMPLETED).size());
+        dashboard.put("totalBikes", bikeRepository.count());
+        dashboard.put("availableBikes", bikeRepository.countByStatus(BikeStatus.AVAILABLE));
+        dashboard.put("bookedBikes", bikeRepository.countByStatus(BikeStatus.BOOKED));
+        
+        // Booking statistics (archived bookings are all COMPLETED or CANCELLED)
+        dashboard.put("totalBookings", bookingRepository.count() + archivedBookingRepository.count());
+        dashboard.put("pendingBookings", bookingRepository.countByStatus(BookingStatus.PENDING));
+        dashboard.put("activeBookings", bookingRepository.countByStatus(BookingStatus.ACTIVE));
+        dashboard.put("completedBookings", bookingRepository.countByStatus(BookingStatus.COMPLETED)
+            + archivedBookingRepository.countByStatus(BookingStatus.COMPLETED));
         
         // Revenue calculation
-        BigDecimal totalRevenue = allBookings.stream()
-            .filter(b -> b.getStatus() == BookingStatus.COMPLETED)
-            .map(Booking::getTotalPrice)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        dashboard.put("totalRevenue", totalRevenue);
+        dashboard.put("totalRevenue", completedRevenue());
         
         return ResponseEntity.ok(dashboard);
     }
@@ -112,17 +202,18 @@ public class DashboardController {
     // Individual Owner Dashboard
     @GetMapping("/owner")
     @PreAuthorize("hasRole('INDIVIDUAL_OWNER')")
-    public ResponseEntity<Map<String, Object>> getOwnerDashboard(@RequestParam Long userId) {
-        Map<String, Object> dashboard = new HashMap<>();
+    public ResponseEntity<DashboardResponse> getOwnerDashboard(@RequestParam(required = false) Long userId,
+                                                                 @CurrentUser AuthPrincipal currentUser) {
+        DashboardResponse dashboard = new DashboardResponse();
         
         // Get owner
-        User owner = userRepository.findById(userId).orElse(null);
-        if (owner == null) {
+        userId = resolveUserId(userId, currentUser);
+        if (userId == null || (!isCurrentUser(userId, currentUser) && userCache.findById(userId).isEmpty())) {
             return ResponseEntity.badRequest().build();
         }
         
         // Get owner's bikes
-        List<Bike> ownerBikes = bikeRepository.findByOwnerAndIsActiveTrue(owner);
+        List<Bike> ownerBikes = bikeRepository.findByOwnerIdAndIsActiveTrue(userId);
         dashboard.put("totalBikes", ownerBikes.size());
         dashboard.put("availableBikes", ownerBikes.stream()
             .filter(b -> b.getStatus() == BikeStatus.AVAILABLE)
@@ -131,21 +222,11 @@ public class DashboardController {
             .filter(b -> b.getStatus() == BikeStatus.BOOKED)
             .count());
         
-        // Get bookings for owner's bikes
-        List<Booking> ownerBookings = bookingRepository.findAll().stream()
-            .filter(booking -> ownerBikes.contains(booking.getBike()))
-            .toList();
-        dashboard.put("totalBookings", ownerBookings.size());
-        dashboard.put("activeBookings", ownerBookings.stream()
-            .filter(b -> b.getStatus() == BookingStatus.ACTIVE)
-            .count());
-        
-        // Calculate earnings
-        BigDecimal totalEarnings = ownerBookings.stream()
-            .filter(b -> b.getStatus() == BookingStatus.COMPLETED)
-            .map(Booking::getTotalPrice)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        dashboard.put("totalEarnings", totalEarnings);
+        // Booking figures for the owner's active bikes, aggregated in SQL over live and archived rows
+        dashboard.put("totalBookings", ownerBookingCount(userId));
+        dashboard.put("activeBookings",
+            bookingRepository.countByBikeOwnerIdAndBikeIsActiveTrueAndStatus(userId, BookingStatus.ACTIVE));
+        dashboard.put("totalEarnings", ownerEarnings(userId));
         
         return ResponseEntity.ok(dashboard);
     }
@@ -153,17 +234,18 @@ public class DashboardController {
     // Rental Business Dashboard
     @GetMapping("/business")
     @PreAuthorize("hasRole('RENTAL_BUSINESS')")
-    public ResponseEntity<Map<String, Object>> getBusinessDashboard(@RequestParam Long userId) {
-        Map<String, Object> dashboard = new HashMap<>();
+    public ResponseEntity<DashboardResponse> getBusinessDashboard(@RequestParam(required = false) Long userId,
+                                                                    @CurrentUser AuthPrincipal currentUser) {
+        DashboardResponse dashboard = new DashboardResponse();
         
         // Get business owner
-        User businessOwner = userRepository.findById(userId).orElse(null);
-        if (businessOwner == null) {
+        userId = resolveUserId(userId, currentUser);
+        if (userId == null || (!isCurrentUser(userId, currentUser) && userCache.findById(userId).isEmpty())) {
             return ResponseEntity.badRequest().build();
         }
         
         // Get business bikes
-        List<Bike> businessBikes = bikeRepository.findByOwnerAndIsActiveTrue(businessOwner);
+        List<Bike> businessBikes = bikeRepository.findByOwnerIdAndIsActiveTrue(userId);
         dashboard.put("totalBikes", businessBikes.size());
         dashboard.put("availableBikes", businessBikes.stream()
             .filter(b -> b.getStatus() == BikeStatus.AVAILABLE)
@@ -172,20 +254,11 @@ public class DashboardController {
             .filter(b -> b.getStatus() == BikeStatus.BOOKED)
             .count());
         
-        // Get bookings for business bikes
-        List<Booking> businessBookings = bookingRepository.findAll().stream()
-            .filter(booking -> businessBikes.contains(booking.getBike()))
-            .toList();
-        dashboard.put("totalBookings", businessBookings.size());
-        dashboard.put("activeBookings", businessBookings.stream()
-            .filter(b -> b.getStatus() == BookingStatus.ACTIVE)
-            .count());
-        
-        BigDecimal totalRevenue = businessBookings.stream()
-            .filter(b -> b.getStatus() == BookingStatus.COMPLETED)
-            .map(Booking::getTotalPrice)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        dashboard.put("totalRevenue", totalRevenue);
+        // Booking figures for the business's active bikes, aggregated in SQL over live and archived rows
+        dashboard.put("totalBookings", ownerBookingCount(userId));
+        dashboard.put("activeBookings",
+            bookingRepository.countByBikeOwnerIdAndBikeIsActiveTrueAndStatus(userId, BookingStatus.ACTIVE));
+        dashboard.put("totalRevenue", ownerEarnings(userId));
         
         return ResponseEntity.ok(dashboard);
     }
@@ -193,27 +266,49 @@ public class DashboardController {
     // Delivery Partner Dashboard
     @GetMapping("/partner")
     @PreAuthorize("hasRole('DELIVERY_PARTNER')")
-    public ResponseEntity<Map<String, Object>> getPartnerDashboard(@RequestParam Long userId) {
-        Map<String, Object> dashboard = new HashMap<>();
-        
-        // Delivery partner specific data
-        List<Booking> deliveryBookings = bookingRepository.findAll(); // This needs to be filtered by delivery partner
-        dashboard.put("totalDeliveries", deliveryBookings.size());
-        dashboard.put("pendingDeliveries", deliveryBookings.stream()
-            .filter(b -> b.getStatus() == BookingStatus.PENDING)
-            .count());
-        dashboard.put("completedDeliveries", deliveryBookings.stream()
-            .filter(b -> b.getStatus() == BookingStatus.COMPLETED)
-            .count());
+    public ResponseEntity<DashboardResponse> getPartnerDashboard(@RequestParam(required = false) Long userId,
+                                                                   @CurrentUser AuthPrincipal currentUser) {
+        DashboardResponse dashboard = new DashboardResponse();
+        
+        // Delivery partner specific data (not yet filtered by delivery partner)
+        dashboard.put("totalDeliveries", bookingRepository.count() + archivedBookingRepository.count());
+        dashboard.put("pendingDeliveries", bookingRepository.countByStatus(BookingStatus.PENDING));
+        dashboard.put("completedDeliveries", bookingRepository.countByStatus(BookingStatus.COMPLETED)
+            + archivedBookingRepository.countByStatus(BookingStatus.COMPLETED));
         
         // Calculate earnings (assuming delivery partners get a percentage)
-        BigDecimal totalEarnings = deliveryBookings.stream()
-            .filter(b -> b.getStatus() == BookingStatus.COMPLETED)
-            .map(Booking::getTotalPrice)
-            .map(price -> price.multiply(BigDecimal.valueOf(0.1))) // 10% commission
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalEarnings = completedRevenue()
+            .multiply(BigDecimal.valueOf(0.1)); // 10% commission
         dashboard.put("totalEarnings", totalEarnings);
         
         return ResponseEntity.ok(dashboard);
     }
+
+    // Revenue of completed bookings across the live and archived tables
+    private BigDecimal completedRevenue() {
+        return bookingRepository.sumTotalPriceByStatus(BookingStatus.COMPLETED)
+            .add(archivedBookingRepository.sumTotalPriceByStatus(BookingStatus.COMPLETED));
+    }
+
+    private long ownerBookingCount(Long ownerId) {
+        return bookingRepository.countByBikeOwnerIdAndBikeIsActiveTrue(ownerId)
+            + archivedBookingRepository.countByBikeOwnerIdAndBikeIsActiveTrue(ownerId);
+    }
+
+    private BigDecimal ownerEarnings(Long ownerId) {
+        return bookingRepository.sumTotalPriceForActiveBikesOfOwner(ownerId, BookingStatus.COMPLETED)
+            .add(archivedBookingRepository.sumTotalPriceForActiveBikesOfOwner(ownerId, BookingStatus.COMPLETED));
+    }
+
+    // Dashboards default to the authenticated user when no userId is given
+    private Long resolveUserId(Long userId, AuthPrincipal currentUser) {
+        if (userId != null) {
+            return userId;
+        }
+        return currentUser != null ? currentUser.getId() : null;
+    }
+
+    private boolean isCurrentUser(Long userId, AuthPrincipal currentUser) {
+        return currentUser != null && currentUser.getId().equals(userId);
+    }
 }
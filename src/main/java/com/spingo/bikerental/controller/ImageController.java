@@ -0,0 +1,77 @@
+package com.spingo.bikerental.controller;
+
+import com.spingo.bikerental.service.ImageResizeRejectedException;
+import com.spingo.bikerental.service.ImageVariantCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/images")
+@CrossOrigin(origins = "*")
+public class ImageController {
+
+    @Autowired
+    private ImageVariantCache imageVariantCache;
+
+    // Resized image, e.g. /api/images/Bike_1.jpg?w=400&fmt=jpg; the body is written straight from the cache file
+    @GetMapping("/{key}")
+    public ResponseEntity<?> getImage(@PathVariable String key,
+                                      @RequestParam(required = false) Integer w,
+                                      @RequestParam(required = false) Integer h,
+                                      @RequestParam(required = false) String fmt,
+                                      HttpServletRequest request,
+                                      HttpServletResponse response) throws IOException {
+        ImageVariantCache.Variant variant;
+        try {
+            variant = imageVariantCache.get(key, w, h, fmt);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (ImageResizeRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", e.getMessage()));
+        }
+        if (variant == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "Image not found"));
+        }
+
+        // The variant's file stays pinned against eviction until it has been written out
+        try (ImageVariantCache.Variant served = variant) {
+            // A changed source gets a new variant name, so the name is a strong validator
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic().getHeaderValue());
+            if (new ServletWebRequest(request, response).checkNotModified("\"" + served.getName() + "\"")) {
+                return null;
+            }
+            response.setContentType(served.getContentType());
+            response.setContentLengthLong(served.getSize());
+
+            // Written here rather than through Tomcat's sendfile, which opens the file by name after the handler
+            // returns, by which time the pin is gone and the file may have been evicted
+            try (FileChannel file = FileChannel.open(served.getFile(), StandardOpenOption.READ)) {
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                long position = 0;
+                while (position < served.getSize()) {
+                    position += file.transferTo(position, served.getSize() - position, out);
+                }
+            }
+        }
+        // Response already written
+        return null;
+    }
+}
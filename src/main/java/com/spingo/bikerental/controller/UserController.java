@@ -1,16 +1,22 @@
 package com.spingo.bikerental.controller;
 
+import com.spingo.bikerental.TokenRevocationRegistry;
 import com.spingo.bikerental.User;
 import com.spingo.bikerental.UserRepository;
 import com.spingo.bikerental.UserRole;
+import com.spingo.bikerental.service.EmailBloomFilter;
+import com.spingo.bikerental.service.JsonArrayStreamer;
+import com.spingo.bikerental.service.PasswordHashingRejectedException;
+import com.spingo.bikerental.service.PasswordHashingService;
+import com.spingo.bikerental.service.UserCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -23,14 +29,25 @@ public class UserController {
     private UserRepository userRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
-    // Get all users (Admin only)
+    @Autowired
+    private TokenRevocationRegistry revocationRegistry;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private EmailBloomFilter emailBloomFilter;
+
+    @Autowired
+    private JsonArrayStreamer jsonArrayStreamer;
+
+    // Get all users (Admin only), streamed from a cursor
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userRepository.findAll();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<StreamingResponseBody> getAllUsers() {
+        return jsonArrayStreamer.stream(userRepository::streamAllBy);
     }
 
     // Get user by ID
@@ -45,14 +62,19 @@ public class UserController {
     @PostMapping
     public ResponseEntity<?> createUser(@Valid @RequestBody User user) {
         try {
-            if (userRepository.existsByEmail(user.getEmail())) {
+            if (emailBloomFilter.exists(user.getEmail())) {
                 return ResponseEntity.badRequest()
                     .body(Map.of("error", "Email is already taken: " + user.getEmail()));
             }
             
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
+            user.setPassword(passwordHashingService.encode(user.getPassword()));
             User savedUser = userRepository.save(user);
+            userCache.invalidateEmail(savedUser.getEmail());
+            emailBloomFilter.add(savedUser.getEmail());
             return ResponseEntity.ok(savedUser);
+        } catch (PasswordHashingRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                 .body(Map.of("error", "Failed to create user: " + e.getMessage()));
@@ -73,10 +95,12 @@ public class UserController {
         user.setAddress(userDetails.getAddress());
         
         if (userDetails.getPassword() != null && !userDetails.getPassword().isEmpty()) {
-            user.setPassword(passwordEncoder.encode(userDetails.getPassword()));
+            // Rejections surface as 503 via GlobalExceptionHandler
+            user.setPassword(passwordHashingService.encode(userDetails.getPassword()));
         }
 
         User updatedUser = userRepository.save(user);
+        userCache.invalidate(id);
         return ResponseEntity.ok(updatedUser);
     }
 
@@ -88,22 +112,57 @@ public class UserController {
             return ResponseEntity.notFound().build();
         }
         userRepository.deleteById(id);
+        userCache.invalidate(id);
+        revocationRegistry.revoke(id);
+        emailBloomFilter.userDeleted();
         return ResponseEntity.ok().build();
     }
 
+    // Deactivate user (Admin only); outstanding tokens stop working immediately
+    @PutMapping("/{id}/deactivate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<User> deactivateUser(@PathVariable Long id) {
+        Optional<User> userOptional = userRepository.findById(id);
+        if (userOptional.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        User user = userOptional.get();
+        user.setIsActive(false);
+        User updatedUser = userRepository.save(user);
+        userCache.invalidate(id);
+        revocationRegistry.revoke(id);
+        return ResponseEntity.ok(updatedUser);
+    }
+
+    // Reactivate user (Admin only)
+    @PutMapping("/{id}/activate")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<User> activateUser(@PathVariable Long id) {
+        Optional<User> userOptional = userRepository.findById(id);
+        if (userOptional.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        User user = userOptional.get();
+        user.setIsActive(true);
+        User updatedUser = userRepository.save(user);
+        userCache.invalidate(id);
+        revocationRegistry.restore(id);
+        return ResponseEntity.ok(updatedUser);
+    }
+
     // Get users by role
     @GetMapping("/role/{role}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<User>> getUsersByRole(@PathVariable UserRole role) {
-        List<User> users = userRepository.findByRole(role);
-        return ResponseEntity.ok(users);
+    public ResponseEntity<StreamingResponseBody> getUsersByRole(@PathVariable UserRole role) {
+        return jsonArrayStreamer.stream(() -> userRepository.streamByRole(role));
     }
 
     // Get active users
     @GetMapping("/active")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<User>> getActiveUsers() {
-        List<User> users = userRepository.findByIsActiveTrue();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<StreamingResponseBody> getActiveUsers() {
+        return jsonArrayStreamer.stream(userRepository::streamByIsActiveTrue);
     }
 }
@@ -0,0 +1,105 @@
+package com.spingo.bikerental.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkBikeImportResponse {
+
+    public static final String CREATED = "CREATED";
+    public static final String INVALID = "INVALID";
+    public static final String FAILED = "FAILED";
+
+    private boolean success;
+    private String message;
+    private int totalRows;
+    private int created;
+    private int invalid;
+    private int failed;
+    private List<RowResult> rows = new ArrayList<>();
+
+    public static class RowResult {
+        private final int row;
+        private final String status;
+        private final Long bikeId;
+        private final List<String> errors;
+
+        public RowResult(int row, String status, Long bikeId, List<String> errors) {
+            this.row = row;
+            this.status = status;
+            this.bikeId = bikeId;
+            this.errors = errors;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public Long getBikeId() {
+            return bikeId;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+
+    public void addCreated(int row, Long bikeId) {
+        rows.add(new RowResult(row, CREATED, bikeId, List.of()));
+        created++;
+    }
+
+    public void addInvalid(int row, List<String> errors) {
+        rows.add(new RowResult(row, INVALID, null, errors));
+        invalid++;
+    }
+
+    public void addFailed(int row, String error) {
+        rows.add(new RowResult(row, FAILED, null, List.of(error)));
+        failed++;
+    }
+
+    // Getters and Setters
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public int getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(int totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<RowResult> getRows() {
+        return rows;
+    }
+}
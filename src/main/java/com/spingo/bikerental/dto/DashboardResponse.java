@@ -0,0 +1,23 @@
+package com.spingo.bikerental.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Dashboard figures in insertion order; written by DashboardJsonSerializer
+public class DashboardResponse {
+
+    private final Map<String, Object> values = new LinkedHashMap<>();
+
+    public DashboardResponse put(String key, Object value) {
+        values.put(key, value);
+        return this;
+    }
+
+    public Object get(String key) {
+        return values.get(key);
+    }
+
+    public Map<String, Object> getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,303 @@
+package com.spingo.bikerental.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRepository;
+import com.spingo.bikerental.dto.BulkBikeImportResponse;
+import com.spingo.bikerental.dto.CreateBikeRequest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streaming bulk import behind POST /api/bikes/owner/bulk.
+ *
+ * Rows are read and validated one at a time, so the request body is never held in memory.
+ * Valid rows are buffered into chunks; each chunk is saved in its own transaction and leaves
+ * the persistence context empty again, which keeps inserts batched and memory flat. A failed
+ * chunk only marks its own rows as failed, earlier chunks stay committed.
+ */
+@Service
+public class BikeBulkImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BikeBulkImportService.class);
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UtilizationIndex utilizationIndex;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${bikes.bulk.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${bikes.bulk.max-rows:5000}")
+    private int maxRows;
+
+    public BulkBikeImportResponse importJson(InputStream body, Long ownerId) throws IOException {
+        Import job = new Import(ownerId);
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of bikes");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                JsonNode node = parser.readValueAsTree();
+                if (!job.nextRow()) {
+                    break;
+                }
+                try {
+                    job.accept(objectMapper.treeToValue(node, CreateBikeRequest.class));
+                } catch (JsonProcessingException e) {
+                    job.reject(List.of("Unreadable bike: " + e.getOriginalMessage()));
+                }
+            }
+        } catch (JsonProcessingException e) {
+            job.abort("Malformed JSON after row " + job.row + ": " + e.getOriginalMessage());
+        }
+        return job.finish();
+    }
+
+    public BulkBikeImportResponse importCsv(InputStream body, Long ownerId) throws IOException {
+        Import job = new Import(ownerId);
+        try (Reader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            List<String> header = readCsvRecord(reader);
+            if (header == null) {
+                throw new IllegalArgumentException("CSV body is empty");
+            }
+            List<String> columns = header.stream().map(BikeBulkImportService::columnKey).toList();
+
+            List<String> record;
+            while ((record = readCsvRecord(reader)) != null) {
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                if (!job.nextRow()) {
+                    break;
+                }
+                if (record.size() != columns.size()) {
+                    job.reject(List.of("Expected " + columns.size() + " columns but found " + record.size()));
+                    continue;
+                }
+                Map<String, String> values = new HashMap<>();
+                for (int i = 0; i < columns.size(); i++) {
+                    String value = record.get(i).trim();
+                    values.put(columns.get(i), value.isEmpty() ? null : value);
+                }
+                try {
+                    job.accept(objectMapper.convertValue(values, CreateBikeRequest.class));
+                } catch (IllegalArgumentException e) {
+                    job.reject(List.of("Unreadable bike: " + e.getMessage()));
+                }
+            }
+        }
+        return job.finish();
+    }
+
+    // Header cells map onto CreateBikeRequest properties: "Price Per Hour", "price_per_hour" and "pricePerHour" all work
+    private static String columnKey(String header) {
+        String compact = header.replace("\uFEFF", "").trim().replaceAll("[\\s_-]", "").toLowerCase(Locale.ROOT);
+        return switch (compact) {
+            case "priceperhour" -> "pricePerHour";
+            case "priceperday" -> "pricePerDay";
+            case "pricepermonth" -> "pricePerMonth";
+            case "imageurl" -> "imageUrl";
+            default -> compact;
+        };
+    }
+
+    // RFC 4180 record: quoted fields may contain commas, doubled quotes and line breaks
+    private static List<String> readCsvRecord(Reader reader) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // State of one import: current row, the pending chunk and the report built so far
+    private final class Import {
+        private final Long ownerId;
+        private final BulkBikeImportResponse report = new BulkBikeImportResponse();
+        private final List<Bike> pending = new ArrayList<>();
+        private final List<Integer> pendingRows = new ArrayList<>();
+        private final List<Bike> saved = new ArrayList<>();
+        private int row;
+        private boolean truncated;
+
+        private Import(Long ownerId) {
+            this.ownerId = ownerId;
+        }
+
+        private boolean nextRow() {
+            if (row >= maxRows) {
+                truncated = true;
+                return false;
+            }
+            row++;
+            return true;
+        }
+
+        private void accept(CreateBikeRequest request) {
+            List<String> errors = validator.validate(request).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .toList();
+            if (!errors.isEmpty()) {
+                reject(errors);
+                return;
+            }
+            pending.add(toBike(request));
+            pendingRows.add(row);
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void reject(List<String> errors) {
+            report.addInvalid(row, errors);
+        }
+
+        private void abort(String message) {
+            report.setMessage(message);
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                List<Bike> chunk = transactionTemplate.execute(status -> {
+                    User owner = userRepository.getReferenceById(ownerId);
+                    pending.forEach(bike -> bike.setOwner(owner));
+                    List<Bike> result = bikeRepository.saveAll(pending);
+                    changeLog.recordAll(result.stream()
+                        .map(bike -> ChangeEvent.of(bike, ChangeEvent.Operation.CREATED))
+                        .toList());
+                    entityManager.flush();
+                    entityManager.clear();
+                    return result;
+                });
+                for (int i = 0; i < chunk.size(); i++) {
+                    report.addCreated(pendingRows.get(i), chunk.get(i).getId());
+                }
+                saved.addAll(chunk);
+            } catch (RuntimeException e) {
+                logger.warn("Bulk bike chunk of {} rows failed for owner {}", pending.size(), ownerId, e);
+                pendingRows.forEach(failedRow -> report.addFailed(failedRow, "Could not be saved"));
+            } finally {
+                pending.clear();
+                pendingRows.clear();
+            }
+        }
+
+        private BulkBikeImportResponse finish() {
+            flush();
+            // Catalog structures see the whole import at once instead of one update per row
+            utilizationIndex.bikesUpdated(saved);
+
+            report.getRows().sort(Comparator.comparingInt(BulkBikeImportResponse.RowResult::getRow));
+            report.setTotalRows(row);
+            report.setSuccess(report.getCreated() > 0 && report.getMessage() == null);
+            if (report.getMessage() == null) {
+                report.setMessage(truncated
+                    ? "Only the first " + maxRows + " rows were processed."
+                    : report.getCreated() + " of " + row + " bikes added.");
+            }
+            return report;
+        }
+    }
+
+    private static Bike toBike(CreateBikeRequest request) {
+        Bike bike = new Bike();
+        bike.setBrand(request.getBrand());
+        bike.setModel(request.getModel());
+        bike.setYear(request.getYear());
+        bike.setType(request.getType());
+        bike.setCity(request.getCity());
+        bike.setPricePerHour(request.getPricePerHour());
+        bike.setPricePerDay(request.getPricePerDay());
+        bike.setPricePerMonth(request.getPricePerMonth());
+        bike.setDescription(request.getDescription());
+        bike.setImageUrl(request.getImageUrl());
+        bike.setIsActive(true);
+        return bike;
+    }
+}
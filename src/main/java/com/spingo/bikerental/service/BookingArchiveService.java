@@ -0,0 +1,185 @@
+package com.spingo.bikerental.service;
+
+import com.spingo.bikerental.ArchivedBooking;
+import com.spingo.bikerental.Booking;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hot/cold split of the bookings table.
+ *
+ * COMPLETED and CANCELLED bookings whose dropoff is older than booking-archive.age-days are
+ * moved to bookings_archive by a background thread, a small batch per transaction with a
+ * pause in between so the primary never sees a long lock or a burst of writes. Each batch is
+ * an INSERT ... SELECT plus DELETE of the same ids in one transaction, so a booking is always
+ * in exactly one of the two tables. Readers that ask for old data merge both sides via
+ * {@link #withArchived}.
+ */
+@Service
+public class BookingArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingArchiveService.class);
+
+    private static final String TERMINAL = "status IN ('COMPLETED', 'CANCELLED')";
+
+    private static final String COLUMNS = "id, user_id, bike_id, pickup_date, dropoff_date, pickup_time, drop_time, "
+        + "actual_pickup_date, actual_dropoff_date, total_price, status, notes, created_at, updated_at";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${booking-archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${booking-archive.age-days:365}")
+    private int ageDays;
+
+    @Value("${booking-archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${booking-archive.pause-ms:200}")
+    private long pauseMs;
+
+    @Value("${booking-archive.max-batches-per-run:200}")
+    private int maxBatchesPerRun;
+
+    @Value("${booking-archive.interval-minutes:60}")
+    private long intervalMinutes;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "booking-archiver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private final AtomicLong totalArchived = new AtomicLong();
+
+    private volatile LocalDateTime lastRunAt;
+
+    private volatile long lastRunArchived;
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::archive, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    // Queue an extra run (admin endpoint); false if one is already in progress
+    public boolean archiveNow() {
+        if (running.get()) {
+            return false;
+        }
+        scheduler.execute(this::archive);
+        return true;
+    }
+
+    // Union of live rows and their archived counterparts, newest first; live rows win on duplicate ids
+    public List<Booking> withArchived(List<Booking> live, List<ArchivedBooking> archived) {
+        Map<Long, Booking> merged = new LinkedHashMap<>();
+        live.forEach(booking -> merged.put(booking.getId(), booking));
+        archived.forEach(booking -> merged.putIfAbsent(booking.getId(), booking.toBooking()));
+        List<Booking> result = new ArrayList<>(merged.values());
+        result.sort(Comparator.comparing(Booking::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder())));
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("running", running.get());
+        stats.put("ageDays", ageDays);
+        stats.put("totalArchived", totalArchived.get());
+        stats.put("lastRunAt", lastRunAt);
+        stats.put("lastRunArchived", lastRunArchived);
+        return stats;
+    }
+
+    private void archive() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        long archived = 0;
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(ageDays);
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int moved = moveBatch(cutoff);
+                archived += moved;
+                if (moved < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.warn("Booking archival stopped after {} rows", archived, e);
+        } finally {
+            totalArchived.addAndGet(archived);
+            lastRunArchived = archived;
+            lastRunAt = LocalDateTime.now();
+            running.set(false);
+        }
+        if (archived > 0) {
+            logger.info("Archived {} bookings with dropoff before {} days ago", archived, ageDays);
+        }
+    }
+
+    private int moveBatch(LocalDateTime cutoff) {
+        Integer moved = transactionTemplate.execute(status -> {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cutoff", cutoff)
+                .addValue("limit", batchSize);
+            List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM bookings WHERE " + TERMINAL + " AND dropoff_date < :cutoff ORDER BY dropoff_date LIMIT :limit",
+                params, Long.class);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+
+            params.addValue("ids", ids);
+            int copied = jdbcTemplate.update(
+                "INSERT INTO bookings_archive (" + COLUMNS + ", archived_at) " +
+                "SELECT " + COLUMNS + ", CURRENT_TIMESTAMP FROM bookings WHERE id IN (:ids) AND " + TERMINAL,
+                params);
+            int deleted = jdbcTemplate.update("DELETE FROM bookings WHERE id IN (:ids) AND " + TERMINAL, params);
+            if (copied != deleted) {
+                // A row changed status mid-batch; roll back and let the next run pick it up
+                status.setRollbackOnly();
+                return 0;
+            }
+            return deleted;
+        });
+        return moved != null ? moved : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,109 @@
+package com.spingo.bikerental.service;
+
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.Booking;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// One committed mutation of a bike or booking, as stored in the change log
+public class ChangeEvent {
+
+    public enum EntityType {
+        BIKE, BOOKING
+    }
+
+    public enum Operation {
+        CREATED, UPDATED
+    }
+
+    private final long offset;
+    private final EntityType entityType;
+    private final Operation operation;
+    private final long entityId;
+    private final long timestamp;
+    private final Map<String, Object> data;
+
+    public ChangeEvent(long offset, EntityType entityType, Operation operation, long entityId,
+                       long timestamp, Map<String, Object> data) {
+        this.offset = offset;
+        this.entityType = entityType;
+        this.operation = operation;
+        this.entityId = entityId;
+        this.timestamp = timestamp;
+        this.data = data;
+    }
+
+    // Field values are kept as strings, numbers and booleans so the JSON body round-trips unchanged
+    public static ChangeEvent of(Bike bike, Operation operation) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("ownerId", bike.getOwner() != null ? bike.getOwner().getId() : null);
+        data.put("brand", bike.getBrand());
+        data.put("model", bike.getModel());
+        data.put("type", bike.getType() != null ? bike.getType().name() : null);
+        data.put("city", bike.getCity());
+        data.put("status", bike.getStatus() != null ? bike.getStatus().name() : null);
+        data.put("isActive", bike.getIsActive());
+        data.put("pricePerHour", bike.getPricePerHour() != null ? bike.getPricePerHour().toPlainString() : null);
+        return new ChangeEvent(-1, EntityType.BIKE, operation, bike.getId(), System.currentTimeMillis(), data);
+    }
+
+    public static ChangeEvent of(Booking booking, Operation operation) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("userId", booking.getUser() != null ? booking.getUser().getId() : null);
+        data.put("bikeId", booking.getBike() != null ? booking.getBike().getId() : null);
+        data.put("pickupDate", toText(booking.getPickupDate()));
+        data.put("dropoffDate", toText(booking.getDropoffDate()));
+        data.put("actualPickupDate", toText(booking.getActualPickupDate()));
+        data.put("actualDropoffDate", toText(booking.getActualDropoffDate()));
+        data.put("status", booking.getStatus() != null ? booking.getStatus().name() : null);
+        data.put("totalPrice", booking.getTotalPrice() != null ? booking.getTotalPrice().toPlainString() : null);
+        return new ChangeEvent(-1, EntityType.BOOKING, operation, booking.getId(), System.currentTimeMillis(), data);
+    }
+
+    // Typed accessors for the data map
+    public Long getLong(String key) {
+        Object value = data.get(key);
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    public String getString(String key) {
+        Object value = data.get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    public LocalDateTime getDateTime(String key) {
+        String value = getString(key);
+        return value != null ? LocalDateTime.parse(value) : null;
+    }
+
+    private static String toText(LocalDateTime value) {
+        return value != null ? value.toString() : null;
+    }
+
+    // Getters
+    public long getOffset() {
+        return offset;
+    }
+
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public long getEntityId() {
+        return entityId;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Map<String, Object> getData() {
+        return data;
+    }
+}
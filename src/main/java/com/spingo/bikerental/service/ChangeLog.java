@@ -0,0 +1,567 @@
+package com.spingo.bikerental.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only change log of committed bike and booking mutations.
+ *
+ * The log is a directory of segment files, each preallocated, memory-mapped and named after
+ * the offset of its first record. A record is [int length][int crc32][body], the body being
+ * entity type, operation, entity id, timestamp and a small JSON document. The length is
+ * written last, so a zero length marks the end of the data in a segment, and a write torn by
+ * a crash fails its CRC and is cut off when the log is reopened.
+ *
+ * Offsets are byte positions across the whole log and only grow. A consumer keeps its own
+ * checkpoint under checkpoints/, replays from it and commits a new one; segments every
+ * checkpoint has moved past are deleted.
+ *
+ * Writers never touch the segments directly. {@link #record} inserts into the
+ * change_log_outbox table inside the caller's transaction, so a change and its record commit
+ * or roll back together. A drainer thread appends committed outbox rows in id order, forces
+ * the segment to disk and only then deletes the rows; a crash in between appends some
+ * records twice but never loses one, so consumers must replay idempotently.
+ */
+@Service
+public class ChangeLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLog.class);
+
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int BODY_HEADER_BYTES = 2 + 8 + 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+    private static final int MIN_SEGMENT_BYTES = 1024 * 1024;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{20})\\.log");
+    private static final Pattern CONSUMER_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+    private static final TypeReference<Map<String, Object>> DATA_TYPE = new TypeReference<>() {};
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${changelog.enabled:true}")
+    private boolean enabled;
+
+    @Value("${changelog.dir:data/changelog}")
+    private String directory;
+
+    @Value("${changelog.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${changelog.drain-interval-ms:100}")
+    private long drainIntervalMs;
+
+    @Value("${changelog.drain-batch-size:500}")
+    private int drainBatchSize;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final ScheduledExecutorService drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "change-log-drainer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Not a monitor: draining holds it across database queries
+    private final ReentrantLock draining = new ReentrantLock();
+
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private Path root;
+
+    private FileChannel lockChannel;
+
+    private volatile long endOffset;
+
+    private volatile boolean open;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            segmentBytes = Math.max(segmentBytes, MIN_SEGMENT_BYTES);
+            root = Paths.get(directory);
+            Files.createDirectories(root.resolve("checkpoints"));
+
+            // One writer per directory; a second instance runs without a change log
+            lockChannel = FileChannel.open(root.resolve("LOCK"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lock = lockChannel.tryLock();
+            if (lock == null) {
+                logger.warn("Change log {} is locked by another process; change logging disabled", root);
+                lockChannel.close();
+                return;
+            }
+
+            try (Stream<Path> files = Files.list(root)) {
+                for (Path file : files.toList()) {
+                    Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                    if (matcher.matches()) {
+                        long base = Long.parseLong(matcher.group(1));
+                        segments.put(base, Segment.open(file, base));
+                    }
+                }
+            }
+            if (segments.isEmpty()) {
+                segments.put(0L, Segment.create(root, 0, segmentBytes));
+            }
+
+            Segment active = segments.lastEntry().getValue();
+            active.recover();
+            endOffset = active.base + active.position;
+            open = true;
+            logger.info("Change log opened at {} ({} segments, offsets {}..{})",
+                root.toAbsolutePath(), segments.size(), segments.firstKey(), endOffset);
+
+            // Rows committed while no instance was draining go in before anyone replays
+            drainQuietly();
+            drainer.scheduleWithFixedDelay(this::drainQuietly, drainIntervalMs, drainIntervalMs, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            logger.warn("Could not open change log at {}; change logging disabled", directory, e);
+        }
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public Path getDirectory() {
+        return root;
+    }
+
+    // Offset the next record will get; everything below it has been appended
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    public long getFirstOffset() {
+        return open ? segments.firstKey() : endOffset;
+    }
+
+    // Joins the caller's transaction, so call it next to the write it describes. Rows are kept even while this
+    // instance cannot open the log; whichever instance holds the directory lock drains them.
+    public void record(ChangeEvent event) {
+        recordAll(List.of(event));
+    }
+
+    // One JDBC batch for the whole collection (bulk imports)
+    public void recordAll(Collection<ChangeEvent> events) {
+        if (!enabled || events.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource[] rows = new MapSqlParameterSource[events.size()];
+        int i = 0;
+        for (ChangeEvent event : events) {
+            try {
+                rows[i++] = new MapSqlParameterSource()
+                    .addValue("entityType", event.getEntityType().name())
+                    .addValue("operation", event.getOperation().name())
+                    .addValue("entityId", event.getEntityId())
+                    .addValue("recordedAt", event.getTimestamp())
+                    .addValue("payload", objectMapper.writeValueAsString(event.getData()));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Change event data is not serializable", e);
+            }
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO change_log_outbox (entity_type, operation, entity_id, recorded_at, payload) " +
+            "VALUES (:entityType, :operation, :entityId, :recordedAt, :payload)",
+            rows);
+    }
+
+    // Moves committed outbox rows into the log and returns how many were appended
+    public int drain() {
+        if (!open) {
+            return 0;
+        }
+        draining.lock();
+        try {
+            int drained = 0;
+            while (open) {
+                List<Long> ids = new ArrayList<>();
+                List<ChangeEvent> events = new ArrayList<>();
+                jdbcTemplate.query(
+                    "SELECT id, entity_type, operation, entity_id, recorded_at, payload FROM change_log_outbox " +
+                    "ORDER BY id LIMIT :limit",
+                    new MapSqlParameterSource("limit", drainBatchSize),
+                    resultSet -> {
+                        ids.add(resultSet.getLong("id"));
+                        events.add(new ChangeEvent(-1,
+                            ChangeEvent.EntityType.valueOf(resultSet.getString("entity_type")),
+                            ChangeEvent.Operation.valueOf(resultSet.getString("operation")),
+                            resultSet.getLong("entity_id"),
+                            resultSet.getLong("recorded_at"),
+                            readData(resultSet.getString("payload"))));
+                    });
+                if (ids.isEmpty()) {
+                    break;
+                }
+                for (ChangeEvent event : events) {
+                    append(event);
+                }
+                force();
+                // By id, not by range: a lower id that commits late must still be appended first
+                jdbcTemplate.update("DELETE FROM change_log_outbox WHERE id IN (:ids)", new MapSqlParameterSource("ids", ids));
+                drained += ids.size();
+                if (ids.size() < drainBatchSize) {
+                    break;
+                }
+            }
+            return drained;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            draining.unlock();
+        }
+    }
+
+    // Calls handler for every record from fromOffset on and returns the offset to continue from
+    public long replay(long fromOffset, Consumer<ChangeEvent> handler) {
+        if (!open) {
+            return fromOffset;
+        }
+        if (fromOffset < segments.firstKey()) {
+            throw new IllegalStateException("Change log no longer holds offset " + fromOffset);
+        }
+        long end = endOffset;
+        long offset = fromOffset;
+        while (offset < end) {
+            Map.Entry<Long, Segment> entry = segments.floorEntry(offset);
+            if (entry == null) {
+                break;
+            }
+            Segment segment = entry.getValue();
+            int position = (int) (offset - segment.base);
+            int length = position + RECORD_HEADER_BYTES <= segment.capacity ? segment.buffer.getInt(position) : 0;
+            if (length <= 0) {
+                // End of this segment's data; continue in the next one
+                Long next = segments.higherKey(segment.base);
+                if (next == null) {
+                    break;
+                }
+                offset = next;
+                continue;
+            }
+            byte[] body = new byte[length];
+            segment.buffer.get(position + RECORD_HEADER_BYTES, body);
+            handler.accept(decode(offset, body));
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    // Last committed offset of a consumer, or null if it never committed one
+    public Long getCheckpoint(String consumer) {
+        Path file = checkpointFile(consumer);
+        if (!open || !Files.exists(file)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Unreadable change log checkpoint for {}", consumer, e);
+            return null;
+        }
+    }
+
+    // Written to a temp file and moved into place, so a crash leaves either the old or the new value
+    public void commitCheckpoint(String consumer, long offset) {
+        if (!open) {
+            return;
+        }
+        Path file = checkpointFile(consumer);
+        try {
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temp, Long.toString(offset), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not commit change log checkpoint for {}", consumer, e);
+            return;
+        }
+        deleteConsumedSegments();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", open);
+        stats.put("directory", root != null ? root.toAbsolutePath().toString() : directory);
+        stats.put("segments", segments.size());
+        stats.put("firstOffset", getFirstOffset());
+        stats.put("endOffset", endOffset);
+        stats.put("outboxPending", enabled
+            ? jdbcTemplate.queryForObject("SELECT COUNT(*) FROM change_log_outbox", Map.of(), Long.class)
+            : 0L);
+        Map<String, Long> checkpoints = new LinkedHashMap<>();
+        for (String consumer : consumers()) {
+            checkpoints.put(consumer, getCheckpoint(consumer));
+        }
+        stats.put("checkpoints", checkpoints);
+        return stats;
+    }
+
+    private void drainQuietly() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            // The rows stay in the outbox and are retried on the next pass
+            logger.warn("Could not drain the change log outbox", e);
+        }
+    }
+
+    private synchronized long append(ChangeEvent event) throws IOException {
+        if (!open) {
+            return -1;
+        }
+        byte[] body = encode(event);
+        int recordBytes = RECORD_HEADER_BYTES + body.length;
+        if (recordBytes > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Change log record of " + recordBytes + " bytes is too large");
+        }
+
+        Segment active = segments.lastEntry().getValue();
+        if (active.position + recordBytes > active.capacity) {
+            active.buffer.force();
+            long base = active.base + active.position;
+            active = Segment.create(root, base, segmentBytes);
+            segments.put(base, active);
+        }
+
+        long offset = active.base + active.position;
+        active.write(body);
+        // Volatile write publishes the record to replaying threads
+        endOffset = offset + recordBytes;
+        return offset;
+    }
+
+    // Earlier segments were forced when they rolled over
+    private synchronized void force() {
+        if (open) {
+            segments.lastEntry().getValue().buffer.force();
+        }
+    }
+
+    // A segment can go once the next one starts at or below every consumer's checkpoint
+    private synchronized void deleteConsumedSegments() {
+        List<String> consumers = consumers();
+        if (!open || consumers.isEmpty()) {
+            return;
+        }
+        long lowest = Long.MAX_VALUE;
+        for (String consumer : consumers) {
+            Long checkpoint = getCheckpoint(consumer);
+            lowest = Math.min(lowest, checkpoint != null ? checkpoint : 0);
+        }
+        while (segments.size() > 1) {
+            Map.Entry<Long, Segment> first = segments.firstEntry();
+            Long next = segments.higherKey(first.getKey());
+            if (next == null || next > lowest) {
+                break;
+            }
+            segments.remove(first.getKey());
+            first.getValue().delete();
+        }
+    }
+
+    private List<String> consumers() {
+        try (Stream<Path> files = Files.list(root.resolve("checkpoints"))) {
+            return files.map(file -> file.getFileName().toString())
+                .filter(name -> name.endsWith(".offset"))
+                .map(name -> name.substring(0, name.length() - ".offset".length()))
+                .sorted()
+                .toList();
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    private Path checkpointFile(String consumer) {
+        if (!CONSUMER_NAME.matcher(consumer).matches()) {
+            throw new IllegalArgumentException("Invalid change log consumer name: " + consumer);
+        }
+        return root.resolve("checkpoints").resolve(consumer + ".offset");
+    }
+
+    // Enum ordinals are stored, so new constants may only be added at the end
+    private byte[] encode(ChangeEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(event.getEntityType().ordinal());
+        out.writeByte(event.getOperation().ordinal());
+        out.writeLong(event.getEntityId());
+        out.writeLong(event.getTimestamp());
+        out.write(objectMapper.writeValueAsBytes(event.getData()));
+        return bytes.toByteArray();
+    }
+
+    private ChangeEvent decode(long offset, byte[] body) {
+        ByteBuffer in = ByteBuffer.wrap(body);
+        ChangeEvent.EntityType entityType = ChangeEvent.EntityType.values()[in.get()];
+        ChangeEvent.Operation operation = ChangeEvent.Operation.values()[in.get()];
+        long entityId = in.getLong();
+        long timestamp = in.getLong();
+        try {
+            Map<String, Object> data = objectMapper.readValue(
+                body, BODY_HEADER_BYTES, body.length - BODY_HEADER_BYTES, DATA_TYPE);
+            return new ChangeEvent(offset, entityType, operation, entityId, timestamp, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt change log record at offset " + offset, e);
+        }
+    }
+
+    private Map<String, Object> readData(String payload) {
+        try {
+            return objectMapper.readValue(payload, DATA_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt change log outbox payload", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainer.shutdownNow();
+        // Last pass while the database is still up; anything left is drained on the next start
+        drainQuietly();
+        close();
+    }
+
+    private synchronized void close() {
+        open = false;
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+        segments.clear();
+        try {
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            logger.debug("Could not release change log lock", e);
+        }
+    }
+
+    private static int crc(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static final class Segment {
+        private final long base;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private int position;
+
+        private Segment(long base, Path path, FileChannel channel, int capacity) throws IOException {
+            this.base = base;
+            this.path = path;
+            this.channel = channel;
+            this.capacity = capacity;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        private static Segment create(Path root, long base, int capacity) throws IOException {
+            Path path = root.resolve(String.format("%020d.log", base));
+            FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(base, path, channel, capacity);
+        }
+
+        private static Segment open(Path path, long base) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(base, path, channel, (int) channel.size());
+        }
+
+        // Length goes in last: a reader that sees a non-zero length sees the whole record
+        private void write(byte[] body) {
+            buffer.putInt(position + 4, crc(body));
+            buffer.put(position + RECORD_HEADER_BYTES, body);
+            buffer.putInt(position, body.length);
+            position += RECORD_HEADER_BYTES + body.length;
+        }
+
+        // Finds the end of the valid records and clears a torn tail left by a crash
+        private void recover() {
+            int scan = 0;
+            while (scan + RECORD_HEADER_BYTES <= capacity) {
+                int length = buffer.getInt(scan);
+                if (length <= 0 || scan + RECORD_HEADER_BYTES + length > capacity) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                buffer.get(scan + RECORD_HEADER_BYTES, body);
+                if (crc(body) != buffer.getInt(scan + 4)) {
+                    break;
+                }
+                scan += RECORD_HEADER_BYTES + length;
+            }
+            int tornEnd = (int) Math.min(capacity, (long) scan + RECORD_HEADER_BYTES + MAX_RECORD_BYTES);
+            for (int i = scan; i < tornEnd; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            position = scan;
+        }
+
+        private void close() {
+            try {
+                buffer.force();
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Could not close change log segment {}", path, e);
+            }
+        }
+
+        private void delete() {
+            close();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("Could not delete change log segment {}", path, e);
+            }
+        }
+    }
+}
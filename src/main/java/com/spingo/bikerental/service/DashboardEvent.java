@@ -0,0 +1,47 @@
+package com.spingo.bikerental.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Delta pushed to dashboard subscribers; carries only what changed
+public class DashboardEvent {
+
+    public static final String BIKE_STATUS_CHANGED = "bike-status";
+    public static final String BOOKING_CREATED = "booking-created";
+    public static final String BOOKING_CANCELLED = "booking-cancelled";
+    public static final String KPI = "kpi";
+    public static final String HEARTBEAT = "heartbeat";
+
+    private final String type;
+    private final Long ownerId;
+    private final Map<String, Object> payload;
+    private final LocalDateTime timestamp;
+
+    public DashboardEvent(String type, Long ownerId, Map<String, Object> payload) {
+        this.type = type;
+        this.ownerId = ownerId;
+        this.payload = payload;
+        this.timestamp = LocalDateTime.now();
+    }
+
+    public static DashboardEvent heartbeat() {
+        return new DashboardEvent(HEARTBEAT, null, Map.of());
+    }
+
+    // Getters
+    public String getType() {
+        return type;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+
+    public Map<String, Object> getPayload() {
+        return payload;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,242 @@
+package com.spingo.bikerental.service;
+
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeStatus;
+import com.spingo.bikerental.Booking;
+import com.spingo.bikerental.BookingStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shared fan-out bus behind /api/dashboard/stream.
+ *
+ * Publishers only enqueue into each subscriber's bounded buffer; a small dispatcher
+ * pool does the actual socket writes. A subscriber whose buffer fills up is evicted
+ * so one slow screen can never hold back the rest.
+ */
+@Component
+public class DashboardEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardEventBus.class);
+
+    @Value("${dashboard.stream.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${dashboard.stream.max-subscribers:5000}")
+    private int maxSubscribers;
+
+    @Value("${dashboard.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${dashboard.stream.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService dispatcher = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "dashboard-sse-dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dashboard-sse-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void startHeartbeat() {
+        heartbeat.scheduleAtFixedRate(() -> publish(DashboardEvent.heartbeat()),
+            heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Register a new screen; ownerId == null means all events (admin view)
+    public SseEmitter subscribe(Long ownerId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many dashboard subscribers");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, ownerId, bufferSize);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> evict(subscriber));
+        emitter.onError(e -> evict(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public void publish(DashboardEvent event) {
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.accepts(event)) {
+                continue;
+            }
+            if (!subscriber.buffer.offer(event)) {
+                logger.debug("Evicting slow dashboard subscriber (buffer full)");
+                evict(subscriber);
+                continue;
+            }
+            scheduleDrain(subscriber);
+        }
+    }
+
+    public void bikeStatusChanged(Bike bike, BikeStatus previousStatus) {
+        if (previousStatus == bike.getStatus()) {
+            return;
+        }
+        Long ownerId = ownerIdOf(bike);
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("bikeId", bike.getId());
+        payload.put("previousStatus", previousStatus);
+        payload.put("status", bike.getStatus());
+        publish(new DashboardEvent(DashboardEvent.BIKE_STATUS_CHANGED, ownerId, payload));
+
+        Map<String, Object> kpis = new HashMap<>();
+        addBikeStatusDelta(kpis, previousStatus, -1);
+        addBikeStatusDelta(kpis, bike.getStatus(), 1);
+        if (!kpis.isEmpty()) {
+            publish(new DashboardEvent(DashboardEvent.KPI, ownerId, kpis));
+        }
+    }
+
+    public void bookingCreated(Booking booking) {
+        Long ownerId = ownerIdOf(booking.getBike());
+        publish(new DashboardEvent(DashboardEvent.BOOKING_CREATED, ownerId, bookingPayload(booking)));
+
+        Map<String, Object> kpis = new HashMap<>();
+        kpis.put("totalBookings", 1);
+        addBookingStatusDelta(kpis, booking.getStatus(), 1);
+        publish(new DashboardEvent(DashboardEvent.KPI, ownerId, kpis));
+    }
+
+    public void bookingCancelled(Booking booking, BookingStatus previousStatus) {
+        Long ownerId = ownerIdOf(booking.getBike());
+        publish(new DashboardEvent(DashboardEvent.BOOKING_CANCELLED, ownerId, bookingPayload(booking)));
+
+        Map<String, Object> kpis = new HashMap<>();
+        addBookingStatusDelta(kpis, previousStatus, -1);
+        if (!kpis.isEmpty()) {
+            publish(new DashboardEvent(DashboardEvent.KPI, ownerId, kpis));
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            dispatcher.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            DashboardEvent event;
+            while ((event = subscriber.buffer.poll()) != null) {
+                if (DashboardEvent.HEARTBEAT.equals(event.getType())) {
+                    subscriber.emitter.send(SseEmitter.event().comment("ping"));
+                } else {
+                    subscriber.emitter.send(SseEmitter.event().name(event.getType()).data(event));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            evict(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+
+        // An event may have landed between the last poll and releasing the flag
+        if (!subscriber.buffer.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    private Long ownerIdOf(Bike bike) {
+        return bike != null && bike.getOwner() != null ? bike.getOwner().getId() : null;
+    }
+
+    private Map<String, Object> bookingPayload(Booking booking) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("bookingId", booking.getId());
+        payload.put("bikeId", booking.getBike().getId());
+        payload.put("userId", booking.getUser().getId());
+        payload.put("status", booking.getStatus());
+        payload.put("totalPrice", booking.getTotalPrice());
+        return payload;
+    }
+
+    // KPI keys match the fields returned by the dashboard REST endpoints
+    private void addBikeStatusDelta(Map<String, Object> kpis, BikeStatus status, int delta) {
+        if (status == BikeStatus.AVAILABLE) {
+            kpis.put("availableBikes", delta);
+        } else if (status == BikeStatus.BOOKED) {
+            kpis.put("bookedBikes", delta);
+        }
+    }
+
+    private void addBookingStatusDelta(Map<String, Object> kpis, BookingStatus status, int delta) {
+        if (status == BookingStatus.PENDING) {
+            kpis.put("pendingBookings", delta);
+        } else if (status == BookingStatus.ACTIVE) {
+            kpis.put("activeBookings", delta);
+        }
+    }
+
+    private void evict(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriber.buffer.clear();
+            try {
+                subscriber.emitter.complete();
+            } catch (Exception ignored) {
+                // Connection is already gone
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Long ownerId;
+        private final ArrayBlockingQueue<DashboardEvent> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+
+        private Subscriber(SseEmitter emitter, Long ownerId, int bufferSize) {
+            this.emitter = emitter;
+            this.ownerId = ownerId;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private boolean accepts(DashboardEvent event) {
+            return ownerId == null
+                || DashboardEvent.HEARTBEAT.equals(event.getType())
+                || ownerId.equals(event.getOwnerId());
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.spingo.bikerental.service;
+
+import com.spingo.bikerental.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of registered emails in front of UserRepository.existsByEmail.
+ *
+ * A miss is a definite "not registered" and needs no query; a hit only means
+ * "maybe" and falls through to the database. Deleted users can't be removed
+ * from a Bloom filter, but that only turns them into harmless "maybe"s, so the
+ * filter is rebuilt from the table once enough deletions have accumulated.
+ * Keys are lower-cased and accent-stripped to match MySQL's default
+ * case- and accent-insensitive collation, so lookups never false-negative.
+ */
+@Component
+public class EmailBloomFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailBloomFilter.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${email-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${email-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${email-filter.rebuild-after-deletions:10000}")
+    private long rebuildAfterDeletions;
+
+    private volatile Bits current;
+
+    // Non-null while a rebuild is running; inserts go to both filters meanwhile
+    private volatile Bits building;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    private final AtomicLong deletionsSinceBuild = new AtomicLong();
+
+    private final AtomicLong definiteNegatives = new AtomicLong();
+
+    private final AtomicLong fallThroughs = new AtomicLong();
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        rebuild();
+    }
+
+    // True if the email is registered; only queries the database for possible positives
+    public boolean exists(String email) {
+        Bits bits = current;
+        if (bits != null && !bits.mightContain(normalize(email))) {
+            definiteNegatives.incrementAndGet();
+            return false;
+        }
+        fallThroughs.incrementAndGet();
+        return Boolean.TRUE.equals(onPrimary(status -> userRepository.existsByEmail(email)));
+    }
+
+    public void add(String email) {
+        if (email == null) {
+            return;
+        }
+        String key = normalize(email);
+        Bits bits = current;
+        if (bits != null) {
+            bits.put(key);
+        }
+        Bits next = building;
+        if (next != null) {
+            next.put(key);
+        }
+    }
+
+    // Deleted emails stay "maybe" until the next rebuild
+    public void userDeleted() {
+        if (deletionsSinceBuild.incrementAndGet() >= rebuildAfterDeletions) {
+            Thread thread = new Thread(this::rebuildQuietly, "email-filter-rebuild");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public long getDefiniteNegatives() {
+        return definiteNegatives.get();
+    }
+
+    public long getFallThroughs() {
+        return fallThroughs.get();
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            logger.warn("Email filter rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    private void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Bits next = new Bits(expectedInsertions, falsePositiveRate);
+            building = next;
+            // Streaming queries need an open transaction, also on the background thread
+            Long count = onPrimary(status -> {
+                try (Stream<String> emails = userRepository.streamAllEmails()) {
+                    return emails.peek(email -> next.put(normalize(email))).count();
+                }
+            });
+            current = next;
+            deletionsSinceBuild.set(0);
+            logger.debug("Email filter built with {} emails", count);
+        } finally {
+            building = null;
+            rebuilding.set(false);
+        }
+    }
+
+    // Both the filter and the fall-through read the primary: an email the replica has not caught up with would
+    // otherwise be missing from a rebuilt filter, or answered "not registered", and signup would skip its check
+    private <T> T onPrimary(TransactionCallback<T> action) {
+        return new TransactionTemplate(transactionManager).execute(action);
+    }
+
+    static String normalize(String email) {
+        String decomposed = Normalizer.normalize(email.trim(), Normalizer.Form.NFD);
+        return decomposed.replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+    }
+
+    // Lock-free bit array with double hashing over a 128-bit murmur-style mix
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+
+        private Bits(long expectedInsertions, double falsePositiveRate) {
+            long n = Math.max(1, expectedInsertions);
+            long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+            this.words = new AtomicLongArray(words);
+            this.bitCount = (long) words * 64;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        }
+
+        private void put(String key) {
+            long[] hash = hash(key);
+            long combined = hash[0];
+            for (int i = 0; i < hashCount; i++) {
+                long bit = (combined & Long.MAX_VALUE) % bitCount;
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long word;
+                do {
+                    word = words.get(index);
+                    if ((word & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(index, word, word | mask));
+                combined += hash[1];
+            }
+        }
+
+        private boolean mightContain(String key) {
+            long[] hash = hash(key);
+            long combined = hash[0];
+            for (int i = 0; i < hashCount; i++) {
+                long bit = (combined & Long.MAX_VALUE) % bitCount;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+                combined += hash[1];
+            }
+            return true;
+        }
+
+        private static long[] hash(String key) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            long h1 = 0x9E3779B97F4A7C15L;
+            long h2 = 0xC2B2AE3D27D4EB4FL;
+            for (byte b : bytes) {
+                h1 = (h1 ^ (b & 0xFF)) * 0x100000001B3L;
+                h2 = Long.rotateLeft(h2 ^ (b & 0xFF), 31) * 0x9E3779B97F4A7C15L;
+            }
+            return new long[] { fmix(h1), fmix(h2) | 1L };
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xFF51AFD7ED558CCDL;
+            k ^= k >>> 33;
+            k *= 0xC4CEB9FE1A85EC53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
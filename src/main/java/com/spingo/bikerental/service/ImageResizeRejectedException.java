@@ -0,0 +1,9 @@
+package com.spingo.bikerental.service;
+
+// Thrown when every resize slot stays busy past images.resize-timeout-ms; mapped to 503 Service Unavailable
+public class ImageResizeRejectedException extends RuntimeException {
+
+    public ImageResizeRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,491 @@
+package com.spingo.bikerental.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resized copies of bike images, kept in a size-bounded LRU cache on disk.
+ *
+ * Sources are looked up by key under images.source-location (static/images by
+ * default). A variant is named after a hash of the key, the requested box, the
+ * format and the source's size and modification time, so replacing a source
+ * image simply stops its old variants from being hit; they age out of the LRU.
+ *
+ * Concurrent requests for the same missing variant share one resize: the first
+ * caller renders it, later ones wait on its future. Distinct resizes are
+ * limited to images.max-concurrent-resizes because decoding a full-size photo
+ * takes tens of megabytes of heap; callers that can't get a slot within
+ * images.resize-timeout-ms get an ImageResizeRejectedException (503).
+ *
+ * The LRU order lives in memory and is rebuilt from file modification times
+ * at startup; hits touch the file so the order survives restarts.
+ *
+ * Every variant handed out is pinned until the caller closes it, and eviction
+ * skips pinned files, so a file is never deleted while it is being served. A
+ * cache over budget because of pins shrinks again when the last pin goes.
+ */
+@Service
+public class ImageVariantCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantCache.class);
+
+    private static final Pattern KEY = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,127}");
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${images.source-location:classpath:/static/images/}")
+    private String sourceLocation;
+
+    @Value("${images.cache.dir:data/image-cache}")
+    private String cacheDir;
+
+    @Value("${images.cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    @Value("${images.max-dimension:2048}")
+    private int maxDimension;
+
+    @Value("${images.max-concurrent-resizes:2}")
+    private int maxConcurrentResizes;
+
+    @Value("${images.resize-timeout-ms:10000}")
+    private long resizeTimeoutMs;
+
+    private Path root;
+
+    private Semaphore resizeSlots;
+
+    // File name -> size, in access order; guarded by this
+    private final LinkedHashMap<String, Long> lru = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long totalBytes;
+
+    // File name -> number of open Variants serving it; guarded by this
+    private final Map<String, Integer> pins = new HashMap<>();
+
+    private final ConcurrentHashMap<String, CompletableFuture<Variant>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Path.of(cacheDir).toAbsolutePath();
+        Files.createDirectories(root);
+        resizeSlots = new Semaphore(Math.max(1, maxConcurrentResizes));
+        // Decode from memory instead of spooling every source through a temp file
+        ImageIO.setUseCache(false);
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(root)) {
+            files = listing.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        files.sort(Comparator.comparing(ImageVariantCache::lastModified));
+        synchronized (this) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                long size = Files.size(file);
+                lru.put(name, size);
+                totalBytes += size;
+            }
+            evictIfNeeded();
+        }
+        logger.info("Image variant cache at {}: {} files, {} bytes", root, lru.size(), totalBytes);
+    }
+
+    /**
+     * Returns the variant of key that fits in width x height (either may be null to follow the aspect ratio),
+     * rendering it if it isn't cached. Returns null if there is no such source image. The variant's file is
+     * pinned against eviction until the caller closes it.
+     */
+    public Variant get(String key, Integer width, Integer height, String format) throws IOException {
+        if (key == null || !KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid image key");
+        }
+        if (width == null && height == null) {
+            throw new IllegalArgumentException("At least one of w and h is required");
+        }
+        if ((width != null && (width < 1 || width > maxDimension))
+                || (height != null && (height < 1 || height > maxDimension))) {
+            throw new IllegalArgumentException("w and h must be between 1 and " + maxDimension);
+        }
+        String type = normalizeFormat(format);
+
+        Resource source = resourceLoader.getResource(sourceLocation + key);
+        if (!source.exists() || !source.isReadable()) {
+            return null;
+        }
+        String name = variantName(key, width, height, type, source.contentLength(), source.lastModified());
+
+        Variant cached = lookup(name, type);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        while (true) {
+            CompletableFuture<Variant> mine = new CompletableFuture<>();
+            CompletableFuture<Variant> running = inFlight.putIfAbsent(name, mine);
+            if (running != null) {
+                coalesced.incrementAndGet();
+                try {
+                    running.join();
+                } catch (CompletionException e) {
+                    throw unwrap(e);
+                }
+                // The renderer's pin is its own; take ours, or render again if it was already evicted
+                Variant rendered = lookup(name, type);
+                if (rendered != null) {
+                    return rendered;
+                }
+                continue;
+            }
+            try {
+                // Another request may have finished rendering between the lookup and putIfAbsent
+                Variant variant = lookup(name, type);
+                if (variant == null) {
+                    misses.incrementAndGet();
+                    variant = render(source, name, width, height, type);
+                }
+                mine.complete(variant);
+                return variant;
+            } catch (IOException | RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(name, mine);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("files", lru.size());
+            stats.put("bytes", totalBytes);
+            stats.put("pinned", pins.size());
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("evictions", evictions.get());
+        stats.put("rendering", inFlight.size());
+        return stats;
+    }
+
+    // A pinned cached variant, or null if there is none
+    private Variant lookup(String name, String type) {
+        Long size;
+        synchronized (this) {
+            size = lru.get(name);
+            if (size == null) {
+                return null;
+            }
+            pin(name);
+        }
+        Path file = root.resolve(name);
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Removed behind our back; forget it and render again
+            synchronized (this) {
+                unpin(name);
+                if (lru.remove(name) != null) {
+                    totalBytes -= size;
+                }
+            }
+            return null;
+        }
+        return new Variant(this, file, size, type, name);
+    }
+
+    private Variant render(Resource source, String name, Integer width, Integer height, String type) throws IOException {
+        boolean acquired;
+        try {
+            acquired = resizeSlots.tryAcquire(resizeTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImageResizeRejectedException("Interrupted while waiting to resize");
+        }
+        if (!acquired) {
+            throw new ImageResizeRejectedException("Image resizing is busy, please retry");
+        }
+        try {
+            BufferedImage image = resize(source, width, height, type);
+            Path target = root.resolve(name);
+            Path temp = root.resolve(name + ".tmp");
+            write(image, type, temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            long size = Files.size(target);
+            synchronized (this) {
+                Long previous = lru.put(name, size);
+                totalBytes += size - (previous != null ? previous : 0);
+                pin(name);
+                evictIfNeeded();
+            }
+            return new Variant(this, target, size, type, name);
+        } finally {
+            resizeSlots.release();
+        }
+    }
+
+    // Decodes with subsampling when the source is far larger than the box, then scales down in halving steps
+    private BufferedImage resize(Resource source, Integer width, Integer height, String type) throws IOException {
+        try (InputStream in = source.getInputStream();
+             ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Image format not supported for resizing");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+
+                double scale = Math.min(
+                    width != null ? (double) width / sourceWidth : Double.MAX_VALUE,
+                    height != null ? (double) height / sourceHeight : Double.MAX_VALUE);
+                scale = Math.min(scale, 1.0);
+                int targetWidth = Math.max(1, (int) Math.round(sourceWidth * scale));
+                int targetHeight = Math.max(1, (int) Math.round(sourceHeight * scale));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Keep twice the target resolution so the final scaling step still has pixels to average
+                int subsampling = Math.max(1, (int) (1 / scale) / 2);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                BufferedImage image = reader.read(0, param);
+                return scale(image, targetWidth, targetHeight, type.equals("png"));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage image, int targetWidth, int targetHeight, boolean alpha) {
+        int imageType = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, imageType);
+            Graphics2D g = next.createGraphics();
+            try {
+                if (!alpha) {
+                    // JPEG has no alpha; transparent sources go on white rather than black
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, currentWidth, currentHeight);
+                }
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+
+    private static void write(BufferedImage image, String type, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(type).next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (type.equals("jpeg")) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Caller holds the monitor
+    private void pin(String name) {
+        pins.merge(name, 1, Integer::sum);
+    }
+
+    // Caller holds the monitor
+    private void unpin(String name) {
+        pins.computeIfPresent(name, (n, count) -> count > 1 ? count - 1 : null);
+    }
+
+    // A served variant is done with; eviction it held back can go ahead now
+    private synchronized void release(String name) {
+        unpin(name);
+        if (!pins.containsKey(name)) {
+            evictIfNeeded();
+        }
+    }
+
+    // Caller holds the monitor; the least recently used variants go first, never one that is being served
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Long>> oldest = lru.entrySet().iterator();
+        while (totalBytes > maxBytes && oldest.hasNext()) {
+            Map.Entry<String, Long> entry = oldest.next();
+            if (pins.containsKey(entry.getKey())) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(root.resolve(entry.getKey()));
+            } catch (IOException e) {
+                logger.warn("Could not evict image variant {}: {}", entry.getKey(), e.getMessage());
+                continue;
+            }
+            totalBytes -= entry.getValue();
+            oldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static String normalizeFormat(String format) {
+        if (format == null || format.isEmpty()) {
+            return "jpeg";
+        }
+        switch (format.toLowerCase(Locale.ROOT)) {
+            case "jpg":
+            case "jpeg":
+                return "jpeg";
+            case "png":
+                return "png";
+            default:
+                throw new IllegalArgumentException("fmt must be jpg or png");
+        }
+    }
+
+    private static String variantName(String key, Integer width, Integer height, String type,
+                                      long sourceLength, long sourceModified) {
+        String identity = key + '|' + width + 'x' + height + '|' + type + '|' + sourceLength + '|' + sourceModified;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(identity.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16) + (type.equals("png") ? ".png" : ".jpg");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static IOException unwrap(CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException io) {
+            return io;
+        }
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        return new IOException(cause);
+    }
+
+    // A rendered variant on disk, pinned until closed; the name doubles as a strong ETag
+    public static final class Variant implements AutoCloseable {
+
+        private final ImageVariantCache cache;
+        private final Path file;
+        private final long size;
+        private final String contentType;
+        private final String name;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Variant(ImageVariantCache cache, Path file, long size, String type, String name) {
+            this.cache = cache;
+            this.file = file;
+            this.size = size;
+            this.contentType = type.equals("png") ? "image/png" : "image/jpeg";
+            this.name = name;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                cache.release(name);
+            }
+        }
+    }
+}
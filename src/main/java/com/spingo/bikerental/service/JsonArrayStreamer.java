@@ -0,0 +1,86 @@
+package com.spingo.bikerental.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a repository Stream as a JSON array, one element at a time.
+ *
+ * The query is opened inside the response body, on the MVC async thread, in a
+ * read-only transaction that lives exactly as long as the response. Rows come
+ * off a JDBC cursor in fetch-size batches and every flush-every elements the
+ * generator is flushed to the socket and the persistence context is cleared,
+ * so neither the result list, the managed entities nor the JSON bytes
+ * accumulate: heap per request stays constant however large the table is.
+ * A slow client blocks the flush, which in turn stops the cursor from
+ * advancing. Output is the same array the List-returning endpoints wrote.
+ */
+@Component
+public class JsonArrayStreamer {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${streaming.flush-every:200}")
+    private int flushEvery;
+
+    private ObjectWriter elementWriter;
+
+    @PostConstruct
+    void init() {
+        elementWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    // The supplier must return a repository Stream; it is closed (and its cursor released) when the body ends
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> query) {
+        StreamingResponseBody body = output -> {
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            readOnly.executeWithoutResult(status -> {
+                try (Stream<T> rows = query.get();
+                     JsonGenerator gen = objectMapper.getFactory().createGenerator(output)) {
+                    gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                    gen.writeStartArray();
+                    int pending = 0;
+                    for (T row : (Iterable<T>) rows::iterator) {
+                        elementWriter.writeValue(gen, row);
+                        if (++pending >= flushEvery) {
+                            gen.flush();
+                            entityManager.clear();
+                            pending = 0;
+                        }
+                    }
+                    gen.writeEndArray();
+                } catch (IOException e) {
+                    // Usually the client went away; rolls back the (read-only) transaction and closes the cursor
+                    throw new UncheckedIOException(e);
+                }
+            });
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+}
@@ -0,0 +1,9 @@
+package com.spingo.bikerental.service;
+
+// Thrown when the password hashing executor is saturated; mapped to 503 Service Unavailable
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
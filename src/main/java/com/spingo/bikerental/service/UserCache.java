@@ -0,0 +1,136 @@
+package com.spingo.bikerental.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded read-through cache of User rows, indexed by id and by email.
+ *
+ * Backed by Caffeine, whose W-TinyLFU policy only admits a new entry when it is
+ * estimated to be used more often than the one it would evict, so one-off
+ * lookups don't flush frequently used owners. Cached users are shared detached
+ * instances: treat them as read-only and go through UserRepository to modify.
+ */
+@Component
+public class UserCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${user.cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${user.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Cache<Long, User> usersById;
+
+    private Cache<String, Long> idsByEmail;
+
+    @PostConstruct
+    public void init() {
+        usersById = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        idsByEmail = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+    }
+
+    public Optional<User> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        User cached = usersById.getIfPresent(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<User> user = userRepository.findById(id);
+        user.ifPresent(this::put);
+        return user;
+    }
+
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        Long id = idsByEmail.getIfPresent(email);
+        if (id != null) {
+            User cached = usersById.getIfPresent(id);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        Optional<User> user = userRepository.findByEmail(email);
+        user.ifPresent(this::put);
+        return user;
+    }
+
+    public void invalidate(Long id) {
+        if (id == null) {
+            return;
+        }
+        User cached = usersById.getIfPresent(id);
+        if (cached != null) {
+            idsByEmail.invalidate(cached.getEmail());
+        }
+        usersById.invalidate(id);
+    }
+
+    public void invalidateEmail(String email) {
+        if (email == null) {
+            return;
+        }
+        Long id = idsByEmail.getIfPresent(email);
+        idsByEmail.invalidate(email);
+        if (id != null) {
+            usersById.invalidate(id);
+        }
+    }
+
+    public void invalidateAll() {
+        usersById.invalidateAll();
+        idsByEmail.invalidateAll();
+    }
+
+    // Hit ratios and eviction counts used to size the cache
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maximumSize", maximumSize);
+        stats.put("ttlSeconds", ttlSeconds);
+        stats.put("byId", describe(usersById.stats(), usersById.estimatedSize()));
+        stats.put("byEmail", describe(idsByEmail.stats(), idsByEmail.estimatedSize()));
+        return stats;
+    }
+
+    private void put(User user) {
+        usersById.put(user.getId(), user);
+        idsByEmail.put(user.getEmail(), user.getId());
+    }
+
+    private Map<String, Object> describe(CacheStats cacheStats, long size) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("hitRatio", cacheStats.hitRate());
+        stats.put("hits", cacheStats.hitCount());
+        stats.put("misses", cacheStats.missCount());
+        stats.put("evictions", cacheStats.evictionCount());
+        return stats;
+    }
+}
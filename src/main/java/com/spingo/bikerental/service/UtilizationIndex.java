@@ -0,0 +1,562 @@
+package com.spingo.bikerental.service;
+
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.Booking;
+import com.spingo.bikerental.BookingRepository;
+import com.spingo.bikerental.BookingStatus;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory occupancy bitsets used for the utilization heatmaps.
+ *
+ * Each bike keeps one long per hour-of-week (168 in total). Inside that long,
+ * bit (week * 4 + quarter) marks whether the bike was occupied during that
+ * 15-minute slot, so a rolling window of up to 16 weeks fits in 64 bits and a
+ * heatmap cell is a single Long.bitCount instead of a scan over booking rows.
+ *
+ * On shutdown the bitsets are written to a snapshot together with the change log offset
+ * they reflect. The next start loads that snapshot and replays the change log from there,
+ * falling back to a full database rebuild when the snapshot is missing, from another
+ * window, or no longer matches the bike and booking tables.
+ */
+@Component
+public class UtilizationIndex {
+
+    public static final int SLOT_MINUTES = 15;
+    public static final int HOURS_PER_WEEK = 7 * 24;
+    private static final int SLOTS_PER_HOUR = 60 / SLOT_MINUTES;
+    private static final int MAX_WEEKS = Long.SIZE / SLOTS_PER_HOUR;
+
+    private static final Logger logger = LoggerFactory.getLogger(UtilizationIndex.class);
+
+    private static final String CHANGE_LOG_CONSUMER = "utilization";
+    // Changed whenever the snapshot layout changes, so an old file is rebuilt instead of misread
+    private static final int SNAPSHOT_MAGIC = 0x55544959;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Value("${utilization.window-weeks:16}")
+    private int windowWeeks;
+
+    @Value("${utilization.restore-from-snapshot:true}")
+    private boolean restoreFromSnapshot;
+
+    private volatile Map<Long, BikeOccupancy> bikes = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime windowStart;
+
+    // Bikes whose bookings changed while a rebuild or restore was reading the database; recomputed once the
+    // new map is in place, since the rows it read may predate the change
+    private final Set<Long> updatedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean rebuilding;
+
+    // Serializes rebuild, snapshot and restore. Not a monitor: rebuild holds it across database queries,
+    // and a virtual thread blocked inside synchronized pins its carrier thread for the whole wait.
+    private final ReentrantLock maintenance = new ReentrantLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!restoreSnapshot()) {
+            rebuild();
+        }
+    }
+
+    // Full rebuild; also used when the rolling window moves on to a new week
+    public void rebuild() {
+        maintenance.lock();
+        try {
+            rebuildLocked();
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    private void rebuildLocked() {
+        windowWeeks = Math.max(1, Math.min(windowWeeks, MAX_WEEKS));
+        LocalDateTime start = currentWindowStart();
+        LocalDateTime end = start.plusWeeks(windowWeeks);
+
+        Map<Long, BikeOccupancy> fresh = new ConcurrentHashMap<>();
+        startRebuild();
+        try {
+            for (Bike bike : bikeRepository.findByIsActiveTrue()) {
+                fresh.put(bike.getId(), new BikeOccupancy(bike.getCity()));
+            }
+
+            for (Object[] row : bookingRepository.findOccupancyRows(start, end)) {
+                BikeOccupancy occupancy = fresh.get((Long) row[0]);
+                if (occupancy != null) {
+                    occupancy.mark(start, windowWeeks, (LocalDateTime) row[1], (LocalDateTime) row[2]);
+                }
+            }
+
+            bikes = fresh;
+            windowStart = start;
+        } finally {
+            finishRebuild();
+        }
+        logger.debug("Utilization index rebuilt for {} bikes starting {}", fresh.size(), start);
+    }
+
+    // An update that sees rebuilding == false committed before the rebuild's queries ran, so they include it
+    private void startRebuild() {
+        rebuilding = true;
+        updatedDuringRebuild.clear();
+    }
+
+    private void finishRebuild() {
+        rebuilding = false;
+        for (Long bikeId : updatedDuringRebuild) {
+            updatedDuringRebuild.remove(bikeId);
+            BikeOccupancy occupancy = bikes.get(bikeId);
+            if (occupancy != null) {
+                recomputeBike(bikeId, occupancy.city);
+            }
+        }
+    }
+
+    // New or updated bike: keep its city current without touching its bits
+    public void bikeUpdated(Bike bike) {
+        bikeUpdated(bike.getId(), bike.getCity(), bike.getIsActive());
+    }
+
+    // Bulk variant for imports; new bikes have no bookings, so no rebuild is needed
+    public void bikesUpdated(Collection<Bike> updated) {
+        for (Bike bike : updated) {
+            bikeUpdated(bike);
+        }
+    }
+
+    // A booking was created: OR its slots into the bike's bitset
+    public void bookingCreated(Booking booking) {
+        bookingCreated(booking.getBike().getId(), booking.getStatus(),
+            occupiedFrom(booking.getActualPickupDate(), booking.getPickupDate()),
+            occupiedUntil(booking.getActualDropoffDate(), booking.getDropoffDate()));
+    }
+
+    // A booking was moved or cancelled: overlapping bookings may share slots, so recompute that bike only
+    public void bookingChanged(Booking booking) {
+        Bike bike = booking.getBike();
+        recomputeBike(bike.getId(), bike.getCity());
+    }
+
+    // Writes the bitsets and the change log offset they include; replay from there is idempotent
+    @PreDestroy
+    public void saveSnapshot() {
+        maintenance.lock();
+        try {
+            saveSnapshotLocked();
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    private void saveSnapshotLocked() {
+        LocalDateTime start = windowStart;
+        if (!changeLog.isOpen() || start == null) {
+            return;
+        }
+        // Callers update the index as soon as their transaction commits, while the drainer appends the
+        // record later, so records below this offset are reflected in the bits copied afterwards. A request
+        // still between commit and index update here is caught by the booking count check on restore.
+        long offset = changeLog.getEndOffset();
+        Path file = snapshotFile();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(offset);
+                out.writeUTF(start.toString());
+                out.writeInt(windowWeeks);
+                Map<Long, BikeOccupancy> current = bikes;
+                out.writeInt(current.size());
+                for (Map.Entry<Long, BikeOccupancy> entry : current.entrySet()) {
+                    BikeOccupancy occupancy = entry.getValue();
+                    out.writeLong(entry.getKey());
+                    out.writeBoolean(occupancy.city != null);
+                    if (occupancy.city != null) {
+                        out.writeUTF(occupancy.city);
+                    }
+                    for (long bits : occupancy.snapshot()) {
+                        out.writeLong(bits);
+                    }
+                    out.writeInt(occupancy.bookingCount());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            changeLog.commitCheckpoint(CHANGE_LOG_CONSUMER, offset);
+            logger.info("Utilization snapshot of {} bikes saved at change log offset {}", bikes.size(), offset);
+        } catch (IOException e) {
+            logger.warn("Could not save utilization snapshot", e);
+        }
+    }
+
+    // Occupancy ratio per [day-of-week][hour] for one bike, or null if unknown
+    public double[][] bikeHeatmap(Long bikeId) {
+        ensureCurrentWindow();
+        BikeOccupancy occupancy = bikes.get(bikeId);
+        if (occupancy == null) {
+            return null;
+        }
+        long[] bits = occupancy.snapshot();
+        long[] counts = new long[HOURS_PER_WEEK];
+        for (int hour = 0; hour < HOURS_PER_WEEK; hour++) {
+            counts[hour] = Long.bitCount(bits[hour]);
+        }
+        return toHeatmap(counts, 1);
+    }
+
+    // Occupancy ratio per [day-of-week][hour] for each city, summed over its bikes
+    public Map<String, double[][]> cityHeatmaps() {
+        return cityHeatmaps(null);
+    }
+
+    // Same, restricted to the given bikes (an owner's fleet); null means every bike
+    public Map<String, double[][]> cityHeatmaps(Collection<Long> bikeIds) {
+        ensureCurrentWindow();
+        Map<Long, BikeOccupancy> current = bikes;
+        Collection<BikeOccupancy> selected = bikeIds == null ? current.values()
+            : bikeIds.stream().map(current::get).filter(Objects::nonNull).toList();
+        Map<String, long[]> counts = new TreeMap<>();
+        Map<String, Integer> bikeCounts = new TreeMap<>();
+        for (BikeOccupancy occupancy : selected) {
+            long[] bits = occupancy.snapshot();
+            long[] cityCounts = counts.computeIfAbsent(occupancy.city, c -> new long[HOURS_PER_WEEK]);
+            for (int hour = 0; hour < HOURS_PER_WEEK; hour++) {
+                cityCounts[hour] += Long.bitCount(bits[hour]);
+            }
+            bikeCounts.merge(occupancy.city, 1, Integer::sum);
+        }
+
+        Map<String, double[][]> heatmaps = new TreeMap<>();
+        counts.forEach((city, cityCounts) -> heatmaps.put(city, toHeatmap(cityCounts, bikeCounts.get(city))));
+        return heatmaps;
+    }
+
+    public LocalDateTime getWindowStart() {
+        return windowStart;
+    }
+
+    public int getWindowWeeks() {
+        return windowWeeks;
+    }
+
+    // For writers that bypass the change log (bulk data generation); the next start rebuilds from the database
+    public void discardSnapshot() {
+        if (!changeLog.isOpen()) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(snapshotFile());
+        } catch (IOException e) {
+            logger.warn("Could not delete utilization snapshot", e);
+        }
+    }
+
+    // Loads the last snapshot and replays the change log after it; false means a full rebuild is needed
+    private boolean restoreSnapshot() {
+        maintenance.lock();
+        try {
+            return restoreSnapshotLocked();
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    private boolean restoreSnapshotLocked() {
+        if (!restoreFromSnapshot || !changeLog.isOpen() || !Files.exists(snapshotFile())) {
+            return false;
+        }
+        windowWeeks = Math.max(1, Math.min(windowWeeks, MAX_WEEKS));
+        LocalDateTime start = currentWindowStart();
+        startRebuild();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile())))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                return false;
+            }
+            long offset = in.readLong();
+            LocalDateTime snapshotStart = LocalDateTime.parse(in.readUTF());
+            if (in.readInt() != windowWeeks || !snapshotStart.equals(start)) {
+                // Slots are relative to the window start, so another window cannot be reused
+                return false;
+            }
+            Map<Long, BikeOccupancy> restored = new ConcurrentHashMap<>();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long bikeId = in.readLong();
+                BikeOccupancy occupancy = new BikeOccupancy(in.readBoolean() ? in.readUTF() : null);
+                for (int hour = 0; hour < HOURS_PER_WEEK; hour++) {
+                    occupancy.bits[hour] = in.readLong();
+                }
+                occupancy.bookings = in.readInt();
+                restored.put(bikeId, occupancy);
+            }
+            bikes = restored;
+            windowStart = start;
+
+            Set<Long> changedBikes = new HashSet<>();
+            long end = changeLog.replay(offset, event -> apply(event, changedBikes));
+            for (Long bikeId : changedBikes) {
+                BikeOccupancy occupancy = bikes.get(bikeId);
+                if (occupancy != null) {
+                    recomputeBike(bikeId, occupancy.city);
+                }
+            }
+
+            // Writes that bypassed the change log (seeding, manual SQL, archival inside the window) show up
+            // as a different bike or booking count
+            long bookings = bikes.values().stream().mapToLong(BikeOccupancy::bookingCount).sum();
+            if (bikes.size() != bikeRepository.countByIsActiveTrue()
+                    || bookings != bookingRepository.countOccupancyRows(start, start.plusWeeks(windowWeeks))) {
+                logger.info("Utilization snapshot does not match the bike and booking tables; rebuilding");
+                return false;
+            }
+            logger.info("Utilization index restored for {} bikes from snapshot at offset {}, replayed to {}",
+                bikes.size(), offset, end);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not restore utilization snapshot; rebuilding from the database", e);
+            return false;
+        } finally {
+            finishRebuild();
+        }
+    }
+
+    private void apply(ChangeEvent event, Set<Long> changedBikes) {
+        if (event.getEntityType() == ChangeEvent.EntityType.BIKE) {
+            bikeUpdated(event.getEntityId(), event.getString("city"), (Boolean) event.getData().get("isActive"));
+            return;
+        }
+        // Recomputed once per bike after the replay rather than marked here: a crash while draining can
+        // leave a record in the log twice, and a recompute counts each booking once
+        changedBikes.add(event.getLong("bikeId"));
+    }
+
+    private void bikeUpdated(Long bikeId, String city, Boolean isActive) {
+        if (!Boolean.TRUE.equals(isActive)) {
+            bikes.remove(bikeId);
+            return;
+        }
+        bikes.compute(bikeId, (id, existing) -> {
+            if (existing == null) {
+                return new BikeOccupancy(city);
+            }
+            existing.city = city;
+            return existing;
+        });
+    }
+
+    private void bookingCreated(Long bikeId, BookingStatus status, LocalDateTime from, LocalDateTime until) {
+        if (status == BookingStatus.CANCELLED) {
+            return;
+        }
+        Map<Long, BikeOccupancy> current = bikes;
+        LocalDateTime start = windowStart;
+        BikeOccupancy occupancy = current.get(bikeId);
+        if (start == null || occupancy == null) {
+            return;
+        }
+        occupancy.mark(start, windowWeeks, from, until);
+        if (!settled(bikeId, current, start)) {
+            // Marked a map or window that has since been replaced; recompute rather than mark twice
+            recomputeBike(bikeId, occupancy.city);
+        }
+    }
+
+    // Recomputed in place under the bike's lock, so a booking created meanwhile is either in the query result
+    // or marked after the reset, and a bike deactivated meanwhile is not put back
+    private void recomputeBike(Long bikeId, String city) {
+        while (true) {
+            Map<Long, BikeOccupancy> current = bikes;
+            LocalDateTime start = windowStart;
+            BikeOccupancy occupancy = current.get(bikeId);
+            if (start == null || occupancy == null) {
+                return;
+            }
+            occupancy.lock.lock();
+            try {
+                List<Object[]> rows = bookingRepository.findOccupancyRowsForBike(bikeId, start, start.plusWeeks(windowWeeks));
+                occupancy.city = city;
+                occupancy.reset();
+                for (Object[] row : rows) {
+                    occupancy.mark(start, windowWeeks, (LocalDateTime) row[1], (LocalDateTime) row[2]);
+                }
+            } finally {
+                occupancy.lock.unlock();
+            }
+            if (settled(bikeId, current, start)) {
+                return;
+            }
+        }
+    }
+
+    // Whether an update applied to current/start still stands. Rebuild swaps the map before the window, so
+    // both are compared; a rebuild still reading the database recomputes the bike once it has swapped.
+    private boolean settled(Long bikeId, Map<Long, BikeOccupancy> current, LocalDateTime start) {
+        if (rebuilding) {
+            updatedDuringRebuild.add(bikeId);
+        }
+        return bikes == current && start.equals(windowStart);
+    }
+
+    private Path snapshotFile() {
+        return changeLog.getDirectory().resolve("snapshots").resolve("utilization.snapshot");
+    }
+
+    private void ensureCurrentWindow() {
+        if (isCurrentWindow()) {
+            return;
+        }
+        maintenance.lock();
+        try {
+            // Requests that queued behind the first one find the window already moved
+            if (!isCurrentWindow()) {
+                rebuildLocked();
+            }
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    private boolean isCurrentWindow() {
+        LocalDateTime start = windowStart;
+        return start != null && start.equals(currentWindowStart());
+    }
+
+    private LocalDateTime currentWindowStart() {
+        LocalDateTime thisWeek = LocalDateTime.now()
+            .truncatedTo(ChronoUnit.DAYS)
+            .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return thisWeek.minusWeeks(windowWeeks - 1);
+    }
+
+    private double[][] toHeatmap(long[] occupiedSlots, int bikeCount) {
+        double slotsPerCell = (double) windowWeeks * SLOTS_PER_HOUR * bikeCount;
+        double[][] heatmap = new double[7][24];
+        for (int hour = 0; hour < HOURS_PER_WEEK; hour++) {
+            heatmap[hour / 24][hour % 24] = occupiedSlots[hour] / slotsPerCell;
+        }
+        return heatmap;
+    }
+
+    private static LocalDateTime occupiedFrom(LocalDateTime actualPickup, LocalDateTime pickup) {
+        return actualPickup != null ? actualPickup : pickup;
+    }
+
+    private static LocalDateTime occupiedUntil(LocalDateTime actualDropoff, LocalDateTime dropoff) {
+        return actualDropoff != null ? actualDropoff : dropoff;
+    }
+
+    private static final class BikeOccupancy {
+        private final long[] bits = new long[HOURS_PER_WEEK];
+        private volatile String city;
+        // Bookings marked that overlap the window, matching BookingRepository.countOccupancyRows
+        private int bookings;
+        // Not a monitor: recomputeBike holds it across the bike's booking query
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private BikeOccupancy(String city) {
+            this.city = city;
+        }
+
+        private void mark(LocalDateTime windowStart, int weeks, LocalDateTime from, LocalDateTime until) {
+            if (from == null || until == null) {
+                return;
+            }
+            lock.lock();
+            try {
+                markLocked(windowStart, weeks, from, until);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void markLocked(LocalDateTime windowStart, int weeks, LocalDateTime from, LocalDateTime until) {
+            if (from.isBefore(windowStart.plusWeeks(weeks)) && until.isAfter(windowStart)) {
+                bookings++;
+            }
+            long totalSlots = (long) weeks * HOURS_PER_WEEK * SLOTS_PER_HOUR;
+            long first = Math.max(0, ChronoUnit.MINUTES.between(windowStart, from) / SLOT_MINUTES);
+            long last = Math.min(totalSlots, ceilDiv(ChronoUnit.MINUTES.between(windowStart, until), SLOT_MINUTES));
+            for (long slot = first; slot < last; slot++) {
+                int week = (int) (slot / (HOURS_PER_WEEK * SLOTS_PER_HOUR));
+                int slotInWeek = (int) (slot % (HOURS_PER_WEEK * SLOTS_PER_HOUR));
+                int hourOfWeek = slotInWeek / SLOTS_PER_HOUR;
+                int quarter = slotInWeek % SLOTS_PER_HOUR;
+                bits[hourOfWeek] |= 1L << (week * SLOTS_PER_HOUR + quarter);
+            }
+        }
+
+        private void reset() {
+            lock.lock();
+            try {
+                Arrays.fill(bits, 0L);
+                bookings = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long[] snapshot() {
+            lock.lock();
+            try {
+                return bits.clone();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private int bookingCount() {
+            lock.lock();
+            try {
+                return bookings;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static long ceilDiv(long value, long divisor) {
+            return -Math.floorDiv(-value, divisor);
+        }
+    }
+}
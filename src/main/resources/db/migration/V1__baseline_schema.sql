@@ -0,0 +1,69 @@
+-- Baseline: the schema Hibernate's ddl-auto=update used to generate.
+-- IF NOT EXISTS keeps this a no-op on databases created before migrations were introduced.
+-- `year` is quoted: it is a reserved word in H2 (the local and test databases), though not in MySQL.
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT NOT NULL,
+    name VARCHAR(50) NOT NULL,
+    email VARCHAR(50) NOT NULL,
+    phone VARCHAR(20) NOT NULL,
+    password VARCHAR(100) NOT NULL,
+    role ENUM('ADMIN', 'CUSTOMER', 'INDIVIDUAL_OWNER', 'RENTAL_BUSINESS', 'DELIVERY_PARTNER'),
+    address VARCHAR(200),
+    is_active BIT,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS bikes (
+    id BIGINT NOT NULL,
+    brand VARCHAR(50) NOT NULL,
+    model VARCHAR(50) NOT NULL,
+    `year` INTEGER NOT NULL,
+    type ENUM('SPORT', 'CRUISER', 'TOURING', 'STANDARD'),
+    city VARCHAR(50) NOT NULL,
+    price_per_hour DECIMAL(10, 2),
+    price_per_day DECIMAL(10, 2),
+    price_per_month DECIMAL(10, 2),
+    owner_id BIGINT,
+    description VARCHAR(500),
+    status ENUM('AVAILABLE', 'BOOKED', 'RENTED', 'MAINTENANCE', 'OUT_OF_SERVICE'),
+    image_url VARCHAR(500),
+    is_active BIT,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_bikes_owner FOREIGN KEY (owner_id) REFERENCES users (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS bookings (
+    id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    bike_id BIGINT NOT NULL,
+    pickup_date DATETIME(6) NOT NULL,
+    dropoff_date DATETIME(6) NOT NULL,
+    pickup_time VARCHAR(255) NOT NULL,
+    drop_time VARCHAR(255) NOT NULL,
+    actual_pickup_date DATETIME(6),
+    actual_dropoff_date DATETIME(6),
+    total_price DECIMAL(10, 2),
+    status ENUM('PENDING', 'CONFIRMED', 'ACTIVE', 'COMPLETED', 'CANCELLED'),
+    notes VARCHAR(500),
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_bookings_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_bookings_bike FOREIGN KEY (bike_id) REFERENCES bikes (id)
+) ENGINE = InnoDB;
+
+-- Single-row tables backing PooledIdGenerator (MySQL has no native sequences).
+-- IdSequenceAligner moves next_val past existing ids at startup.
+CREATE TABLE IF NOT EXISTS users_seq (next_val BIGINT) ENGINE = InnoDB;
+CREATE TABLE IF NOT EXISTS bikes_seq (next_val BIGINT) ENGINE = InnoDB;
+CREATE TABLE IF NOT EXISTS bookings_seq (next_val BIGINT) ENGINE = InnoDB;
+
+INSERT INTO users_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM users_seq);
+INSERT INTO bikes_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM bikes_seq);
+INSERT INTO bookings_seq (next_val) SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM bookings_seq);
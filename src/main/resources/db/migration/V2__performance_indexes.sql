@@ -0,0 +1,17 @@
+-- Composite indexes for the hot repository queries.
+
+-- BookingRepository.findConflictingBookings / findOccupancyRowsForBike / findByBikeId:
+-- equality on bike_id, then range on the planned period
+CREATE INDEX idx_bookings_bike_period ON bookings (bike_id, pickup_date, dropoff_date);
+
+-- BookingRepository.findByUserOrderByCreatedAtDesc / findByUserId: the index already delivers the order
+CREATE INDEX idx_bookings_user_created ON bookings (user_id, created_at);
+
+-- BookingRepository.findOccupancyRows and the dashboards' status counts
+CREATE INDEX idx_bookings_status_period ON bookings (status, pickup_date, dropoff_date);
+
+-- BikeRepository catalog filters (findByIsActiveTrue, findByIsActiveTrueAnd*, findBikesWithFilters)
+CREATE INDEX idx_bikes_catalog ON bikes (is_active, city, type, status);
+
+-- BikeRepository.findByOwnerIdAndIsActiveTrue (owner and business dashboards)
+CREATE INDEX idx_bikes_owner_active ON bikes (owner_id, is_active);
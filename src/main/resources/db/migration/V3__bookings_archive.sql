@@ -0,0 +1,26 @@
+-- Cold storage for terminal (COMPLETED / CANCELLED) bookings, filled by BookingArchiver.
+-- Same columns as bookings plus archived_at. No foreign keys: rows are immutable history and
+-- bikes/users are only ever soft-deleted.
+
+CREATE TABLE IF NOT EXISTS bookings_archive (
+    id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    bike_id BIGINT NOT NULL,
+    pickup_date DATETIME(6) NOT NULL,
+    dropoff_date DATETIME(6) NOT NULL,
+    pickup_time VARCHAR(255) NOT NULL,
+    drop_time VARCHAR(255) NOT NULL,
+    actual_pickup_date DATETIME(6),
+    actual_dropoff_date DATETIME(6),
+    total_price DECIMAL(10, 2),
+    status ENUM('PENDING', 'CONFIRMED', 'ACTIVE', 'COMPLETED', 'CANCELLED'),
+    notes VARCHAR(500),
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    archived_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_bookings_archive_user_created ON bookings_archive (user_id, created_at);
+CREATE INDEX idx_bookings_archive_bike_period ON bookings_archive (bike_id, pickup_date);
+CREATE INDEX idx_bookings_archive_status ON bookings_archive (status);
@@ -0,0 +1,13 @@
+-- Transactional outbox for the change log. ChangeLog.record inserts a row in the same transaction as the
+-- bike/booking write it describes; a background drainer appends committed rows to the memory-mapped log
+-- in id order and deletes them once the log is forced to disk. recorded_at is epoch milliseconds.
+
+CREATE TABLE IF NOT EXISTS change_log_outbox (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    entity_type VARCHAR(16) NOT NULL,
+    operation VARCHAR(16) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    recorded_at BIGINT NOT NULL,
+    payload VARCHAR(4000) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,6 @@
+-- Version columns for optimistic locking of bikes and bookings. Every JPA update checks and bumps the
+-- version, so a write based on a stale read (a replica row, or a concurrent request's older copy) fails
+-- instead of overwriting the newer row. Existing and bulk-inserted rows start at 0.
+
+ALTER TABLE bikes ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE bookings ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
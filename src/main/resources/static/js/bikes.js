@@ -285,7 +285,7 @@ class BikesManager {
 
         col.innerHTML = `
             <div class="card bike-card h-100" data-bike-id="${bike.id}">
-                <img src="${bike.imageUrl || 'images/Bike_1.jpg'}" 
+                <img src="${this.thumbnailUrl(bike.imageUrl || 'images/Bike_1.jpg', 640)}" 
                      class="card-img-top" alt="${bike.brand} ${bike.model}" style="height: 250px; object-fit: cover;">
                 <div class="card-body">
                     <div class="d-flex justify-content-between align-items-start mb-2">
@@ -350,6 +350,12 @@ class BikesManager {
         return col;
     }
 
+    // Local images are resized server-side (/api/images); other URLs and formats ImageIO can't read are left as they are
+    thumbnailUrl(imageUrl, width) {
+        const match = /^\/?images\/([A-Za-z0-9][A-Za-z0-9._-]*\.(?:jpe?g|png|gif|bmp))$/i.exec(imageUrl);
+        return match ? `/api/images/${match[1]}?w=${width}` : imageUrl;
+    }
+
     getTypeDisplayName(type) {
         const typeMap = {
             'SPORT': 'Sport',
@@ -587,7 +593,7 @@ class BikesManager {
                         </div>
                         <div class="modal-body">
                             <div class="text-center mb-4">
-                                <img src="${bike.imageUrl || 'images/Bike_1.jpg'}" alt="${bike.brand} ${bike.model}" 
+                                <img src="${this.thumbnailUrl(bike.imageUrl || 'images/Bike_1.jpg', 400)}" alt="${bike.brand} ${bike.model}" 
                                      style="width: 200px; height: 150px; object-fit: cover; border-radius: 10px;">
                                 <h5 class="mt-3">${bike.brand} ${bike.model}</h5>
                                 <p class="text-muted">${bike.year} • ${bike.type} • ${bike.city}</p>
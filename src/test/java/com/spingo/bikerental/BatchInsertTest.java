@@ -0,0 +1,113 @@
+package com.spingo.bikerental;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pooled ids let Hibernate batch inserts (hibernate.jdbc.batch_size=20). Batched rows go
+ * through one prepared INSERT per table and flush, while unbatched inserts prepare one
+ * statement per row, so the INSERTs Hibernate prepares (recorded by SqlRecorder) next to
+ * its entity insert count show whether batching happened.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DataInitializer.class, BatchInsertTest.Encoder.class})
+class BatchInsertTest {
+
+    // SecurityConfig is not part of the JPA slice
+    @TestConfiguration
+    static class Encoder {
+        @Bean
+        PasswordEncoder passwordEncoder() {
+            return new BCryptPasswordEncoder(4);
+        }
+    }
+
+    @Autowired
+    private DataInitializer dataInitializer;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void demoSeedingInsertsEachTableInOneBatch() throws Exception {
+        // The runner already seeded this context's database at startup; start again from empty tables
+        jdbcTemplate.update("DELETE FROM bookings");
+        jdbcTemplate.update("DELETE FROM bikes");
+        jdbcTemplate.update("DELETE FROM users");
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+        SqlRecorder.clear();
+
+        dataInitializer.run();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(7 + 10 + 2);
+        assertThat(insertsInto("users")).isEqualTo(1);
+        assertThat(insertsInto("bikes")).isEqualTo(1);
+        assertThat(insertsInto("bookings")).isEqualTo(1);
+    }
+
+    @Test
+    void saveAllIsFlushedInBatchesOfTheConfiguredSize() {
+        User owner = userRepository.findByEmail("mike@example.com").orElseThrow();
+        List<Bike> bikes = new ArrayList<>();
+        for (int i = 0; i < 45; i++) {
+            bikes.add(new Bike("Batch", "Model " + i, 2024, BikeType.STANDARD, "Pune",
+                new BigDecimal("100.00"), new BigDecimal("600.00"), new BigDecimal("12000.00"), null, null, owner));
+        }
+        statistics.clear();
+        SqlRecorder.clear();
+
+        bikeRepository.saveAll(bikes);
+
+        // Three batches (20 + 20 + 5) share one prepared statement; unbatched, every row would prepare its own
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(45);
+        assertThat(insertsInto("bikes")).isEqualTo(1);
+        bikeRepository.deleteAll(bikes);
+    }
+
+    private long insertsInto(String table) {
+        return SqlRecorder.statements().stream()
+            .filter(sql -> sql.startsWith("insert into " + table + " "))
+            .count();
+    }
+}
@@ -0,0 +1,30 @@
+package com.spingo.bikerental;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The whole application on the test profile: migrations, JPA, security and the MVC/resource mappings
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BikeRentalApplicationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void contextLoads() {
+    }
+
+    @Test
+    void servesPublicCatalog() throws Exception {
+        mockMvc.perform(get("/api/bikes")).andExpect(status().isOk());
+    }
+}
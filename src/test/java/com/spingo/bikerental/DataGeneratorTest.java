@@ -0,0 +1,75 @@
+package com.spingo.bikerental;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The datagen profile end to end on a small dataset: generation, then JPA reads/writes and logins against the rows
+@SpringBootTest(args = {"--generate-data", "--datagen.users=300", "--datagen.bikes=40", "--datagen.bookings=600",
+    "--datagen.batch-size=100", "--datagen.threads=2"})
+@AutoConfigureMockMvc
+@ActiveProfiles({"datagen", "test"})
+class DataGeneratorTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void generatesRequestedRows() {
+        assertThat(count("SELECT COUNT(*) FROM users WHERE email LIKE '%@datagen.spingo.test'")).isEqualTo(300);
+        assertThat(count("SELECT COUNT(*) FROM bikes b JOIN users u ON u.id = b.owner_id "
+            + "WHERE u.email LIKE '%@datagen.spingo.test'")).isEqualTo(40);
+        assertThat(count("SELECT COUNT(*) FROM bookings b JOIN users u ON u.id = b.user_id "
+            + "WHERE u.email LIKE '%@datagen.spingo.test'")).isEqualTo(600);
+    }
+
+    @Test
+    void hibernateReadsAndExtendsGeneratedData() {
+        Long generatedBikeId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM bikes", Long.class);
+        Bike generated = bikeRepository.findById(generatedBikeId).orElseThrow();
+        assertThat(generated.getYear()).isNotNull();
+
+        // DataGenerator reserved its id range from the pooled sequence, so a JPA insert never lands on a generated row
+        User owner = userRepository.findByEmail("mike@example.com").orElseThrow();
+        Bike added = bikeRepository.save(new Bike("Honda", "Shine", 2023, BikeType.STANDARD, "Pune",
+            new BigDecimal("70.00"), new BigDecimal("560.00"), new BigDecimal("12000.00"), null, null, owner));
+        assertThat(count("SELECT COUNT(*) FROM bikes WHERE id = " + added.getId() + " AND `year` = 2023 "
+            + "AND owner_id = " + owner.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void generatedCustomersCanLogIn() throws Exception {
+        String email = jdbcTemplate.queryForObject("SELECT email FROM users WHERE email LIKE '%@datagen.spingo.test' "
+            + "AND role = 'CUSTOMER' AND is_active = TRUE ORDER BY id LIMIT 1", String.class);
+        mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"email\":\"" + email + "\",\"password\":\"password123\",\"role\":\"CUSTOMER\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.token").isNotEmpty());
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
@@ -0,0 +1,143 @@
+package com.spingo.bikerental;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the V2 indexes: EXPLAINs the SQL Hibernate generates for the hot repository
+ * queries on H2 and asserts index access instead of a table scan.
+ *
+ * H2 also indexes every foreign key on its own, and with the same leading column it may
+ * pick that index over the composite one, so most checks assert the access condition
+ * rather than an index name. The catalog index is the only one starting with is_active.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+    // Far above anything the other tests insert into the shared context's database
+    private static final long FIRST_ID = 900_000;
+    private static final String[] CITIES = {"Mumbai", "Delhi", "Bangalore", "Chennai", "Pune"};
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    // Enough rows for H2's selectivity statistics to prefer an index over scanning an almost empty table
+    @BeforeAll
+    void seed() {
+        Timestamp now = Timestamp.valueOf(from);
+        List<Object[]> users = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            users.add(new Object[]{FIRST_ID + i, "Plan " + i, "plan" + i + "@spingo.test", "0000000000", "x",
+                i < 10 ? "INDIVIDUAL_OWNER" : "CUSTOMER", true, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, name, email, phone, password, role, is_active, created_at, "
+            + "updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", users);
+
+        List<Object[]> bikes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            bikes.add(new Object[]{FIRST_ID + i, "Brand", "Model", 2020, BikeType.values()[i % 4].name(),
+                CITIES[i % CITIES.length], FIRST_ID + i % 10, BikeStatus.AVAILABLE.name(), i % 20 != 0, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO bikes (id, brand, model, `year`, type, city, owner_id, status, is_active, "
+            + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", bikes);
+
+        List<Object[]> bookings = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Timestamp pickup = Timestamp.valueOf(from.plusHours(i));
+            Timestamp dropoff = Timestamp.valueOf(from.plusHours(i + 5));
+            bookings.add(new Object[]{FIRST_ID + i, FIRST_ID + 10 + i % 40, FIRST_ID + i % 500, pickup, dropoff,
+                "10:00", "15:00", BookingStatus.values()[i % BookingStatus.values().length].name(), now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO bookings (id, user_id, bike_id, pickup_date, dropoff_date, pickup_time, "
+            + "drop_time, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", bookings);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM bookings WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM bikes WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM users WHERE id >= ?", FIRST_ID);
+    }
+
+    @BeforeEach
+    void clearRecordedSql() {
+        SqlRecorder.clear();
+    }
+
+    @Test
+    void conflictingBookingsSeekByBike() {
+        bookingRepository.findConflictingBookings(FIRST_ID, from, from.plusDays(2));
+        assertIndexAccess(plan(), "bike_id = ");
+    }
+
+    @Test
+    void occupancyOfOneBikeSeeksByBike() {
+        bookingRepository.findOccupancyRowsForBike(FIRST_ID, from, from.plusDays(7));
+        assertIndexAccess(plan(), "bike_id = ");
+    }
+
+    @Test
+    void bookingHistorySeeksByUser() {
+        bookingRepository.findByUserId(FIRST_ID + 10);
+        assertIndexAccess(plan(), "user_id = ");
+    }
+
+    @Test
+    void bookingStatusCountUsesStatusPeriodIndex() {
+        bookingRepository.countByStatus(BookingStatus.CONFIRMED);
+        assertThat(plan()).contains("idx_bookings_status_period: status = ");
+    }
+
+    @Test
+    void catalogByCityUsesCatalogIndex() {
+        bikeRepository.findByIsActiveTrueAndCity("Pune");
+        String plan = plan();
+        assertIndexAccess(plan, "is_active = ");
+        assertThat(plan).contains("idx_bikes_catalog: is_active = ").contains("city = ");
+    }
+
+    @Test
+    void ownerFleetSeeksByOwner() {
+        bikeRepository.findByOwnerIdAndIsActiveTrue(FIRST_ID);
+        assertIndexAccess(plan(), "owner_id = ");
+    }
+
+    // H2 prints the chosen access path in a comment per table, e.g. /* public.idx_bikes_catalog: is_active = 1 ... */
+    private String plan() {
+        return jdbcTemplate.queryForObject("EXPLAIN " + SqlRecorder.last(), String.class).toLowerCase();
+    }
+
+    private static void assertIndexAccess(String plan, String condition) {
+        assertThat(plan).doesNotContain(".tablescan").containsPattern("/\\* public\\.\\w+: [^*]*" + condition);
+    }
+}
@@ -0,0 +1,101 @@
+package com.spingo.bikerental;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Buckets of two requests refilling one per minute, so the third request inside a test is always throttled.
+// Anonymous callers share a bucket per IP; signed-in callers also have one per user, whatever IP they come from.
+// Every test uses its own addresses, since buckets live as long as the filter.
+@SpringBootTest(properties = {
+    "rate-limit.enabled=true",
+    "rate-limit.groups.bikes-public.ip-per-minute=1",
+    "rate-limit.groups.bikes-public.burst=2",
+    "rate-limit.groups.dashboard.ip-per-minute=1",
+    "rate-limit.groups.dashboard.user-per-minute=1",
+    "rate-limit.groups.dashboard.burst=2"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RateLimitFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    @Test
+    void exhaustedBucketAnswers429WithRetryAfter() throws Exception {
+        long rejectedBefore = rateLimitFilter.getRejectedCount();
+        mockMvc.perform(publicBikesRoute("10.0.0.1")).andExpect(status().isOk());
+        mockMvc.perform(publicBikesRoute("10.0.0.1")).andExpect(status().isOk());
+
+        MvcResult throttled = mockMvc.perform(publicBikesRoute("10.0.0.1"))
+            .andExpect(status().isTooManyRequests())
+            .andReturn();
+
+        // Two tokens used at one per minute: the next one is about a minute away
+        assertThat(Long.parseLong(throttled.getResponse().getHeader(HttpHeaders.RETRY_AFTER))).isBetween(55L, 61L);
+        assertThat(throttled.getResponse().getContentAsString()).contains("Too many requests");
+        assertThat(rateLimitFilter.getRejectedCount()).isEqualTo(rejectedBefore + 1);
+    }
+
+    @Test
+    void anonymousCallersAreKeyedByIp() throws Exception {
+        mockMvc.perform(publicBikesRoute("10.0.1.1")).andExpect(status().isOk());
+        mockMvc.perform(publicBikesRoute("10.0.1.1")).andExpect(status().isOk());
+        mockMvc.perform(publicBikesRoute("10.0.1.1")).andExpect(status().isTooManyRequests());
+
+        // Another address is unaffected, and a forwarded-for header is not trusted by default
+        mockMvc.perform(publicBikesRoute("10.0.1.2")).andExpect(status().isOk());
+        mockMvc.perform(publicBikesRoute("10.0.1.1").header("X-Forwarded-For", "10.0.1.3"))
+            .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void signedInCallersAreKeyedByUser() throws Exception {
+        User john = userRepository.findByEmail("john@example.com").orElseThrow();
+        User jane = userRepository.findByEmail("jane@example.com").orElseThrow();
+
+        // Changing address does not reset the user's bucket
+        mockMvc.perform(dashboard("10.0.2.1", john)).andExpect(status().isOk());
+        mockMvc.perform(dashboard("10.0.2.2", john)).andExpect(status().isOk());
+        mockMvc.perform(dashboard("10.0.2.3", john)).andExpect(status().isTooManyRequests());
+
+        // Another user behind the same address still gets through
+        mockMvc.perform(dashboard("10.0.2.3", jane)).andExpect(status().isOk());
+    }
+
+    private static MockHttpServletRequestBuilder publicBikesRoute(String ip) {
+        return get("/api/bikes/health").with(request -> {
+            request.setRemoteAddr(ip);
+            return request;
+        });
+    }
+
+    private MockHttpServletRequestBuilder dashboard(String ip, User user) {
+        return get("/api/dashboard/customer")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(user))
+            .with(request -> {
+                request.setRemoteAddr(ip);
+                return request;
+            });
+    }
+}
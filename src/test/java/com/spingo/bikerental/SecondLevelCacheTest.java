@@ -0,0 +1,121 @@
+package com.spingo.bikerental;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statement counts for the Bike/User second-level cache and the bike-queries query cache.
+ *
+ * Every repository call runs in its own transaction and session (no test transaction), so
+ * a repeated read can only avoid the database through the shared caches.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTest {
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private User owner;
+    private final List<Bike> bikes = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        owner = userRepository.save(new User("Cache Owner", "cache-owner@spingo.test", "9000000004", "hash",
+            UserRole.INDIVIDUAL_OWNER, "Pune"));
+        for (int i = 0; i < 3; i++) {
+            bikes.add(bikeRepository.save(new Bike("Cache", "Model " + i, 2023, BikeType.CRUISER, "Cacheville",
+                new BigDecimal("100.00"), new BigDecimal("600.00"), new BigDecimal("12000.00"), null, null, owner)));
+        }
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        // By id: a test may have updated a bike, leaving the copy in the list a version behind
+        bikeRepository.deleteAllById(bikes.stream().map(Bike::getId).toList());
+        userRepository.delete(owner);
+        bikes.clear();
+    }
+
+    @Test
+    void bikeByIdIsServedFromTheEntityCacheOnceLoaded() {
+        Long id = bikes.get(0).getId();
+
+        assertThat(statementsFor(() -> bikeRepository.findById(id).orElseThrow())).isEqualTo(1);
+        assertThat(statementsFor(() -> bikeRepository.findById(id).orElseThrow())).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isPositive();
+    }
+
+    @Test
+    void userByIdIsServedFromTheEntityCacheOnceLoaded() {
+        assertThat(statementsFor(() -> userRepository.findById(owner.getId()).orElseThrow())).isEqualTo(1);
+        assertThat(statementsFor(() -> userRepository.findById(owner.getId()).orElseThrow())).isZero();
+    }
+
+    @Test
+    void activeCatalogIsServedFromTheQueryCache() {
+        assertThat(statementsFor(bikeRepository::findByIsActiveTrue)).isEqualTo(1);
+        assertThat(statementsFor(bikeRepository::findByIsActiveTrue)).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void filterResultsAreCachedPerParameterSet() {
+        Runnable cityFilter = () -> bikeRepository.findBikesWithFilters("Cacheville", null, null, null);
+
+        assertThat(statementsFor(cityFilter)).isEqualTo(1);
+        assertThat(statementsFor(cityFilter)).isZero();
+        // Different parameters are a different cache key
+        assertThat(statementsFor(() -> bikeRepository.findBikesWithFilters("Cacheville", BikeType.CRUISER, null, null)))
+            .isEqualTo(1);
+    }
+
+    @Test
+    void writingABikeInvalidatesCachedQueries() {
+        bikeRepository.findBikesWithFilters("Cacheville", null, null, BikeStatus.AVAILABLE);
+        Bike bike = bikeRepository.findById(bikes.get(0).getId()).orElseThrow();
+        bike.setStatus(BikeStatus.MAINTENANCE);
+        bikeRepository.save(bike);
+
+        statistics.clear();
+        List<Bike> available = bikeRepository.findBikesWithFilters("Cacheville", null, null, BikeStatus.AVAILABLE);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(available).extracting(Bike::getId).doesNotContain(bike.getId()).hasSize(2);
+    }
+
+    private long statementsFor(Runnable query) {
+        long before = statistics.getPrepareStatementCount();
+        query.run();
+        return statistics.getPrepareStatementCount() - before;
+    }
+}
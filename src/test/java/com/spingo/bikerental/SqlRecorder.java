@@ -0,0 +1,40 @@
+package com.spingo.bikerental;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps the SQL Hibernate prepares (registered in application-test.properties), so tests can inspect or EXPLAIN it
+public class SqlRecorder implements StatementInspector {
+
+    private static final List<String> STATEMENTS = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (STATEMENTS) {
+            STATEMENTS.add(sql);
+        }
+        return sql;
+    }
+
+    public static void clear() {
+        synchronized (STATEMENTS) {
+            STATEMENTS.clear();
+        }
+    }
+
+    public static List<String> statements() {
+        synchronized (STATEMENTS) {
+            return new ArrayList<>(STATEMENTS);
+        }
+    }
+
+    public static String last() {
+        List<String> statements = statements();
+        if (statements.isEmpty()) {
+            throw new IllegalStateException("No SQL recorded");
+        }
+        return statements.get(statements.size() - 1);
+    }
+}
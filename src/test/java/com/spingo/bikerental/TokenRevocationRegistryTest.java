@@ -0,0 +1,99 @@
+package com.spingo.bikerental;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Tokens that outlive a restart: the registry starts empty apart from deactivated users, so an account deleted
+// during an earlier run must be caught by the database check on its first pre-startup token.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TokenRevocationRegistryTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenRevocationRegistry revocationRegistry;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Value("${jwt.secret}")
+    private String secret;
+
+    @Test
+    void tokenFromEarlierRunOfDeletedUserIsRejected() throws Exception {
+        User user = userRepository.save(customer("revoked-after-restart@spingo.test"));
+        String token = issuedBeforeStartup(user);
+        // Deleted while no running instance could record it
+        userRepository.delete(user);
+
+        mockMvc.perform(get("/api/bookings/user/" + user.getId()).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+            .andExpect(status().isForbidden());
+        assertThat(revocationRegistry.isRevoked(user.getId())).isTrue();
+    }
+
+    @Test
+    void tokenFromEarlierRunOfActiveUserStillWorks() throws Exception {
+        User user = userRepository.save(customer("active-after-restart@spingo.test"));
+
+        mockMvc.perform(get("/api/bookings/user/" + user.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + issuedBeforeStartup(user)))
+            .andExpect(status().isOk());
+        assertThat(revocationRegistry.isRevoked(user.getId())).isFalse();
+    }
+
+    @Test
+    void deletionThroughTheApiRevokesCurrentTokens() throws Exception {
+        User user = userRepository.save(customer("deleted-now@spingo.test"));
+        String token = jwtUtil.generateToken(user);
+        User admin = userRepository.findByEmail("admin@spingo.com").orElseThrow();
+
+        mockMvc.perform(delete("/api/users/" + user.getId())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(admin)))
+            .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/bookings/user/" + user.getId()).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+            .andExpect(status().isForbidden());
+    }
+
+    private static User customer(String email) {
+        return new User("Restart Test", email, "9000000003", "hash", UserRole.CUSTOMER, "Pune");
+    }
+
+    // Same claims as JwtUtil.generateToken(User), minted an hour before this context started
+    private String issuedBeforeStartup(User user) {
+        Instant issuedAt = Instant.now().minus(Duration.ofHours(1));
+        return Jwts.builder()
+            .setClaims(Map.of("userId", user.getId(), "role", user.getRole().name(), "name", user.getName()))
+            .setSubject(user.getEmail())
+            .setIssuedAt(Date.from(issuedAt))
+            .setExpiration(Date.from(issuedAt.plus(Duration.ofDays(1))))
+            .signWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+            .compact();
+    }
+}
@@ -0,0 +1,247 @@
+package com.spingo.bikerental.config;
+
+import com.spingo.bikerental.AuthPrincipal;
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.BikeStatus;
+import com.spingo.bikerental.BikeType;
+import com.spingo.bikerental.BookingRepository;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRepository;
+import com.spingo.bikerental.UserRole;
+import com.spingo.bikerental.controller.BookingController;
+import com.spingo.bikerental.service.EmailBloomFilter;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Boots the replica-h2 profile: two H2 databases without replication, so which one answered shows where a read went
+@SpringBootTest
+@ActiveProfiles({"replica-h2", "test"})
+class ReplicaRoutingTest {
+
+    private static final AtomicLong NEXT_USER = new AtomicLong(1000);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private BookingController bookingController;
+
+    @Autowired
+    private EmailBloomFilter emailBloomFilter;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        // DataInitializer seeded the primary only
+        assertThat(readOnly(this::userCount)).isZero();
+        assertThat(readWrite(this::userCount)).isPositive();
+    }
+
+    @Test
+    void hibernateWritesBikesThroughThePrimary() {
+        Bike bike = readWrite(() -> bikeRepository.save(new Bike("Honda", "Shine", 2023, BikeType.STANDARD, "Pune",
+            new BigDecimal("70.00"), new BigDecimal("560.00"), new BigDecimal("12000.00"), null, null, null)));
+        assertThat(readWrite(() -> bikeRepository.findById(bike.getId()))).get()
+            .extracting(Bike::getYear).isEqualTo(2023);
+    }
+
+    @Test
+    void readWriteTransactionThatOnlyReadsKeepsUserOnReplica() {
+        long userId = signIn();
+        readWrite(() -> bookingRepository.findConflictingBookings(1L, LocalDateTime.now(), LocalDateTime.now().plusDays(1)));
+        readWrite(this::userCount);
+
+        assertThat(lagMonitor.requiresPrimary(userId)).isFalse();
+        assertThat(readOnly(this::userCount)).isZero();
+    }
+
+    @Test
+    void committedWritePinsUserToPrimaryAfterCommit() {
+        long userId = signIn();
+        readWrite(() -> {
+            jdbcTemplate.update("UPDATE users SET address = ? WHERE email = ?", "Somewhere", "john@example.com");
+            // Not yet: the replica could not have the row before the primary commits it
+            assertThat(lagMonitor.requiresPrimary(userId)).isFalse();
+            return null;
+        });
+
+        assertThat(lagMonitor.requiresPrimary(userId)).isTrue();
+        assertThat(readOnly(this::userCount)).isPositive();
+    }
+
+    @Test
+    void rolledBackWriteDoesNotPinUser() {
+        long userId = signIn();
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE users SET address = ? WHERE email = ?", "Nowhere", "jane@example.com");
+            status.setRollbackOnly();
+        });
+
+        assertThat(lagMonitor.requiresPrimary(userId)).isFalse();
+    }
+
+    @Test
+    void staleReplicaRowDoesNotLetASecondBookingThrough() {
+        Bike bike = readWrite(() -> bikeRepository.findByIsActiveTrueAndStatus(BikeStatus.AVAILABLE).get(0));
+        // The replica still has the bike as it was before the first booking
+        Long ownerId = readWrite(() -> bikeRepository.findById(bike.getId()).orElseThrow().getOwner().getId());
+        copyToReplica("users", ownerId);
+        copyToReplica("bikes", bike.getId());
+        try {
+            bookTwice(bike);
+        } finally {
+            // The other tests expect an empty replica
+            JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+            replica.update("DELETE FROM bikes WHERE id = ?", bike.getId());
+            replica.update("DELETE FROM users WHERE id = ?", ownerId);
+        }
+    }
+
+    private void bookTwice(Bike bike) {
+        User first = readWrite(() -> userRepository.findByEmail("john@example.com").orElseThrow());
+        User second = readWrite(() -> userRepository.findByEmail("alice@example.com").orElseThrow());
+        assertThat(bookingController.createBooking(bookingRequest(bike), signIn(first)).getStatusCode())
+            .isEqualTo(HttpStatus.OK);
+
+        // Not pinned by a write of their own, and not answered from the second-level cache
+        AuthPrincipal secondPrincipal = signIn(second);
+        assertThat(lagMonitor.requiresPrimary(second.getId())).isFalse();
+        entityManagerFactory.getCache().evict(Bike.class, bike.getId());
+
+        assertThat(bookingController.createBooking(bookingRequest(bike), secondPrincipal).getStatusCode())
+            .isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(readWrite(() -> bookingRepository.findByBikeId(bike.getId())))
+            .extracting(booking -> booking.getUser().getId())
+            .containsExactly(first.getId());
+    }
+
+    @Test
+    void emailFilterSeesEmailsTheReplicaHasNotCaughtUpWith() {
+        readWrite(() -> userRepository.save(new User("Primary Only", "primary-only@spingo.test", "9000000010",
+            "hash", UserRole.CUSTOMER, "Pune")));
+
+        emailBloomFilter.seed();
+
+        assertThat(emailBloomFilter.exists("primary-only@spingo.test")).isTrue();
+    }
+
+    @Test
+    void updateFromAStaleCopyFailsInsteadOfOverwriting() {
+        Bike bike = readWrite(() -> bikeRepository.save(new Bike("Bajaj", "Chetak", 2024, BikeType.STANDARD, "Pune",
+            new BigDecimal("80.00"), new BigDecimal("640.00"), new BigDecimal("14000.00"), null, null, null)));
+        Bike stale = readWrite(() -> bikeRepository.findById(bike.getId()).orElseThrow());
+        readWrite(() -> {
+            Bike current = bikeRepository.findById(bike.getId()).orElseThrow();
+            current.setStatus(BikeStatus.BOOKED);
+            return bikeRepository.save(current);
+        });
+
+        stale.setCity("Mumbai");
+        assertThatThrownBy(() -> readWrite(() -> bikeRepository.save(stale)))
+            .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(readWrite(() -> bikeRepository.findById(bike.getId()))).get()
+            .extracting(Bike::getStatus, Bike::getCity).containsExactly(BikeStatus.BOOKED, "Pune");
+    }
+
+    // Copies the primary's current row, as replication would have before the next change
+    private void copyToReplica(String table, Long id) {
+        Map<String, Object> row = readWrite(() -> jdbcTemplate.queryForMap("SELECT * FROM " + table + " WHERE id = ?", id));
+        List<String> columns = new ArrayList<>();
+        row.keySet().forEach(column -> columns.add("`" + column + "`"));
+        new JdbcTemplate(replicaDataSource).update("INSERT INTO " + table + " (" + String.join(", ", columns)
+            + ") VALUES (" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")", row.values().toArray());
+    }
+
+    private BookingController.BookingRequest bookingRequest(Bike bike) {
+        BookingController.BookingRequest request = new BookingController.BookingRequest();
+        request.setBikeId(bike.getId());
+        request.setPickupDate(LocalDateTime.now().plusDays(2).withNano(0));
+        request.setDropoffDate(LocalDateTime.now().plusDays(3).withNano(0));
+        request.setPickupTime("09:00");
+        request.setDropTime("18:00");
+        return request;
+    }
+
+    private AuthPrincipal signIn(User user) {
+        AuthPrincipal principal = new AuthPrincipal(user.getId(), user.getEmail(), user.getRole(), user.getName());
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        return principal;
+    }
+
+    private long signIn() {
+        long userId = NEXT_USER.incrementAndGet();
+        AuthPrincipal principal = new AuthPrincipal(userId, "routing-" + userId + "@spingo.test", UserRole.CUSTOMER,
+            "Routing Test");
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+        return userId;
+    }
+
+    private long userCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+    }
+
+    private <T> T readOnly(Supplier<T> work) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template.execute(status -> work.get());
+    }
+
+    private <T> T readWrite(Supplier<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> work.get());
+    }
+}
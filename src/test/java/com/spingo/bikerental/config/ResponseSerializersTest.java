@@ -0,0 +1,167 @@
+package com.spingo.bikerental.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.hibernate6.Hibernate6Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.BikeType;
+import com.spingo.bikerental.Booking;
+import com.spingo.bikerental.BookingRepository;
+import com.spingo.bikerental.BookingStatus;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRole;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The hand-written serializers must write what the reflective mapper wrote, minus the nested user fields
+// they drop on purpose, both for loaded entities and for unloaded proxies ({"id": ...}).
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class ResponseSerializersTest {
+
+    private static final String[] OWNER_FIELDS = {"id", "name", "role"};
+    private static final String[] CUSTOMER_FIELDS = {"id", "name", "email", "role"};
+
+    private final ObjectMapper lean = new JacksonConfig().objectMapper();
+    private final ObjectMapper plain = plainMapper();
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    private Long bikeId;
+    private Long bookingId;
+
+    @BeforeEach
+    void seed() {
+        User owner = new User("Json Owner", "json-owner@spingo.test", "9000000001", "hash", UserRole.INDIVIDUAL_OWNER, "Pune");
+        User customer = new User("Json Customer", "json-customer@spingo.test", "9000000002", "hash", UserRole.CUSTOMER, "Delhi");
+        entityManager.persist(owner);
+        entityManager.persist(customer);
+
+        Bike bike = new Bike("Honda", "Shadow", 2023, BikeType.CRUISER, "Pune",
+            new BigDecimal("400.00"), new BigDecimal("2400.00"), new BigDecimal("48000.00"),
+            "Serializer test bike", null, owner);
+        entityManager.persist(bike);
+
+        Booking booking = new Booking();
+        booking.setUser(customer);
+        booking.setBike(bike);
+        booking.setPickupDate(LocalDateTime.of(2024, 5, 1, 9, 0));
+        booking.setDropoffDate(LocalDateTime.of(2024, 5, 1, 18, 0));
+        booking.setPickupTime("09:00");
+        booking.setDropTime("18:00");
+        booking.setTotalPrice(new BigDecimal("3600.00"));
+        booking.setStatus(BookingStatus.CONFIRMED);
+        booking.setNotes(null);
+        entityManager.persist(booking);
+
+        entityManager.flush();
+        entityManager.clear();
+        entityManager.getEntityManagerFactory().getCache().evictAll();
+        bikeId = bike.getId();
+        bookingId = booking.getId();
+    }
+
+    @Test
+    void bikeWithLoadedOwner() throws Exception {
+        Bike bike = bikeRepository.findById(bikeId).orElseThrow();
+        assertThat(Hibernate.isInitialized(bike.getOwner())).isTrue();
+
+        JsonNode expected = json(plain, bike);
+        ((ObjectNode) expected.get("owner")).retain(OWNER_FIELDS);
+        assertThat(json(lean, bike)).isEqualTo(expected);
+        assertThat(json(lean, bike).path("owner").path("name").asText()).isEqualTo("Json Owner");
+    }
+
+    @Test
+    void bikeWithUnloadedOwner() throws Exception {
+        Bike bike = entityManager.find(Bike.class, bikeId);
+        assertThat(Hibernate.isInitialized(bike.getOwner())).isFalse();
+
+        JsonNode json = json(lean, bike);
+        assertThat(json).isEqualTo(json(plain, bike));
+        assertThat(json.path("owner").isObject()).isTrue();
+        assertThat(json.path("owner").path("id").asLong()).isEqualTo(bike.getOwner().getId());
+    }
+
+    @Test
+    void bikeProxy() throws Exception {
+        Bike bike = entityManager.getReference(Bike.class, bikeId);
+        assertThat(Hibernate.isInitialized(bike)).isFalse();
+
+        assertThat(lean.writeValueAsString(bike)).isEqualTo(plain.writeValueAsString(bike))
+            .isEqualTo("{\"id\":" + bikeId + "}");
+    }
+
+    @Test
+    void bookingWithLoadedBikeAndUser() throws Exception {
+        Booking booking = bookingRepository.findById(bookingId).orElseThrow();
+
+        JsonNode expected = json(plain, booking);
+        ((ObjectNode) expected.get("user")).retain(CUSTOMER_FIELDS);
+        // The graph stops at the bike, so its owner is an unloaded reference on both sides
+        assertThat(expected.path("bike").path("owner").size()).isEqualTo(1);
+        assertThat(json(lean, booking)).isEqualTo(expected);
+    }
+
+    @Test
+    void bookingWithUnloadedAssociations() throws Exception {
+        Booking booking = entityManager.find(Booking.class, bookingId);
+        assertThat(Hibernate.isInitialized(booking.getBike())).isFalse();
+        assertThat(Hibernate.isInitialized(booking.getUser())).isFalse();
+
+        JsonNode json = json(lean, booking);
+        assertThat(json).isEqualTo(json(plain, booking));
+        assertThat(json.path("bike").path("id").asLong()).isEqualTo(bikeId);
+        assertThat(json.path("user").isObject()).isTrue();
+    }
+
+    @Test
+    void bookingProxy() throws Exception {
+        Booking booking = entityManager.getReference(Booking.class, bookingId);
+
+        assertThat(lean.writeValueAsString(booking)).isEqualTo(plain.writeValueAsString(booking))
+            .isEqualTo("{\"id\":" + bookingId + "}");
+    }
+
+    private static JsonNode json(ObjectMapper mapper, Object value) {
+        return mapper.valueToTree(value);
+    }
+
+    // JacksonConfig's mapper without the hand-written serializers
+    private static ObjectMapper plainMapper() {
+        Hibernate6Module hibernateModule = new Hibernate6Module();
+        hibernateModule.disable(Hibernate6Module.Feature.USE_TRANSIENT_ANNOTATION);
+        hibernateModule.disable(Hibernate6Module.Feature.FORCE_LAZY_LOADING);
+        hibernateModule.enable(Hibernate6Module.Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS);
+        return Jackson2ObjectMapperBuilder.json()
+                .modules(hibernateModule, new JavaTimeModule())
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .featuresToDisable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+                .featuresToDisable(SerializationFeature.FAIL_ON_SELF_REFERENCES)
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package com.spingo.bikerental.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebConfigTest {
+
+    private final PathPattern pattern = PathPatternParser.defaultInstance.parse("/js/" + WebConfig.HASHED_ASSET);
+
+    @Test
+    void matchesFingerprintedNames() {
+        assertThat(matches("/js/app.3f2a9c01d4.js")).isTrue();
+        assertThat(matches("/js/owner-bikes.0123456789.js")).isTrue();
+        assertThat(matches("/js/vendor.min.abcdef0123.js")).isTrue();
+    }
+
+    // Originals are revalidated by the /** handler, so they must not fall under the immutable one
+    @Test
+    void leavesOtherNamesAlone() {
+        assertThat(matches("/js/app.js")).isFalse();
+        assertThat(matches("/js/app.beef.js")).isFalse();
+        assertThat(matches("/js/app.3f2a9c01d4a.js")).isFalse();
+        assertThat(matches("/js/app.3F2A9C01D4.js")).isFalse();
+        assertThat(matches("/js/nested/app.3f2a9c01d4.js")).isFalse();
+    }
+
+    private boolean matches(String path) {
+        return pattern.matches(PathContainer.parsePath(path));
+    }
+}
@@ -0,0 +1,212 @@
+package com.spingo.bikerental.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.JwtUtil;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRepository;
+import com.spingo.bikerental.UserRole;
+import com.spingo.bikerental.service.BikeBulkImportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// POST /api/bikes/owner/bulk: every row gets a report entry under its 1-based data row number, created rows
+// carry the id that was persisted, and a chunk that fails to save marks only its own rows. Chunk size 2 so a
+// handful of rows spans several chunks. Persisted rows are counted with plain SQL, past the shared L2 cache.
+@SpringBootTest(properties = "bikes.bulk.chunk-size=2")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BikeBulkImportTest {
+
+    private static final String CITY = "Bulkville";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private BikeBulkImportService bikeBulkImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        owner = userRepository.save(new User("Bulk Owner", "bulk-owner@spingo.test", "9000000037", "hash",
+            UserRole.INDIVIDUAL_OWNER, "Pune"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(bikeBulkImportService, "bikeRepository", bikeRepository);
+        jdbcTemplate.update("DELETE FROM bikes WHERE owner_id = ?", owner.getId());
+        userRepository.deleteById(owner.getId());
+    }
+
+    @Test
+    void jsonRowsAreReportedByRowNumber() throws Exception {
+        String body = """
+            [
+              %s,
+              {"brand": "Honda", "model": "Shadow", "year": 2023, "type": "CRUISER", "city": "Bulkville",
+               "pricePerHour": 0, "pricePerDay": 2400, "pricePerMonth": 48000},
+              {"brand": "Honda", "model": "Shadow", "year": "next year", "type": "CRUISER", "city": "Bulkville",
+               "pricePerHour": 400, "pricePerDay": 2400, "pricePerMonth": 48000},
+              %s
+            ]
+            """.formatted(jsonBike("First"), jsonBike("Fourth"));
+
+        JsonNode report = upload(MediaType.APPLICATION_JSON, body);
+
+        assertThat(report.get("totalRows").asInt()).isEqualTo(4);
+        assertThat(statuses(report)).containsExactly("1:CREATED", "2:INVALID", "3:INVALID", "4:CREATED");
+        assertThat(row(report, 2).get("errors").get(0).asText()).isEqualTo("Price per hour must be greater than 0");
+        assertThat(row(report, 3).get("errors").get(0).asText()).startsWith("Unreadable bike");
+        assertThat(createdIds(report)).containsExactlyInAnyOrderElementsOf(persistedIds());
+        assertThat(persistedModels()).containsExactlyInAnyOrder("First", "Fourth");
+    }
+
+    @Test
+    void csvQuotingAndByteOrderMarkAreHonoured() throws Exception {
+        // BOM before a header in another spelling; quoted commas, doubled quotes and a line break inside a field
+        String body = "\uFEFFBrand,Model,Year,Type,City,Price Per Hour,price_per_day,pricePerMonth,Description\r\n"
+            + "Honda,\"Shadow, Classic\",2023,CRUISER,Bulkville,400,2400,48000,\"Says \"\"hi\"\"\r\non two lines\"\r\n"
+            + ",No Brand,2023,CRUISER,Bulkville,400,2400,48000,\r\n"
+            + "Honda,Trike,2023,TRICYCLE,Bulkville,400,2400,48000,\r\n"
+            + "Too,Few,Columns\r\n"
+            + "Yamaha,FZ,2023,SPORT,Bulkville,350,2100,42000,\"\"\r\n";
+
+        JsonNode report = upload(MediaType.parseMediaType("text/csv"), body);
+
+        assertThat(report.get("totalRows").asInt()).isEqualTo(5);
+        assertThat(statuses(report)).containsExactly("1:CREATED", "2:INVALID", "3:INVALID", "4:INVALID", "5:CREATED");
+        assertThat(row(report, 2).get("errors").get(0).asText()).isEqualTo("Brand is required");
+        assertThat(row(report, 4).get("errors").get(0).asText()).isEqualTo("Expected 9 columns but found 3");
+        assertThat(createdIds(report)).containsExactlyInAnyOrderElementsOf(persistedIds());
+
+        Map<String, Object> quoted = jdbcTemplate.queryForMap("SELECT model, description FROM bikes WHERE id = ?",
+            row(report, 1).get("bikeId").asLong());
+        assertThat(quoted.get("model")).isEqualTo("Shadow, Classic");
+        assertThat(quoted.get("description")).isEqualTo("Says \"hi\"\r\non two lines");
+    }
+
+    @Test
+    void failedChunkMarksOnlyItsRowsAndEarlierChunksStayCommitted() throws Exception {
+        failSaveAll(2);
+        String body = "[" + String.join(",", jsonBike("One"), jsonBike("Two"), jsonBike("Three"), jsonBike("Four"),
+            jsonBike("Five")) + "]";
+
+        JsonNode report = upload(MediaType.APPLICATION_JSON, body);
+
+        // Chunks are rows 1-2, 3-4 and 5; the second one was saved and then rolled back
+        assertThat(statuses(report)).containsExactly("1:CREATED", "2:CREATED", "3:FAILED", "4:FAILED", "5:CREATED");
+        assertThat(report.get("created").asInt()).isEqualTo(3);
+        assertThat(report.get("failed").asInt()).isEqualTo(2);
+        assertThat(createdIds(report)).containsExactlyInAnyOrderElementsOf(persistedIds());
+        assertThat(persistedModels()).containsExactlyInAnyOrder("One", "Two", "Five");
+    }
+
+    // The service's nth saveAll saves its rows and then throws, so the chunk's transaction has to discard them
+    private void failSaveAll(int nth) {
+        AtomicInteger calls = new AtomicInteger();
+        Object delegate = Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {BikeRepository.class},
+            (proxy, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(bikeRepository, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (method.getName().equals("saveAll") && calls.incrementAndGet() == nth) {
+                    throw new IllegalStateException("Simulated chunk failure");
+                }
+                return result;
+            });
+        ReflectionTestUtils.setField(bikeBulkImportService, "bikeRepository", delegate);
+    }
+
+    private JsonNode upload(MediaType contentType, String body) throws Exception {
+        String response = mockMvc.perform(post("/api/bikes/owner/bulk")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(owner))
+                .contentType(contentType)
+                .content(body.getBytes(StandardCharsets.UTF_8)))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private static String jsonBike(String model) {
+        return """
+            {"brand": "Honda", "model": "%s", "year": 2023, "type": "CRUISER", "city": "%s",
+             "pricePerHour": 400, "pricePerDay": 2400, "pricePerMonth": 48000}""".formatted(model, CITY);
+    }
+
+    private static List<String> statuses(JsonNode report) {
+        List<String> statuses = new ArrayList<>();
+        report.get("rows").forEach(row -> statuses.add(row.get("row").asInt() + ":" + row.get("status").asText()));
+        return statuses;
+    }
+
+    private static JsonNode row(JsonNode report, int number) {
+        for (JsonNode row : report.get("rows")) {
+            if (row.get("row").asInt() == number) {
+                return row;
+            }
+        }
+        throw new AssertionError("No report entry for row " + number);
+    }
+
+    private static List<Long> createdIds(JsonNode report) {
+        List<Long> ids = new ArrayList<>();
+        report.get("rows").forEach(row -> {
+            if (row.get("status").asText().equals("CREATED")) {
+                ids.add(row.get("bikeId").asLong());
+            }
+        });
+        return ids;
+    }
+
+    private List<Long> persistedIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM bikes WHERE owner_id = ?", Long.class, owner.getId());
+    }
+
+    private List<String> persistedModels() {
+        return jdbcTemplate.queryForList("SELECT model FROM bikes WHERE owner_id = ?", String.class, owner.getId());
+    }
+}
@@ -0,0 +1,152 @@
+package com.spingo.bikerental.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spingo.bikerental.ArchivedBookingRepository;
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.Booking;
+import com.spingo.bikerental.BookingRepository;
+import com.spingo.bikerental.BookingStatus;
+import com.spingo.bikerental.JwtUtil;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRepository;
+import com.spingo.bikerental.UserRole;
+import com.spingo.bikerental.service.BookingArchiveService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Hot/cold split: an archival run moves only old terminal bookings, in batches, and includeArchived reads
+// return the union of both tables newest first. The scheduler stays off; the run is started through the
+// admin endpoint. Batch size 2 so the five eligible rows take three batches.
+@SpringBootTest(properties = {
+    "booking-archive.age-days=30",
+    "booking-archive.batch-size=2",
+    "booking-archive.pause-ms=0"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookingArchiveTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ArchivedBookingRepository archivedBookingRepository;
+
+    @Autowired
+    private BookingArchiveService bookingArchiveService;
+
+    @Test
+    void archivalMovesOldTerminalBookingsAndReadsMergeBothTables() throws Exception {
+        User customer = userRepository.save(new User("Archive Test", "archive@spingo.test", "9000000005", "hash",
+            UserRole.CUSTOMER, "Pune"));
+        Bike bike = bikeRepository.findByIsActiveTrue().get(0);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        List<Long> expectedArchived = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            expectedArchived.add(booking(customer, bike, now.minusDays(400 + i), BookingStatus.COMPLETED).getId());
+        }
+        expectedArchived.add(booking(customer, bike, now.minusDays(200), BookingStatus.CANCELLED).getId());
+        // Old but not terminal, and terminal but recent: both stay in bookings
+        Long oldPending = booking(customer, bike, now.minusDays(300), BookingStatus.PENDING).getId();
+        Long recentCompleted = booking(customer, bike, now.minusDays(5), BookingStatus.COMPLETED).getId();
+
+        runArchival();
+
+        assertThat(bookingArchiveService.getStats()).containsEntry("lastRunArchived", 5L);
+        assertThat(archivedBookingRepository.findAllById(expectedArchived)).hasSize(5);
+        assertThat(bookingRepository.findAllById(expectedArchived)).isEmpty();
+        assertThat(bookingRepository.findAllById(List.of(oldPending, recentCompleted))).hasSize(2);
+        assertThat(archivedBookingRepository.findAllById(List.of(oldPending, recentCompleted))).isEmpty();
+
+        String token = jwtUtil.generateToken(customer);
+        assertThat(ids(get("/api/bookings/user/" + customer.getId()), token))
+            .containsExactlyInAnyOrder(oldPending, recentCompleted);
+
+        // Union of both tables, newest first
+        List<Long> merged = ids(get("/api/bookings/user/" + customer.getId() + "?includeArchived=true"), token);
+        assertThat(merged).containsExactly(recentCompleted, expectedArchived.get(4), oldPending,
+            expectedArchived.get(0), expectedArchived.get(1), expectedArchived.get(2), expectedArchived.get(3));
+
+        // An archived booking is still reachable by id when asked for
+        Long archivedId = expectedArchived.get(0);
+        mockMvc.perform(get("/api/bookings/" + archivedId).header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/bookings/" + archivedId + "?includeArchived=true")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+            .andExpect(status().isOk());
+
+        // Nothing left to move on a second run
+        runArchival();
+        assertThat(bookingArchiveService.getStats()).containsEntry("lastRunArchived", 0L);
+    }
+
+    // Booking dropped off at the given time and created two days before it, so newest-first order follows it
+    private Booking booking(User user, Bike bike, LocalDateTime at, BookingStatus status) {
+        Booking booking = new Booking(user, bike, at.minusDays(1), at, new BigDecimal("250.00"));
+        booking.setPickupTime("09:00");
+        booking.setDropTime("18:00");
+        booking.setStatus(status);
+        booking.setCreatedAt(at.minusDays(2));
+        booking.setUpdatedAt(at);
+        return bookingRepository.save(booking);
+    }
+
+    private void runArchival() throws Exception {
+        Object previousRun = bookingArchiveService.getStats().get("lastRunAt");
+        User admin = userRepository.findByEmail("admin@spingo.com").orElseThrow();
+        mockMvc.perform(post("/api/admin/archive/run")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(admin)))
+            .andExpect(status().isAccepted());
+        await().atMost(Duration.ofSeconds(10)).until(() -> {
+            Object lastRunAt = bookingArchiveService.getStats().get("lastRunAt");
+            return lastRunAt != null && !lastRunAt.equals(previousRun);
+        });
+    }
+
+    private List<Long> ids(MockHttpServletRequestBuilder request, String token) throws Exception {
+        String body = mockMvc.perform(request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode booking : objectMapper.readTree(body)) {
+            ids.add(booking.path("id").asLong());
+        }
+        return ids;
+    }
+}
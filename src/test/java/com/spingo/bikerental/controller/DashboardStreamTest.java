@@ -0,0 +1,170 @@
+package com.spingo.bikerental.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.BikeStatus;
+import com.spingo.bikerental.JwtUtil;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRepository;
+import com.spingo.bikerental.service.DashboardEvent;
+import com.spingo.bikerental.service.DashboardEventBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// /api/dashboard/stream: the feed is scoped to the caller's fleet unless the caller is an admin, and booking
+// events carry the bike's real previous status. Own context (heartbeat property) since it books a bike.
+@SpringBootTest(properties = "dashboard.stream.heartbeat-ms=60000")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DashboardStreamTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private DashboardEventBus dashboardEventBus;
+
+    private User admin;
+    private User owner;
+    private User business;
+    private Bike ownerBike;
+    private Bike businessBike;
+
+    @BeforeEach
+    void setUp() {
+        admin = userRepository.findByEmail("admin@spingo.com").orElseThrow();
+        owner = userRepository.findByEmail("mike@example.com").orElseThrow();
+        business = userRepository.findByEmail("sarah@example.com").orElseThrow();
+        ownerBike = bikeRepository.findByOwnerIdAndIsActiveTrue(owner.getId()).get(0);
+        businessBike = bikeRepository.findByOwnerIdAndIsActiveTrue(business.getId()).get(0);
+    }
+
+    @Test
+    void ownerCannotSubscribeToAnotherOwnersFeed() throws Exception {
+        MvcResult stream = subscribe("/api/dashboard/stream?ownerId=" + business.getId(), owner);
+
+        publishStatusChange(businessBike);
+        publishStatusChange(ownerBike);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> bikeIds(stream).contains(ownerBike.getId()));
+        assertThat(bikeIds(stream)).containsOnly(ownerBike.getId());
+        assertThat(stream.getResponse().getContentType()).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    @Test
+    void adminGetsTheFleetFeedOrOneOwner() throws Exception {
+        MvcResult fleet = subscribe("/api/dashboard/stream", admin);
+        MvcResult oneOwner = subscribe("/api/dashboard/stream?ownerId=" + owner.getId(), admin);
+
+        publishStatusChange(businessBike);
+        publishStatusChange(ownerBike);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> bikeIds(fleet).size() == 2 && bikeIds(oneOwner).size() == 1);
+        assertThat(bikeIds(fleet)).containsExactlyInAnyOrder(ownerBike.getId(), businessBike.getId());
+        assertThat(bikeIds(oneOwner)).containsOnly(ownerBike.getId());
+    }
+
+    @Test
+    void customersCannotSubscribe() throws Exception {
+        User customer = userRepository.findByEmail("jane@example.com").orElseThrow();
+
+        mockMvc.perform(get("/api/dashboard/stream").header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(customer)))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void bookingPublishesTheBikesPreviousStatus() throws Exception {
+        Bike bike = bikeRepository.findByOwnerIdAndIsActiveTrue(owner.getId()).stream()
+            .filter(b -> b.getStatus() == BikeStatus.AVAILABLE)
+            .reduce((first, second) -> second)
+            .orElseThrow();
+        MvcResult stream = subscribe("/api/dashboard/stream", owner);
+        User customer = userRepository.findByEmail("alice@example.com").orElseThrow();
+
+        Map<String, Object> booking = Map.of(
+            "bikeId", bike.getId(),
+            "pickupDate", LocalDateTime.now().plusDays(10).withNano(0).toString(),
+            "dropoffDate", LocalDateTime.now().plusDays(11).withNano(0).toString(),
+            "pickupTime", "09:00",
+            "dropTime", "18:00");
+        mockMvc.perform(post("/api/bookings")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(customer))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(booking)))
+            .andExpect(status().isOk());
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !events(stream, DashboardEvent.BIKE_STATUS_CHANGED).isEmpty());
+        JsonNode change = events(stream, DashboardEvent.BIKE_STATUS_CHANGED).get(0).path("payload");
+        assertThat(change.path("bikeId").asLong()).isEqualTo(bike.getId());
+        assertThat(change.path("previousStatus").asText()).isEqualTo("AVAILABLE");
+        assertThat(change.path("status").asText()).isEqualTo("BOOKED");
+    }
+
+    private MvcResult subscribe(String path, User user) throws Exception {
+        return mockMvc.perform(get(path).header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(user)))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    }
+
+    // A status flip that exists only on the bus; nothing is written to the database
+    private void publishStatusChange(Bike bike) {
+        dashboardEventBus.bikeStatusChanged(bike, BikeStatus.MAINTENANCE);
+    }
+
+    private List<Long> bikeIds(MvcResult stream) throws Exception {
+        return events(stream, DashboardEvent.BIKE_STATUS_CHANGED).stream()
+            .map(event -> event.path("payload").path("bikeId").asLong())
+            .toList();
+    }
+
+    // Parses the "event:<name>" / "data:<json>" pairs written so far
+    private List<JsonNode> events(MvcResult stream, String name) throws Exception {
+        List<JsonNode> events = new ArrayList<>();
+        String currentName = null;
+        for (String line : stream.getResponse().getContentAsString().split("\n")) {
+            if (line.startsWith("event:")) {
+                currentName = line.substring("event:".length()).trim();
+            } else if (line.startsWith("data:") && name.equals(currentName)) {
+                events.add(objectMapper.readTree(line.substring("data:".length())));
+            } else if (line.isEmpty()) {
+                currentName = null;
+            }
+        }
+        return events;
+    }
+}
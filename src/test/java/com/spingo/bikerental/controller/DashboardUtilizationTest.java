@@ -0,0 +1,168 @@
+package com.spingo.bikerental.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.BikeType;
+import com.spingo.bikerental.Booking;
+import com.spingo.bikerental.BookingRepository;
+import com.spingo.bikerental.BookingStatus;
+import com.spingo.bikerental.JwtUtil;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRepository;
+import com.spingo.bikerental.service.UtilizationIndex;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// /api/dashboard/utilization: owners and businesses see their own bikes only. Two bikes share a city, one per
+// owner, and only the business's bike is booked, so each caller's city aggregate shows whose bikes it counted.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DashboardUtilizationTest {
+
+    private static final String CITY = "Heatville";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private UtilizationIndex utilizationIndex;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User admin;
+    private User owner;
+    private User business;
+    private Bike ownerBike;
+    private Bike businessBike;
+    private Booking booking;
+
+    @BeforeEach
+    void setUp() {
+        // The cache manager is shared across test contexts, so an id reused by another context's database may be cached
+        entityManagerFactory.getCache().evictAll();
+        admin = userRepository.findByEmail("admin@spingo.com").orElseThrow();
+        owner = userRepository.findByEmail("mike@example.com").orElseThrow();
+        business = userRepository.findByEmail("sarah@example.com").orElseThrow();
+        User customer = userRepository.findByEmail("john@example.com").orElseThrow();
+        ownerBike = bike(owner);
+        businessBike = bike(business);
+
+        LocalDateTime pickup = utilizationIndex.getWindowStart();
+        booking = new Booking(customer, businessBike, pickup, pickup.plusHours(1), new BigDecimal("100.00"));
+        booking.setPickupTime("00:00");
+        booking.setDropTime("01:00");
+        booking.setStatus(BookingStatus.CONFIRMED);
+        booking = bookingRepository.save(booking);
+        utilizationIndex.bookingCreated(booking);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookingRepository.deleteById(booking.getId());
+        bikeRepository.deleteAllById(Set.of(ownerBike.getId(), businessBike.getId()));
+        utilizationIndex.rebuild();
+    }
+
+    @Test
+    void ownerCannotReadAnotherOwnersBike() throws Exception {
+        mockMvc.perform(get("/api/dashboard/utilization?bikeId=" + businessBike.getId()).header(HttpHeaders.AUTHORIZATION, bearer(owner)))
+            .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/dashboard/utilization?bikeId=" + ownerBike.getId()).header(HttpHeaders.AUTHORIZATION, bearer(business)))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void ownerAndAdminCanReadTheOwnersBike() throws Exception {
+        assertThat(peak(utilization("bikeId=" + businessBike.getId(), business).get("heatmap"))).isPositive();
+        assertThat(peak(utilization("bikeId=" + businessBike.getId(), admin).get("heatmap"))).isPositive();
+        assertThat(utilization("bikeId=" + ownerBike.getId(), owner).get("bikeId").asLong()).isEqualTo(ownerBike.getId());
+    }
+
+    @Test
+    void cityAggregatesCoverOnlyTheCallersBikes() throws Exception {
+        double ownerPeak = peak(utilization("city=" + CITY, owner).get("cities").get(CITY));
+        double businessPeak = peak(utilization("city=" + CITY, business).get("cities").get(CITY));
+        double adminPeak = peak(utilization("city=" + CITY, admin).get("cities").get(CITY));
+
+        // The owner's only bike here is unbooked; the admin averages both bikes
+        assertThat(ownerPeak).isZero();
+        assertThat(businessPeak).isPositive();
+        assertThat(adminPeak).isCloseTo(businessPeak / 2, within(1e-9));
+    }
+
+    @Test
+    void ownerSeesOnlyCitiesOfTheirOwnBikes() throws Exception {
+        Set<String> ownCities = new HashSet<>();
+        bikeRepository.findByOwnerIdAndIsActiveTrue(owner.getId()).forEach(bike -> ownCities.add(bike.getCity()));
+
+        Set<String> cities = new HashSet<>();
+        utilization("", owner).get("cities").fieldNames().forEachRemaining(cities::add);
+
+        assertThat(cities).contains(CITY).isSubsetOf(ownCities);
+    }
+
+    private Bike bike(User bikeOwner) {
+        Bike bike = bikeRepository.save(new Bike("Heat", "Model", 2024, BikeType.STANDARD, CITY,
+            new BigDecimal("100.00"), new BigDecimal("600.00"), new BigDecimal("12000.00"), null, null, bikeOwner));
+        utilizationIndex.bikeUpdated(bike);
+        return bike;
+    }
+
+    private JsonNode utilization(String query, User user) throws Exception {
+        String body = mockMvc.perform(get("/api/dashboard/utilization?" + query).header(HttpHeaders.AUTHORIZATION, bearer(user)))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private String bearer(User user) {
+        return "Bearer " + jwtUtil.generateToken(user);
+    }
+
+    private static double peak(JsonNode heatmap) {
+        double peak = 0;
+        for (JsonNode day : heatmap) {
+            for (JsonNode cell : day) {
+                peak = Math.max(peak, cell.asDouble());
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,172 @@
+package com.spingo.bikerental.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.Booking;
+import com.spingo.bikerental.BookingRepository;
+import com.spingo.bikerental.JwtUtil;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// JDBC statements per read endpoint, counted by Hibernate statistics with the second-level cache cold. An
+// association that is serialized without being fetched either shows up here as one extra select per row or,
+// with lazy loading off, as a bare id in the JSON; both are asserted against.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EndpointStatementCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SessionFactory sessionFactory;
+    private Statistics statistics;
+
+    private User admin;
+    private User customer;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        statistics = sessionFactory.getStatistics();
+        admin = userRepository.findByEmail("admin@spingo.com").orElseThrow();
+        customer = userRepository.findByEmail("john@example.com").orElseThrow();
+        owner = userRepository.findByEmail("mike@example.com").orElseThrow();
+    }
+
+    @Test
+    void catalog() throws Exception {
+        JsonNode bikes = fetch("/api/bikes", null, 1);
+        assertThat(bikes.size()).isGreaterThan(1);
+        bikes.forEach(this::assertOwnerLoaded);
+    }
+
+    @Test
+    void bikeById() throws Exception {
+        Bike bike = bikeRepository.findByOwnerIdAndIsActiveTrue(owner.getId()).get(0);
+
+        assertOwnerLoaded(fetch("/api/bikes/" + bike.getId(), null, 1));
+    }
+
+    @Test
+    void ownerFleet() throws Exception {
+        JsonNode bikes = fetch("/api/bikes/owner", owner, 1);
+        assertThat(bikes.size()).isGreaterThan(1);
+        bikes.forEach(bike -> {
+            assertOwnerLoaded(bike);
+            assertThat(bike.path("owner").path("id").asLong()).isEqualTo(owner.getId());
+        });
+    }
+
+    @Test
+    void bookings() throws Exception {
+        fetch("/api/bookings", admin, 1).forEach(this::assertBikeAndUserLoaded);
+    }
+
+    @Test
+    void bookingById() throws Exception {
+        Booking booking = bookingRepository.findByUserId(customer.getId()).get(0);
+
+        assertBikeAndUserLoaded(fetch("/api/bookings/" + booking.getId(), customer, 1));
+    }
+
+    @Test
+    void bookingsByUserBikeAndStatus() throws Exception {
+        Booking booking = bookingRepository.findByUserId(customer.getId()).get(0);
+
+        fetch("/api/bookings/user/" + customer.getId(), customer, 1).forEach(this::assertBikeAndUserLoaded);
+        fetch("/api/bookings/bike/" + booking.getBike().getId(), admin, 1).forEach(this::assertBikeAndUserLoaded);
+        fetch("/api/bookings/status/" + booking.getStatus(), admin, 1).forEach(this::assertBikeAndUserLoaded);
+        // The archive is a second table, hence a second query
+        fetch("/api/bookings/status/" + booking.getStatus() + "?includeArchived=true", admin, 2)
+            .forEach(this::assertBikeAndUserLoaded);
+    }
+
+    @Test
+    void users() throws Exception {
+        assertThat(fetch("/api/users", admin, 1).size()).isGreaterThan(1);
+        assertThat(fetch("/api/users/" + customer.getId(), admin, 1).path("email").asText())
+            .isEqualTo(customer.getEmail());
+    }
+
+    @Test
+    void customerDashboard() throws Exception {
+        // Bookings with their bikes and owners, then the archived count and archived spend
+        JsonNode dashboard = fetch("/api/dashboard/customer", customer, 3);
+        assertThat(dashboard.path("recentBookings").size()).isGreaterThan(0);
+        dashboard.path("recentBookings").forEach(this::assertBikeAndUserLoaded);
+    }
+
+    @Test
+    void ownerDashboard() throws Exception {
+        // The fleet, then booking count, active count and earnings, the first and last over live and archived rows
+        JsonNode dashboard = fetch("/api/dashboard/owner", owner, 6);
+        assertThat(dashboard.path("totalBikes").asInt()).isGreaterThan(1);
+    }
+
+    // Runs the request (completing it if it was streamed) and asserts how many statements it prepared
+    private JsonNode fetch(String path, User user, long expectedStatements) throws Exception {
+        sessionFactory.getCache().evictAllRegions();
+        statistics.clear();
+
+        var request = get(path);
+        if (user != null) {
+            request.header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(user));
+        }
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            result = mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        assertThat(result.getResponse().getStatus()).as(path).isEqualTo(200);
+
+        assertThat(statistics.getPrepareStatementCount()).as("statements for " + path).isEqualTo(expectedStatements);
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private void assertOwnerLoaded(JsonNode bike) {
+        assertThat(bike.path("owner").isObject()).as("owner of %s", bike).isTrue();
+        assertThat(bike.path("owner").path("name").asText()).isNotEmpty();
+    }
+
+    private void assertBikeAndUserLoaded(JsonNode booking) {
+        assertThat(booking.path("bike").path("brand").asText()).as("bike of %s", booking).isNotEmpty();
+        assertThat(booking.path("user").path("name").asText()).as("user of %s", booking).isNotEmpty();
+    }
+}
@@ -0,0 +1,136 @@
+package com.spingo.bikerental.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.BookingRepository;
+import com.spingo.bikerental.BookingStatus;
+import com.spingo.bikerental.JwtUtil;
+import com.spingo.bikerental.UserRepository;
+import com.spingo.bikerental.UserRole;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The cursor-backed endpoints must write the same array the List-returning versions did. A tiny flush interval
+// makes every response cross several flush/clear boundaries, so entities detached mid-array are covered too.
+@SpringBootTest(properties = "streaming.flush-every=2")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StreamingEndpointsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String adminToken;
+
+    @BeforeEach
+    void signIn() {
+        adminToken = jwtUtil.generateToken(userRepository.findByEmail("admin@spingo.com").orElseThrow());
+    }
+
+    @Test
+    void catalogIsStreamedWithOwners() throws Exception {
+        String body = stream("/api/bikes");
+
+        assertThat(body).isEqualTo(asList(bikeRepository::streamByIsActiveTrue));
+        JsonNode bikes = objectMapper.readTree(body);
+        assertThat(bikes.size()).isGreaterThan(2);
+        bikes.forEach(bike -> {
+            assertThat(bike.path("owner").isObject()).isTrue();
+            assertThat(bike.path("owner").path("name").asText()).isNotEmpty();
+        });
+    }
+
+    @Test
+    void bookingsAreStreamedWithBikeAndUser() throws Exception {
+        String body = stream("/api/bookings");
+
+        assertThat(body).isEqualTo(asList(bookingRepository::streamAllBy));
+        JsonNode bookings = objectMapper.readTree(body);
+        assertThat(bookings.size()).isGreaterThan(0);
+        bookings.forEach(booking -> {
+            assertThat(booking.path("bike").path("brand").asText()).isNotEmpty();
+            assertThat(booking.path("user").path("email").asText()).isNotEmpty();
+        });
+    }
+
+    @Test
+    void bookingsByStatusAreStreamedWithAndWithoutArchive() throws Exception {
+        String live = stream("/api/bookings/status/CONFIRMED");
+        assertThat(live).isEqualTo(asList(() -> bookingRepository.streamByStatus(BookingStatus.CONFIRMED)));
+
+        // Nothing is archived on the test profile, so the merged path writes the same array
+        assertThat(stream("/api/bookings/status/CONFIRMED?includeArchived=true")).isEqualTo(live);
+    }
+
+    @Test
+    void usersAreStreamed() throws Exception {
+        String all = stream("/api/users");
+        assertThat(all).isEqualTo(asList(userRepository::streamAllBy));
+        assertThat(objectMapper.readTree(all).size()).isGreaterThan(2);
+
+        assertThat(stream("/api/users/role/CUSTOMER")).isEqualTo(asList(() -> userRepository.streamByRole(UserRole.CUSTOMER)));
+        assertThat(stream("/api/users/active")).isEqualTo(asList(userRepository::streamByIsActiveTrue));
+    }
+
+    private String stream(String path) throws Exception {
+        MvcResult started = mockMvc.perform(get(path).header(HttpHeaders.AUTHORIZATION, "Bearer " + adminToken))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andReturn().getResponse().getContentAsString();
+    }
+
+    // What the endpoint wrote before it streamed: the whole result serialized at once
+    private <T> String asList(Supplier<Stream<T>> query) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            try (Stream<T> rows = query.get()) {
+                return objectMapper.writeValueAsString(rows.toList());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,166 @@
+package com.spingo.bikerental.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.BikeStatus;
+import com.spingo.bikerental.Booking;
+import com.spingo.bikerental.BookingRepository;
+import com.spingo.bikerental.BookingStatus;
+import com.spingo.bikerental.JwtUtil;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Change log records go through the outbox table in the writer's transaction and reach the segments only when
+// drained. The drain interval is long enough that each test drains explicitly.
+@SpringBootTest(properties = {
+    "changelog.enabled=true",
+    "changelog.drain-interval-ms=600000",
+    "utilization.restore-from-snapshot=true"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ChangeLogOutboxTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private UtilizationIndex utilizationIndex;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void bookingIsRecordedInTheOutboxAndDrainedIntoTheLog() throws Exception {
+        changeLog.drain();
+        long from = changeLog.getEndOffset();
+        Bike bike = bikeRepository.findByIsActiveTrue().stream()
+            .filter(b -> b.getStatus() == BikeStatus.AVAILABLE)
+            .findFirst()
+            .orElseThrow();
+        User customer = userRepository.findByEmail("alice@example.com").orElseThrow();
+
+        Map<String, Object> booking = Map.of(
+            "bikeId", bike.getId(),
+            "pickupDate", LocalDateTime.now().plusDays(3).withNano(0).toString(),
+            "dropoffDate", LocalDateTime.now().plusDays(4).withNano(0).toString(),
+            "pickupTime", "09:00",
+            "dropTime", "18:00");
+        mockMvc.perform(post("/api/bookings")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(customer))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(booking)))
+            .andExpect(status().isOk());
+
+        // Committed with the booking, not yet in the log
+        assertThat(outboxRows()).isEqualTo(2);
+        assertThat(changeLog.getEndOffset()).isEqualTo(from);
+
+        assertThat(changeLog.drain()).isEqualTo(2);
+        assertThat(outboxRows()).isZero();
+        List<ChangeEvent> events = new ArrayList<>();
+        changeLog.replay(from, events::add);
+        assertThat(events).extracting(ChangeEvent::getEntityType, ChangeEvent::getOperation)
+            .containsExactly(tuple(ChangeEvent.EntityType.BIKE, ChangeEvent.Operation.UPDATED),
+                tuple(ChangeEvent.EntityType.BOOKING, ChangeEvent.Operation.CREATED));
+        assertThat(events.get(0).getEntityId()).isEqualTo(bike.getId());
+        assertThat(events.get(0).getString("status")).isEqualTo("BOOKED");
+        assertThat(events.get(1).getLong("bikeId")).isEqualTo(bike.getId());
+    }
+
+    @Test
+    void rolledBackWriteLeavesNoRecord() {
+        changeLog.drain();
+        long from = changeLog.getEndOffset();
+        Bike bike = bikeRepository.findByIsActiveTrue().get(0);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            changeLog.record(ChangeEvent.of(bike, ChangeEvent.Operation.UPDATED));
+            status.setRollbackOnly();
+        });
+
+        assertThat(outboxRows()).isZero();
+        assertThat(changeLog.drain()).isZero();
+        assertThat(changeLog.getEndOffset()).isEqualTo(from);
+    }
+
+    @Test
+    void snapshotMissingABookingIsRebuilt() {
+        Bike bike = bikeRepository.findByIsActiveTrue().get(0);
+        double before = occupancy(bike);
+        utilizationIndex.saveSnapshot();
+
+        // Written straight to the table: no change log record, same bike count
+        User customer = userRepository.findByEmail("john@example.com").orElseThrow();
+        LocalDateTime pickup = LocalDateTime.now().minusDays(2).withHour(10).withMinute(0).withSecond(0).withNano(0);
+        Booking booking = new Booking(customer, bike, pickup, pickup.plusHours(4), new BigDecimal("400.00"));
+        booking.setPickupTime("10:00");
+        booking.setDropTime("14:00");
+        booking.setStatus(BookingStatus.COMPLETED);
+        bookingRepository.save(booking);
+
+        utilizationIndex.onApplicationReady();
+
+        // Restoring the snapshot as-is would leave the four hours out
+        assertThat(occupancy(bike)).isGreaterThan(before);
+        bookingRepository.delete(booking);
+        utilizationIndex.rebuild();
+    }
+
+    private long outboxRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM change_log_outbox", Long.class);
+    }
+
+    private double occupancy(Bike bike) {
+        double total = 0;
+        for (double[] day : utilizationIndex.bikeHeatmap(bike.getId())) {
+            for (double cell : day) {
+                total += cell;
+            }
+        }
+        return total;
+    }
+}
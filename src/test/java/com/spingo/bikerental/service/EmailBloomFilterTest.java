@@ -0,0 +1,85 @@
+package com.spingo.bikerental.service;
+
+import com.spingo.bikerental.SqlRecorder;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRepository;
+import com.spingo.bikerental.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The filter folds case and accents like MySQL's default collation, so any spelling the database would match
+// must get past it. This context's H2 compares with a primary-strength collation (case and accent blind) to
+// stand in for MySQL; the other test databases compare emails byte for byte.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:email-filter-${random.uuid};MODE=MySQL;"
+    + "DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;INIT=SET COLLATION ENGLISH STRENGTH PRIMARY")
+@ActiveProfiles("test")
+class EmailBloomFilterTest {
+
+    @Autowired
+    private EmailBloomFilter emailBloomFilter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final List<User> users = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll(users);
+    }
+
+    @Test
+    void spellingsOfARebuiltEmailAreNeverDefiniteNegatives() {
+        register("José.Núñez@Spingo.test");
+        emailBloomFilter.seed();
+
+        assertRegistered("jose.nunez@spingo.test", "JOSE.NUNEZ@SPINGO.TEST", "josé.núñez@spingo.test",
+            "José.Nuñez@spingo.test");
+    }
+
+    @Test
+    void spellingsOfAnAddedEmailAreNeverDefiniteNegatives() {
+        // Signup path: saved, then added to the live filter without a rebuild
+        emailBloomFilter.add(register("ZOË.Ñandú@spingo.test").getEmail());
+
+        assertRegistered("zoe.nandu@spingo.test", "Zoë.ÑANDÚ@Spingo.Test");
+    }
+
+    @Test
+    void unknownEmailIsAnsweredWithoutAQuery() {
+        long negatives = emailBloomFilter.getDefiniteNegatives();
+        long fallThroughs = emailBloomFilter.getFallThroughs();
+        SqlRecorder.clear();
+
+        assertThat(emailBloomFilter.exists("nobody-registered-this@spingo.test")).isFalse();
+
+        assertThat(emailBloomFilter.getDefiniteNegatives()).isEqualTo(negatives + 1);
+        assertThat(emailBloomFilter.getFallThroughs()).isEqualTo(fallThroughs);
+        assertThat(SqlRecorder.statements()).noneMatch(sql -> sql.contains("users"));
+    }
+
+    private User register(String email) {
+        User user = userRepository.save(new User("Filter User", email, "90000000" + (34 + users.size()), "hash",
+            UserRole.CUSTOMER, "Pune"));
+        users.add(user);
+        return user;
+    }
+
+    // Each spelling passes the filter and is then confirmed by the database
+    private void assertRegistered(String... spellings) {
+        long negatives = emailBloomFilter.getDefiniteNegatives();
+        for (String spelling : spellings) {
+            assertThat(emailBloomFilter.exists(spelling)).as(spelling).isTrue();
+        }
+        assertThat(emailBloomFilter.getDefiniteNegatives()).isEqualTo(negatives);
+        assertThat(emailBloomFilter.getFallThroughs()).isPositive();
+    }
+}
@@ -0,0 +1,185 @@
+package com.spingo.bikerental.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+// Render, hit, coalescing and eviction against generated sources and a cache directory of this context's own.
+// Each test asks for its own widths, so the variants of one test are never hits in another.
+@SpringBootTest(properties = {
+    "images.source-location=file:target/test-data/image-sources/",
+    "images.cache.dir=target/test-data/image-cache-${random.uuid}"
+})
+@ActiveProfiles("test")
+class ImageVariantCacheTest {
+
+    private static final Path SOURCES = Path.of("target/test-data/image-sources");
+
+    @Autowired
+    private ImageVariantCache imageVariantCache;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @BeforeAll
+    static void writeSources() throws IOException {
+        Files.createDirectories(SOURCES);
+        // Noise, so the JPEG variants are not trivially small
+        BufferedImage image = new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(47);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ImageIO.write(image, "png", SOURCES.resolve("wide.png").toFile());
+    }
+
+    @AfterEach
+    void restore() {
+        ReflectionTestUtils.setField(imageVariantCache, "resourceLoader", resourceLoader);
+        ReflectionTestUtils.setField(imageVariantCache, "maxBytes", 268435456L);
+    }
+
+    @Test
+    void variantIsRenderedOnceAndThenServedFromTheCache() throws Exception {
+        Map<String, Object> before = imageVariantCache.getStats();
+
+        String name;
+        try (ImageVariantCache.Variant rendered = imageVariantCache.get("wide.png", 200, null, "jpg")) {
+            name = rendered.getName();
+            BufferedImage image = ImageIO.read(rendered.getFile().toFile());
+            assertThat(image.getWidth()).isEqualTo(200);
+            assertThat(image.getHeight()).isEqualTo(100);
+            assertThat(rendered.getSize()).isEqualTo(Files.size(rendered.getFile()));
+            assertThat(rendered.getContentType()).isEqualTo("image/jpeg");
+        }
+        try (ImageVariantCache.Variant cached = imageVariantCache.get("wide.png", 200, null, "jpg")) {
+            assertThat(cached.getName()).isEqualTo(name);
+        }
+
+        assertThat(delta(before, "misses")).isEqualTo(1);
+        assertThat(delta(before, "hits")).isEqualTo(1);
+        assertThat(imageVariantCache.getStats().get("pinned")).isEqualTo(0);
+    }
+
+    @Test
+    void concurrentRequestsForAMissingVariantShareOneRender() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        holdSourceOpen(reading, release);
+        Map<String, Object> before = imageVariantCache.getStats();
+
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> requests = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                requests.add(threads.submit(() -> {
+                    try (ImageVariantCache.Variant variant = imageVariantCache.get("wide.png", 300, null, "png")) {
+                        return variant.getName();
+                    }
+                }));
+            }
+            // One request is decoding the source; the other three wait for it rather than starting their own
+            assertThat(reading.await(10, TimeUnit.SECONDS)).isTrue();
+            await().atMost(Duration.ofSeconds(10)).until(() -> delta(before, "coalesced") == 3);
+            release.countDown();
+
+            List<String> names = new ArrayList<>();
+            for (Future<String> request : requests) {
+                names.add(request.get(10, TimeUnit.SECONDS));
+            }
+            assertThat(names).hasSize(4).containsOnly(names.get(0));
+        } finally {
+            release.countDown();
+            threads.shutdownNow();
+        }
+
+        assertThat(delta(before, "misses")).isEqualTo(1);
+        assertThat(imageVariantCache.getStats().get("pinned")).isEqualTo(0);
+    }
+
+    @Test
+    void variantsBeingServedAreNotEvicted() throws Exception {
+        // Any two variants exceed the budget
+        ReflectionTestUtils.setField(imageVariantCache, "maxBytes", 1L);
+        Map<String, Object> before = imageVariantCache.getStats();
+
+        ImageVariantCache.Variant served = imageVariantCache.get("wide.png", 120, null, "jpg");
+        ImageVariantCache.Variant newer = imageVariantCache.get("wide.png", 140, null, "jpg");
+        try {
+            // The older variant is least recently used and over budget, but still being served
+            assertThat(served.getFile()).exists();
+            assertThat(ImageIO.read(served.getFile().toFile()).getWidth()).isEqualTo(120);
+            assertThat(newer.getFile()).exists();
+        } finally {
+            served.close();
+        }
+        // Released: now it goes, while the other one is still pinned
+        assertThat(served.getFile()).doesNotExist();
+        assertThat(newer.getFile()).exists();
+        newer.close();
+        assertThat(newer.getFile()).doesNotExist();
+        assertThat(delta(before, "evictions")).isGreaterThanOrEqualTo(2);
+
+        // An evicted variant is simply rendered again
+        try (ImageVariantCache.Variant again = imageVariantCache.get("wide.png", 120, null, "jpg")) {
+            assertThat(again.getFile()).exists();
+        }
+        assertThat(delta(before, "misses")).isEqualTo(3);
+    }
+
+    // Reads of the source signal reading and then block until release
+    private void holdSourceOpen(CountDownLatch reading, CountDownLatch release) {
+        ResourceLoader blocking = new DefaultResourceLoader() {
+            @Override
+            public Resource getResource(String location) {
+                return new FileSystemResource(SOURCES.resolve("wide.png")) {
+                    @Override
+                    public InputStream getInputStream() throws IOException {
+                        reading.countDown();
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return super.getInputStream();
+                    }
+                };
+            }
+        };
+        ReflectionTestUtils.setField(imageVariantCache, "resourceLoader", blocking);
+    }
+
+    private long delta(Map<String, Object> before, String counter) {
+        return (Long) imageVariantCache.getStats().get(counter) - (Long) before.get(counter);
+    }
+}
@@ -0,0 +1,106 @@
+package com.spingo.bikerental.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRepository;
+import com.spingo.bikerental.UserRole;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// One hashing thread with a one-slot queue and a BCrypt cost slow enough that a saturated pool stays saturated
+// for the length of a request
+@SpringBootTest(properties = {
+    "security.password.bcrypt-strength=13",
+    "security.password.hashing.threads=1",
+    "security.password.hashing.queue-capacity=1",
+    "security.password.hashing.rehash-queue-capacity=1",
+    "security.password.hashing.timeout-ms=30000"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PasswordHashingServiceTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void rehashBacklogDoesNotTakeLoginSlots() {
+        String lowCostHash = new BCryptPasswordEncoder(4).encode("secret");
+        User user = userRepository.save(new User("Rehash Test", "rehash@spingo.test", "9000000006", lowCostHash,
+            UserRole.CUSTOMER, "Pune"));
+
+        for (int i = 0; i < 10; i++) {
+            passwordHashingService.upgradeIfNeeded(user, "secret");
+        }
+
+        // Upgrades are on their own thread and queue; the extra ones were dropped there
+        assertThat(passwordHashingService.getActiveCount()).isZero();
+        assertThat(passwordHashingService.getQueueDepth()).isZero();
+        assertThat(passwordHashingService.matches("secret", lowCostHash)).isTrue();
+    }
+
+    @Test
+    void saturatedPoolAnswersLoginAndSignupWithRetryAfter() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            // One hash running, one queued: the next submission is rejected
+            List<Future<String>> busy = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                busy.add(callers.submit(() -> passwordHashingService.encode("keep-the-pool-busy")));
+            }
+            await().atMost(Duration.ofSeconds(5))
+                .until(() -> passwordHashingService.getActiveCount() == 1 && passwordHashingService.getQueueDepth() == 1);
+
+            mockMvc.perform(post("/api/auth/login")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(Map.of(
+                        "email", "john@example.com", "password", "password123", "role", "CUSTOMER"))))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+            mockMvc.perform(post("/api/auth/signup")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(Map.of(
+                        "name", "Busy Signup", "email", "busy-signup@spingo.test", "phone", "9000000007",
+                        "password", "password123", "userType", "customer", "termsAccepted", true))))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+            for (Future<String> hash : busy) {
+                hash.get();
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
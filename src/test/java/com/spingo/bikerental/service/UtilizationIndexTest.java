@@ -0,0 +1,162 @@
+package com.spingo.bikerental.service;
+
+import com.spingo.bikerental.Bike;
+import com.spingo.bikerental.BikeRepository;
+import com.spingo.bikerental.BikeType;
+import com.spingo.bikerental.Booking;
+import com.spingo.bikerental.BookingRepository;
+import com.spingo.bikerental.BookingStatus;
+import com.spingo.bikerental.User;
+import com.spingo.bikerental.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A booking committed and marked while a recompute or rebuild of the same bike sits between its query and
+// publishing the result must survive. The index's repository is swapped for a delegate that holds that gap
+// open, so the interleaving is deterministic.
+@SpringBootTest
+@ActiveProfiles("test")
+class UtilizationIndexTest {
+
+    @Autowired
+    private UtilizationIndex utilizationIndex;
+
+    @Autowired
+    private BikeRepository bikeRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ExecutorService threads = Executors.newFixedThreadPool(2);
+    private final CountDownLatch queried = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private User customer;
+    private Bike bike;
+    private Booking first;
+    private final List<Booking> bookings = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User owner = userRepository.findByEmail("mike@example.com").orElseThrow();
+        customer = userRepository.findByEmail("john@example.com").orElseThrow();
+        bike = bikeRepository.save(new Bike("Race", "Model", 2024, BikeType.STANDARD, "Racetown",
+            new BigDecimal("100.00"), new BigDecimal("600.00"), new BigDecimal("12000.00"), null, null, owner));
+        utilizationIndex.bikeUpdated(bike);
+        first = save(booking(0));
+        utilizationIndex.bookingCreated(first);
+    }
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+        ReflectionTestUtils.setField(utilizationIndex, "bookingRepository", bookingRepository);
+        bookingRepository.deleteAll(bookings);
+        bikeRepository.delete(bike);
+        utilizationIndex.rebuild();
+    }
+
+    @Test
+    void bookingMarkedDuringARecomputeIsKept() throws Exception {
+        pauseAfter("findOccupancyRowsForBike");
+        Future<?> recompute = threads.submit(() -> utilizationIndex.bookingChanged(first));
+        assertThat(queried.await(10, TimeUnit.SECONDS)).isTrue();
+
+        Future<?> create = threads.submit(() -> utilizationIndex.bookingCreated(save(booking(1))));
+        try {
+            // Waits for the bike while the recompute holds it
+            create.get(500, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // expected
+        }
+        release.countDown();
+        recompute.get(10, TimeUnit.SECONDS);
+        create.get(10, TimeUnit.SECONDS);
+
+        assertThat(occupiedHours()).isEqualTo(2);
+    }
+
+    @Test
+    void bookingMarkedDuringARebuildIsKept() throws Exception {
+        pauseAfter("findOccupancyRows");
+        Future<?> rebuild = threads.submit(() -> utilizationIndex.rebuild());
+        assertThat(queried.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // Marks the map the rebuild is about to replace
+        threads.submit(() -> utilizationIndex.bookingCreated(save(booking(1)))).get(10, TimeUnit.SECONDS);
+        release.countDown();
+        rebuild.get(10, TimeUnit.SECONDS);
+
+        assertThat(occupiedHours()).isEqualTo(2);
+    }
+
+    // The index's next call to the named query returns its rows only after release
+    private void pauseAfter(String query) {
+        Object delegate = Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {BookingRepository.class},
+            (proxy, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(bookingRepository, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (method.getName().equals(query) && queried.getCount() > 0) {
+                    queried.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                return result;
+            });
+        ReflectionTestUtils.setField(utilizationIndex, "bookingRepository", delegate);
+    }
+
+    private Booking save(Booking booking) {
+        Booking saved = bookingRepository.save(booking);
+        bookings.add(saved);
+        return saved;
+    }
+
+    // One hour, starting i hours into the current window
+    private Booking booking(int i) {
+        LocalDateTime pickup = utilizationIndex.getWindowStart().plusHours(i);
+        Booking booking = new Booking(customer, bike, pickup, pickup.plusHours(1), new BigDecimal("100.00"));
+        booking.setPickupTime("00:00");
+        booking.setDropTime("01:00");
+        booking.setStatus(BookingStatus.CONFIRMED);
+        return booking;
+    }
+
+    private int occupiedHours() {
+        int hours = 0;
+        for (double[] day : utilizationIndex.bikeHeatmap(bike.getId())) {
+            for (double cell : day) {
+                if (cell > 0) {
+                    hours++;
+                }
+            }
+        }
+        return hours;
+    }
+}